@@ -0,0 +1,251 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Just enough of a Bukkit server, built from dynamic proxies, to run plugin code outside one.
+ * <p>
+ * Item meta keeps its properties in a map and is copied on every read and write, and
+ * inventories copy the items put into them, as CraftBukkit does, so menu benchmarks pay
+ * for the same copies a real server makes. Players count the characters sent to them.
+ */
+final class BukkitStub {
+
+    private static final Logger LOGGER = Logger.getLogger("WatchdogBenchmark");
+    private static boolean installed;
+
+    private BukkitStub() {
+    }
+
+    /**
+     * Installs the stub as Bukkit's server. Bukkit only takes a server once per JVM.
+     */
+    static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        final ItemFactory itemFactory = proxy(ItemFactory.class, new Stub() {
+            @Override
+            Object call(String method, Object[] args) {
+                switch (method) {
+                    case "getItemMeta":
+                        return proxy(SkullMeta.class, new Meta(new HashMap<String, Object>()));
+                    case "isApplicable":
+                        return true;
+                    case "asMetaFor":
+                        return args[0];
+                    case "equals":
+                        return args[0] == null ? args[1] == null : args[0].equals(args[1]);
+                    default:
+                        return null;
+                }
+            }
+        });
+        Bukkit.setServer(proxy(Server.class, new Stub() {
+            @Override
+            Object call(String method, Object[] args) {
+                switch (method) {
+                    case "getLogger":
+                        return LOGGER;
+                    case "getName":
+                    case "getVersion":
+                    case "getBukkitVersion":
+                        return "Stub";
+                    case "getItemFactory":
+                        return itemFactory;
+                    case "createInventory":
+                        return args.length == 3 && args[1] instanceof Integer
+                                ? inventory((InventoryHolder) args[0], (Integer) args[1], (String) args[2]) : null;
+                    default:
+                        return null;
+                }
+            }
+        }));
+        installed = true;
+    }
+
+    /**
+     * A player whose permission checks all pass (or all fail) and whose received message
+     * lengths are added to {@code inbox[0]}.
+     */
+    static Player player(final String name, final boolean staff, final long[] inbox) {
+        final UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes());
+        return proxy(Player.class, new Stub() {
+            @Override
+            Object call(String method, Object[] args) {
+                switch (method) {
+                    case "getName":
+                    case "getDisplayName":
+                        return name;
+                    case "getUniqueId":
+                        return uuid;
+                    case "hasPermission":
+                        return staff;
+                    case "sendMessage":
+                        if (args[0] instanceof String) {
+                            inbox[0] += ((String) args[0]).length();
+                        }
+                        return null;
+                    default:
+                        return null;
+                }
+            }
+        });
+    }
+
+    private static Inventory inventory(final InventoryHolder holder, final int size, final String title) {
+        final ItemStack[] contents = new ItemStack[size];
+        return proxy(Inventory.class, new Stub() {
+            @Override
+            Object call(String method, Object[] args) {
+                switch (method) {
+                    case "getSize":
+                        return size;
+                    case "getHolder":
+                        return holder;
+                    case "getName":
+                    case "getTitle":
+                        return title;
+                    case "getItem":
+                        return contents[(Integer) args[0]];
+                    case "setItem":
+                        contents[(Integer) args[0]] = copy((ItemStack) args[1]);
+                        return null;
+                    case "getContents":
+                        return contents.clone();
+                    case "setContents":
+                        ItemStack[] items = (ItemStack[]) args[0];
+                        if (items.length > size) {
+                            throw new IllegalArgumentException("Invalid inventory size; expected " + size + " or less");
+                        }
+                        for (int i = 0; i < size; i++) {
+                            contents[i] = i < items.length ? copy(items[i]) : null;
+                        }
+                        return null;
+                    default:
+                        return null;
+                }
+            }
+        });
+    }
+
+    private static ItemStack copy(ItemStack item) {
+        return item == null ? null : item.clone();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Stub stub) {
+        return (T) Proxy.newProxyInstance(BukkitStub.class.getClassLoader(), new Class<?>[]{type}, stub);
+    }
+
+    /**
+     * Answers calls by method name. Unhandled calls return null, or zero/false for primitives;
+     * {@code equals}, {@code hashCode} and {@code toString} fall back to identity.
+     */
+    private abstract static class Stub implements InvocationHandler {
+
+        abstract Object call(String method, Object[] args);
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            Object[] arguments = args == null ? new Object[0] : args;
+            Object result = call(method.getName(), arguments);
+            if (result != null) {
+                return result;
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return arguments.length == 1 && proxy == arguments[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (!type.isPrimitive() || type == void.class) {
+                return null;
+            }
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == char.class) {
+                return '\0';
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            if (type == float.class) {
+                return 0f;
+            }
+            if (type == double.class) {
+                return 0d;
+            }
+            if (type == byte.class) {
+                return (byte) 0;
+            }
+            if (type == short.class) {
+                return (short) 0;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Item meta as a property map: {@code setX(v)} stores X, {@code getX()} and {@code hasX()} read it.
+     */
+    private static final class Meta extends Stub {
+        private final Map<String, Object> properties;
+
+        Meta(Map<String, Object> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        Object call(String method, Object[] args) {
+            if (method.equals("clone")) {
+                return proxy(SkullMeta.class, new Meta(new HashMap<>(properties)));
+            }
+            if (method.equals("equals")) {
+                return args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                        && Proxy.getInvocationHandler(args[0]) instanceof Meta
+                        && properties.equals(((Meta) Proxy.getInvocationHandler(args[0])).properties);
+            }
+            if (method.equals("hashCode")) {
+                return properties.hashCode();
+            }
+            if (method.equals("serialize")) {
+                return new HashMap<>(properties);
+            }
+            if (method.startsWith("set") && args.length == 1) {
+                properties.put(method.substring(3), args[0]);
+                return true; // SkullMeta.setOwner returns whether the owner was accepted
+            }
+            if (method.startsWith("get") && args.length == 0) {
+                return properties.get(method.substring(3));
+            }
+            if (method.startsWith("has") && args.length == 0) {
+                return properties.containsKey(method.substring(3));
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.watchdogpaper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the duration argument of /tempban, /tempmute and /tempipban, and formatting the
+ * remaining time shown on ban screens, mute notices and staff messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurationBenchmark {
+
+    @Param({"30m", "1d12h30m", "2w", "1y6mo"})
+    public String duration;
+
+    @Param({"45000", "5400000", "129600000"})
+    public long millis;
+
+    @Benchmark
+    public long parse() {
+        return Durations.parse(duration);
+    }
+
+    @Benchmark
+    public String format() {
+        return Durations.format(millis);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.watchdogpaper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of recording a timing, alone and from several chat threads at once. Run with
+ * {@code -prof gc} to confirm recording allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final Metrics metrics = new Metrics();
+
+    @Benchmark
+    public void record() {
+        metrics.record(Metrics.Timer.CHAT_MUTE_CHECK, System.nanoTime() - 1500);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        metrics.record(Metrics.Timer.CHAT_MUTE_CHECK, System.nanoTime() - 1500);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.watchdogpaper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * The ban and mute checks: the in-memory ban and IP ban lookups at pre-login, the mute lookup
+ * in the database when a session opens, and the session check on every chat message.
+ * <p>
+ * Runs against an embedded SQLite database seeded with {@code bans} bans, a mute for every
+ * tenth of those players and {@code bans / 10} IP bans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PunishmentCheckBenchmark {
+
+    @Param({"10000"})
+    public int bans;
+
+    private File directory;
+    private Storage storage;
+    private final BanIndex banIndex = new BanIndex();
+    private final IpBanIndex ipBanIndex = new IpBanIndex();
+    private UUID[] players;
+    private String[] names;
+    private UUID stranger;
+    private InetAddress bannedAddress;
+    private InetAddress cleanAddress;
+    private PlayerSession mutedSession;
+    private PlayerSession cleanSession;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException, SQLException, InterruptedException {
+        directory = Files.createTempDirectory("watchdog-bench").toFile();
+        storage = new SQLiteStorage(new File(directory, "watchdog.db"), 16384, 4,
+                Logger.getLogger("WatchdogBenchmark"), new Metrics(), Runnable::run, 100, 50L);
+        storage.init();
+
+        long now = System.currentTimeMillis();
+        players = new UUID[bans];
+        names = new String[bans];
+        int writes = bans + bans / 10 + bans / 10;
+        final CountDownLatch written = new CountDownLatch(writes);
+        final AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < bans; i++) {
+            players[i] = UUID.randomUUID();
+            names[i] = "Player" + i;
+            insert(new Punishment(0, UUID.randomUUID().toString(), names[i], players[i], null,
+                    i % 2 == 0 ? PunishmentType.BAN : PunishmentType.TEMPBAN, "Cheating (Hacks)", null, "Watchdog",
+                    now, i % 2 == 0 ? 0 : now + TimeUnit.DAYS.toMillis(30)), null, written, failed);
+        }
+        for (int i = 0; i < bans / 10; i++) {
+            insert(new Punishment(0, UUID.randomUUID().toString(), names[i], players[i], null,
+                    PunishmentType.TEMPMUTE, "Chat Abuse", null, "Moderator", now, now + TimeUnit.DAYS.toMillis(1)),
+                    null, written, failed);
+            String range = "10." + (i >> 8 & 0xFF) + "." + (i & 0xFF) + ".0/24";
+            insert(new Punishment(0, UUID.randomUUID().toString(), "", null, range,
+                    PunishmentType.IPBAN, "Other", null, "Moderator", now, 0), range, written, failed);
+        }
+        if (!written.await(5, TimeUnit.MINUTES) || failed.get() > 0) {
+            throw new IllegalStateException("Failed to seed the database");
+        }
+
+        banIndex.load(storage.loadActiveBans(now));
+        ipBanIndex.load(storage.loadActiveIpBans(now));
+        stranger = UUID.randomUUID();
+        bannedAddress = InetAddress.getByName("10.0.1.42");
+        cleanAddress = InetAddress.getByName("192.0.2.1");
+        mutedSession = new PlayerSession(players[0], names[0], storage.findActiveMute(names[0], players[0], now));
+        cleanSession = new PlayerSession(stranger, "Stranger", null);
+    }
+
+    private void insert(Punishment punishment, String playerIP, final CountDownLatch written, final AtomicInteger failed) {
+        storage.insertPunishment(punishment, playerIP, true, stored -> {
+            if (stored == null) {
+                failed.incrementAndGet();
+            }
+            written.countDown();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        storage.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public Punishment banCheckBanned() {
+        int i = next++ % bans;
+        return banIndex.get(players[i], names[i]);
+    }
+
+    @Benchmark
+    public Punishment banCheckClean() {
+        return banIndex.get(stranger, "Stranger");
+    }
+
+    @Benchmark
+    public Punishment ipBanCheckBanned() {
+        return ipBanIndex.match(bannedAddress);
+    }
+
+    @Benchmark
+    public Punishment ipBanCheckClean() {
+        return ipBanIndex.match(cleanAddress);
+    }
+
+    /**
+     * The query run once per login to load the player's mute into their session.
+     */
+    @Benchmark
+    public Punishment muteLookupOnLogin() throws SQLException {
+        int i = next++ % bans;
+        return storage.findActiveMute(names[i], players[i], System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public Punishment muteCheckOnChatMuted() {
+        return mutedSession.getActiveMute(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public Punishment muteCheckOnChatClean() {
+        return cleanSession.getActiveMute(System.currentTimeMillis());
+    }
+}
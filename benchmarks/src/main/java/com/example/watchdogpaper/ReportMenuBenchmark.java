@@ -0,0 +1,68 @@
+package com.example.watchdogpaper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening the report and confirmation menus for a player whose head is already cached, as
+ * {@code /report} does, against building the menu items from scratch every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportMenuBenchmark {
+
+    private static final String REPORTED = "Notch";
+
+    private final UUID reporter = UUID.randomUUID();
+    private SkullCache skullCache;
+    private ReportMenus menus;
+    private ReportSessions sessions;
+
+    @Setup
+    public void setUp() {
+        BukkitStub.install();
+        Executor direct = Runnable::run;
+        skullCache = new SkullCache(direct, direct, TimeUnit.HOURS.toMillis(1), 256);
+        skullCache.resolve(REPORTED, head -> { });
+        menus = new ReportMenus(skullCache);
+        sessions = new ReportSessions(TimeUnit.MINUTES.toMillis(5));
+    }
+
+    @Benchmark
+    public ReportMenu openReportMenu() {
+        ReportMenu menu = menus.createReportMenu(reporter, REPORTED, System.currentTimeMillis());
+        sessions.open(menu);
+        return menu;
+    }
+
+    @Benchmark
+    public ReportMenu openConfirmMenu() {
+        ReportMenu menu = menus.createConfirmMenu(reporter, REPORTED, "Cheating (Hacks)", System.currentTimeMillis());
+        sessions.open(menu);
+        return menu;
+    }
+
+    /**
+     * What every open cost before the layouts were shared.
+     */
+    @Benchmark
+    public ReportMenu buildAndOpenReportMenu() {
+        return new ReportMenus(skullCache).createReportMenu(reporter, REPORTED, System.currentTimeMillis());
+    }
+}
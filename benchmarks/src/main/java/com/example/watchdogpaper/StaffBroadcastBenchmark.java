@@ -0,0 +1,71 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * A staff notification: rendering the message once and sending it to every online staff
+ * member, with {@code staff} of {@code online} players holding the staff permissions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaffBroadcastBenchmark {
+
+    @Param({"200"})
+    public int online;
+
+    @Param({"1", "10", "50"})
+    public int staff;
+
+    private final long[] inbox = new long[1];
+    private Messages messages;
+    private StaffAudience audience;
+    private List<Player> players;
+
+    @Setup
+    public void setUp() {
+        BukkitStub.install();
+        messages = new Messages(Logger.getLogger("WatchdogBenchmark"));
+        players = new ArrayList<>();
+        for (int i = 0; i < online; i++) {
+            players.add(BukkitStub.player("Player" + i, i < staff, inbox));
+        }
+        audience = new StaffAudience();
+        audience.resync(players);
+    }
+
+    @Benchmark
+    public long notifyStaff() {
+        audience.broadcast(StaffAudience.Tier.STAFF,
+                messages.render(Message.STAFF_BAN, "Notch", "Moderator", "Cheating (Hacks)"));
+        return inbox[0];
+    }
+
+    /**
+     * The periodic re-check of who is staff, which runs over everyone online.
+     */
+    @Benchmark
+    public StaffAudience resync() {
+        audience.resync(players);
+        return audience;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.watchdogpaper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Groups accounts that have logged in from a shared address, for alt detection.
+ * <p>
+ * A union-find over accounts: logging in from an address another account used merges the two
+ * groups, so "is this account linked to that one" is a near-constant {@code find}, and links
+ * are transitive (A and C are linked if A shared an address with B and B one with C). Every
+ * group also keeps its members on a circular list, spliced in O(1) on merge, so listing an
+ * account's alts walks only its own group. An address seen with more than
+ * {@code maxAccountsPerAddress} accounts (a school, a VPN exit, carrier NAT) stops linking
+ * anyone new, which keeps one busy address from joining unrelated players into one group.
+ * Links are never split; the index is rebuilt from storage on start. Thread-safe.
+ */
+final class AltIndex {
+
+    private static final class Address {
+        int[] accounts; // IDs of the accounts seen here, null once the address counts as shared
+
+        Address(int account) {
+            this.accounts = new int[]{account};
+        }
+    }
+
+    private final int maxAccountsPerAddress;
+    private final Map<UUID, Integer> ids = new HashMap<>();
+    private final Map<String, Address> addresses = new HashMap<>();
+    private UUID[] accounts = new UUID[64];
+    private String[] lastAddress = new String[64];
+    private int[] parent = new int[64];
+    private int[] size = new int[64];
+    private int[] next = new int[64]; // next member of the same group, circular
+    private int count;
+
+    AltIndex(int maxAccountsPerAddress) {
+        this.maxAccountsPerAddress = maxAccountsPerAddress;
+    }
+
+    synchronized void clear() {
+        ids.clear();
+        addresses.clear();
+        Arrays.fill(accounts, 0, count, null);
+        Arrays.fill(lastAddress, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Records that the account logged in from the address, linking it to the other accounts seen there.
+     */
+    synchronized void record(UUID account, String address) {
+        int id = idOf(account);
+        lastAddress[id] = address;
+        Address seen = addresses.get(address);
+        if (seen == null) {
+            addresses.put(address, new Address(id));
+            return;
+        }
+        if (seen.accounts == null) {
+            return;
+        }
+        for (int other : seen.accounts) {
+            if (other == id) {
+                return;
+            }
+        }
+        if (seen.accounts.length >= maxAccountsPerAddress) {
+            seen.accounts = null;
+            return;
+        }
+        seen.accounts = Arrays.copyOf(seen.accounts, seen.accounts.length + 1);
+        seen.accounts[seen.accounts.length - 1] = id;
+        union(seen.accounts[0], id);
+    }
+
+    /**
+     * Returns the address the account logged in from most recently, or null.
+     */
+    synchronized String getLastAddress(UUID account) {
+        Integer id = ids.get(account);
+        return id == null ? null : lastAddress[id];
+    }
+
+    /**
+     * Returns up to {@code limit} accounts linked to this one, not including itself.
+     */
+    synchronized List<UUID> getLinked(UUID account, int limit) {
+        List<UUID> linked = new ArrayList<>();
+        Integer id = ids.get(account);
+        if (id == null) {
+            return linked;
+        }
+        for (int member = next[id]; member != id && linked.size() < limit; member = next[member]) {
+            linked.add(accounts[member]);
+        }
+        return linked;
+    }
+
+    /**
+     * Returns the first account linked to this one that passes {@code test}, or null.
+     */
+    synchronized UUID findLinked(UUID account, Predicate<UUID> test) {
+        Integer id = ids.get(account);
+        if (id == null) {
+            return null;
+        }
+        for (int member = next[id]; member != id; member = next[member]) {
+            if (test.test(accounts[member])) {
+                return accounts[member];
+            }
+        }
+        return null;
+    }
+
+    synchronized int getLinkedCount(UUID account) {
+        Integer id = ids.get(account);
+        return id == null ? 0 : size[find(id)] - 1;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    private int idOf(UUID account) {
+        Integer id = ids.get(account);
+        if (id != null) {
+            return id;
+        }
+        if (count == accounts.length) {
+            int capacity = count * 2;
+            accounts = Arrays.copyOf(accounts, capacity);
+            lastAddress = Arrays.copyOf(lastAddress, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            size = Arrays.copyOf(size, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        int added = count++;
+        accounts[added] = account;
+        parent[added] = added;
+        size[added] = 1;
+        next[added] = added;
+        ids.put(account, added);
+        return added;
+    }
+
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]]; // path halving
+            id = parent[id];
+        }
+        return id;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+        // Swapping the successors of one member of each cycle joins the two cycles into one
+        int swap = next[rootA];
+        next[rootA] = next[rootB];
+        next[rootB] = swap;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.watchdogpaper;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Rolling seven-day ban counts for the announcement, split into automated (Watchdog) and staff bans.
+ * <p>
+ * A ring of 168 hourly buckets: each bucket remembers which hour it holds, so a bucket whose
+ * hour has rolled out of the window is reset the next time that slot is written and skipped
+ * when reading. Recording and reading are O(1) and O(168) with no database access. Thread-safe.
+ */
+final class BanCounter {
+
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final int HOURS = 7 * 24;
+
+    private final Set<String> automatedOperators = new HashSet<>();
+    private final long[] bucketHour = new long[HOURS];
+    private final int[] automated = new int[HOURS];
+    private final int[] staff = new int[HOURS];
+
+    BanCounter(Collection<String> automatedOperators) {
+        for (String operator : automatedOperators) {
+            this.automatedOperators.add(operator.toLowerCase(Locale.ROOT));
+        }
+        clear();
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < HOURS; i++) {
+            bucketHour[i] = Long.MIN_VALUE;
+            automated[i] = 0;
+            staff[i] = 0;
+        }
+    }
+
+    void record(long time, String operator) {
+        add(time, operator, 1);
+    }
+
+    /**
+     * Adds {@code count} bans made by {@code operator} at {@code time}; bans older than the window are ignored.
+     */
+    synchronized void add(long time, String operator, int count) {
+        long hour = time / HOUR;
+        int slot = (int) (hour % HOURS);
+        if (bucketHour[slot] != hour) {
+            if (hour < bucketHour[slot]) {
+                return;
+            }
+            bucketHour[slot] = hour;
+            automated[slot] = 0;
+            staff[slot] = 0;
+        }
+        if (isAutomated(operator)) {
+            automated[slot] += count;
+        } else {
+            staff[slot] += count;
+        }
+    }
+
+    synchronized int getAutomatedCount(long now) {
+        return sum(automated, now);
+    }
+
+    synchronized int getStaffCount(long now) {
+        return sum(staff, now);
+    }
+
+    boolean isAutomated(String operator) {
+        return automatedOperators.contains(operator.toLowerCase(Locale.ROOT));
+    }
+
+    private int sum(int[] counts, long now) {
+        long currentHour = now / HOUR;
+        int total = 0;
+        for (int i = 0; i < HOURS; i++) {
+            if (bucketHour[i] > currentHour - HOURS && bucketHour[i] <= currentHour) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+}
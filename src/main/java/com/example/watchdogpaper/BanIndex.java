@@ -0,0 +1,124 @@
+package com.example.watchdogpaper;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory index of active BAN/TEMPBAN rows keyed by lower-cased player name, and by account
+ * for bans whose player UUID is known so a rename does not get around them. A player holds one
+ * entry, the ban that ends last, so a shorter ban never hides a permanent one.
+ * Safe to query from the async pre-login thread.
+ */
+final class BanIndex {
+
+    private volatile ConcurrentMap<String, Punishment> bans = new ConcurrentHashMap<>();
+    private volatile ConcurrentMap<UUID, Punishment> bansById = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces every entry. The new maps are filled before they are swapped in, so a login
+     * checked meanwhile sees either the old bans or the new ones, never an empty index.
+     */
+    void load(Collection<Punishment> activeBans) {
+        BanIndex loaded = new BanIndex();
+        for (Punishment ban : activeBans) {
+            loaded.put(ban);
+        }
+        bansById = loaded.bansById;
+        bans = loaded.bans;
+    }
+
+    /**
+     * Indexes the ban unless the player already has one that ends later.
+     */
+    void put(Punishment ban) {
+        bans.merge(key(ban.getPlayerName()), ban, BanIndex::longer);
+        if (ban.getPlayerId() != null) {
+            bansById.merge(ban.getPlayerId(), ban, BanIndex::longer);
+        }
+    }
+
+    Punishment remove(String playerName) {
+        Punishment ban = bans.remove(key(playerName));
+        if (ban != null && ban.getPlayerId() != null) {
+            bansById.remove(ban.getPlayerId(), ban);
+        }
+        return ban;
+    }
+
+    /**
+     * Removes the account's ban, whatever name it was placed under.
+     */
+    Punishment remove(UUID playerId) {
+        Punishment ban = bansById.remove(playerId);
+        if (ban != null) {
+            bans.remove(key(ban.getPlayerName()), ban);
+        }
+        return ban;
+    }
+
+    /**
+     * Removes the entry only if it is still this ban, so a newer ban for the player survives.
+     */
+    boolean remove(Punishment ban) {
+        boolean removed = bans.remove(key(ban.getPlayerName()), ban);
+        if (ban.getPlayerId() != null) {
+            removed |= bansById.remove(ban.getPlayerId(), ban);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the active ban for the player, or null. Expired temp bans are dropped on read.
+     */
+    Punishment get(String playerName) {
+        return live(bans.get(key(playerName)));
+    }
+
+    /**
+     * Returns the account's active ban, or null. Bans placed on a name alone are not seen.
+     */
+    Punishment get(UUID playerId) {
+        return live(bansById.get(playerId));
+    }
+
+    /**
+     * Returns the active ban for the account, or else for the name unless that ban was placed
+     * on a different account that has since given the name up. {@code playerId} may be null.
+     */
+    Punishment get(UUID playerId, String playerName) {
+        if (playerId != null) {
+            Punishment ban = live(bansById.get(playerId));
+            if (ban != null) {
+                return ban;
+            }
+        }
+        Punishment ban = get(playerName);
+        if (ban != null && playerId != null && ban.getPlayerId() != null && !ban.getPlayerId().equals(playerId)) {
+            return null;
+        }
+        return ban;
+    }
+
+    int size() {
+        return bans.size();
+    }
+
+    private Punishment live(Punishment ban) {
+        if (ban != null && ban.isExpired(System.currentTimeMillis())) {
+            remove(ban);
+            return null;
+        }
+        return ban;
+    }
+
+    private static Punishment longer(Punishment current, Punishment added) {
+        return current.endsAfter(added) ? current : added;
+    }
+
+    private static String key(String playerName) {
+        return playerName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.watchdogpaper;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Copies bans from the server's own ban lists into the punishments table, for /watchdog import.
+ * <p>
+ * A list is read as a stream, one entry at a time, and written in chunks of multi-row INSERTs,
+ * each chunk its own transaction. After every chunk the number of entries done is saved to a
+ * checkpoint file, so an interrupted import resumes after the last committed chunk. Each entry's
+ * action ID is derived from its content, so an entry written twice (by a resumed chunk or a
+ * repeated import) is stored once. The listener is handed each chunk's new rows to enforce.
+ */
+final class BanListImporter {
+
+    private static final long PROGRESS_INTERVAL = 5000L;
+    private static final int MAX_NAME_LENGTH = 16;
+    private static final Pattern PLAYER_NAME = Pattern.compile("[A-Za-z0-9_]{1,16}");
+
+    enum Source {
+        BANNED_PLAYERS("banned-players", "banned-players.json", false),
+        BANNED_IPS("banned-ips", "banned-ips.json", true);
+
+        private final String name;
+        private final String fileName;
+        private final boolean ipBans;
+
+        Source(String name, String fileName, boolean ipBans) {
+            this.name = name;
+            this.fileName = fileName;
+            this.ipBans = ipBans;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Returns the lists a source argument names ({@code vanilla} is both), or null if none.
+         */
+        static List<Source> parse(String name) {
+            if (name == null) {
+                return null;
+            }
+            if (name.equalsIgnoreCase("vanilla")) {
+                return Arrays.asList(values());
+            }
+            for (Source source : values()) {
+                if (source.name.equalsIgnoreCase(name)) {
+                    return Collections.singletonList(source);
+                }
+            }
+            return null;
+        }
+    }
+
+    interface Listener {
+        /**
+         * After each committed chunk, with the punishments it stored that were not stored before.
+         */
+        void imported(Source source, List<Punishment> punishments);
+
+        /**
+         * After a committed chunk, at most every few seconds.
+         *
+         * @param percent how much of the file has been read
+         */
+        void progress(Source source, long entries, long added, int percent);
+
+        /**
+         * @param resumedAt entries an earlier, interrupted run had already done
+         */
+        void finished(Source source, long entries, long added, long skipped, long resumedAt);
+    }
+
+    private final Storage storage;
+    private final int batchSize;
+    private volatile boolean cancelled;
+
+    BanListImporter(Storage storage, int batchSize) {
+        this.storage = storage;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Stops a running import after its current chunk; the checkpoint keeps its place.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Imports {@code file}, resuming from {@code checkpoint} if an earlier run on the same file
+     * stopped early. Blocks; run it off the main thread. Returns false if it was cancelled.
+     *
+     * @throws IOException if the file cannot be read or is not a ban list
+     */
+    boolean run(Source source, File file, File checkpoint, Listener listener) throws IOException, SQLException {
+        long resumeAt = readCheckpoint(checkpoint, file);
+        long now = System.currentTimeMillis();
+        // Vanilla's format; one instance per run, as it is not thread-safe
+        SimpleDateFormat dates = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z", Locale.ROOT);
+        long length = Math.max(1, file.length());
+        CountingInputStream in = new CountingInputStream(new FileInputStream(file));
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        try {
+            List<Punishment> chunk = new ArrayList<>(batchSize);
+            long entries = 0;
+            long added = 0;
+            long skipped = 0;
+            long lastReport = System.currentTimeMillis();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (cancelled) {
+                    return false;
+                }
+                if (entries < resumeAt) {
+                    // Committed by the earlier run
+                    reader.skipValue();
+                    entries++;
+                    continue;
+                }
+                Punishment punishment = readEntry(reader, source, dates, now);
+                entries++;
+                if (punishment == null) {
+                    skipped++;
+                    continue;
+                }
+                chunk.add(punishment);
+                if (chunk.size() < batchSize) {
+                    continue;
+                }
+                added += store(source, chunk, now, listener);
+                chunk.clear();
+                writeCheckpoint(checkpoint, file, entries);
+                if (System.currentTimeMillis() - lastReport >= PROGRESS_INTERVAL) {
+                    lastReport = System.currentTimeMillis();
+                    listener.progress(source, entries, added, (int) Math.min(99, in.getCount() * 100 / length));
+                }
+            }
+            reader.endArray();
+            if (!chunk.isEmpty()) {
+                added += store(source, chunk, now, listener);
+            }
+            Files.deleteIfExists(checkpoint.toPath());
+            listener.finished(source, entries, added, skipped, Math.min(resumeAt, entries));
+            return true;
+        } catch (IllegalStateException e) {
+            // The reader's complaint when the JSON has another shape than a ban list
+            throw new IOException(file.getName() + " is not a ban list: " + e.getMessage(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private int store(Source source, List<Punishment> chunk, long now, Listener listener) throws SQLException {
+        List<Punishment> added = storage.importPunishments(chunk, now);
+        if (!added.isEmpty()) {
+            listener.imported(source, added);
+        }
+        return added.size();
+    }
+
+    /**
+     * Reads one entry; returns null if it cannot be imported (no usable name or address, or a bad date).
+     */
+    private static Punishment readEntry(JsonReader reader, Source source, SimpleDateFormat dates, long now)
+            throws IOException {
+        String uuid = null;
+        String name = null;
+        String ip = null;
+        String created = null;
+        String by = null;
+        String expires = null;
+        String reason = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "uuid":
+                    uuid = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "ip":
+                    ip = reader.nextString();
+                    break;
+                case "created":
+                    created = reader.nextString();
+                    break;
+                case "source":
+                    by = reader.nextString();
+                    break;
+                case "expires":
+                    expires = reader.nextString();
+                    break;
+                case "reason":
+                    reason = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        long startTime;
+        long endTime;
+        try {
+            startTime = created == null ? now : dates.parse(created).getTime();
+            endTime = expires == null || expires.equalsIgnoreCase("forever") ? 0 : dates.parse(expires).getTime();
+        } catch (ParseException e) {
+            return null;
+        }
+        String operator = by == null || by.isEmpty() ? "Server" : by.substring(0, Math.min(by.length(), MAX_NAME_LENGTH));
+        if (reason == null) {
+            reason = "Banned by an operator.";
+        }
+
+        String key;
+        PunishmentType type;
+        String playerName;
+        UUID playerId = null;
+        String playerIp = null;
+        if (source.ipBans) {
+            IpRange range = ip == null ? null : IpRange.parse(ip);
+            if (range == null) {
+                return null;
+            }
+            key = playerIp = range.toString();
+            playerName = "";
+            type = endTime > 0 ? PunishmentType.TEMPIPBAN : PunishmentType.IPBAN;
+        } else {
+            if (name == null || !PLAYER_NAME.matcher(name).matches()) {
+                return null;
+            }
+            try {
+                playerId = uuid == null ? null : UUID.fromString(uuid);
+            } catch (IllegalArgumentException e) {
+                // Keep the ban on the name alone
+            }
+            key = playerId == null ? name.toLowerCase(Locale.ROOT) : playerId.toString();
+            playerName = name;
+            type = endTime > 0 ? PunishmentType.TEMPBAN : PunishmentType.BAN;
+        }
+        String actionId = UUID.nameUUIDFromBytes(("import:" + source.name + ":" + key + ":" + startTime)
+                .getBytes(StandardCharsets.UTF_8)).toString();
+        return new Punishment(0, actionId, playerName, playerId, playerIp, type, reason, null, operator,
+                startTime, endTime);
+    }
+
+    /**
+     * Returns how many entries of {@code file} an earlier run committed, or 0 if there was none or
+     * the file has changed since.
+     */
+    private static long readCheckpoint(File checkpoint, File file) throws IOException {
+        if (!checkpoint.isFile()) {
+            return 0;
+        }
+        String[] parts = new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+        try {
+            if (parts.length == 3 && Long.parseLong(parts[0]) == file.length()
+                    && Long.parseLong(parts[1]) == file.lastModified()) {
+                return Long.parseLong(parts[2]);
+            }
+        } catch (NumberFormatException e) {
+            // Unreadable; start over, the action IDs keep it from duplicating anything
+        }
+        return 0;
+    }
+
+    private static void writeCheckpoint(File checkpoint, File file, long entries) throws IOException {
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        Files.write(temp.toPath(), (file.length() + " " + file.lastModified() + " " + entries)
+                .getBytes(StandardCharsets.UTF_8));
+        Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Counts the bytes read, for the progress percentage.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.watchdogpaper;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follows the punishments, reports and moderation_changes tables by ID so that servers
+ * sharing a database pick up each other's bans, mutes, reports and unbans.
+ * <p>
+ * Each table is read in ID order from a cursor, in batches, on the caller's (async) thread
+ * and the rows are handed to the {@link Handler} on the main thread. Auto-increment IDs can
+ * become visible out of order when two servers commit at once, so IDs skipped over are
+ * re-read for a few seconds before they are given up on (most are just unused IDs).
+ * Rows written by this server are recognised by their action ID and not handed back.
+ */
+final class ChangeFeed {
+
+    interface Handler {
+        void punishment(HistoryEntry entry);
+
+        void report(Report report);
+
+        void change(Storage.Change change);
+    }
+
+    private static final long GAP_TIMEOUT = 10000L;
+    private static final int MAX_GAPS = 1000;
+    private static final int LOCAL_ACTIONS = 4096;
+
+    /**
+     * Read position in one table: every ID up to {@code high} has been handed over, except the open gaps.
+     */
+    private static final class Cursor {
+        private int high;
+        private final TreeMap<Integer, Long> gaps = new TreeMap<>(); // missing ID -> first noticed
+
+        void reset(int high) {
+            this.high = high;
+            gaps.clear();
+        }
+
+        /**
+         * The ID to read after: just before the oldest gap still worth waiting for.
+         */
+        int start(long now) {
+            Iterator<Long> it = gaps.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next() > GAP_TIMEOUT) {
+                    it.remove();
+                }
+            }
+            return gaps.isEmpty() ? high : gaps.firstKey() - 1;
+        }
+
+        /**
+         * Returns true if the row has not been handed over yet.
+         */
+        boolean accept(int id, long now) {
+            if (id <= high) {
+                return gaps.remove(id) != null;
+            }
+            for (int missing = Math.max(high + 1, id - MAX_GAPS); missing < id; missing++) {
+                gaps.put(missing, now);
+            }
+            while (gaps.size() > MAX_GAPS) {
+                gaps.pollFirstEntry();
+            }
+            high = id;
+            return true;
+        }
+    }
+
+    private final Storage storage;
+    private final Logger logger;
+    private final Executor mainThread;
+    private final Handler handler;
+    private final int batchSize;
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final Cursor punishments = new Cursor();
+    private final Cursor reports = new Cursor();
+    private final Cursor changes = new Cursor();
+    private final Map<String, Boolean> localActions = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > LOCAL_ACTIONS;
+        }
+    };
+    private volatile boolean positioned;
+
+    ChangeFeed(Storage storage, Logger logger, Executor mainThread, Handler handler, int batchSize) {
+        this.storage = storage;
+        this.logger = logger;
+        this.mainThread = mainThread;
+        this.handler = handler;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Starts following from the current end of each table. Call before loading state from storage,
+     * so nothing written in between is missed.
+     */
+    synchronized void reset() throws SQLException {
+        Storage.FeedPosition head = storage.getFeedHead();
+        punishments.reset(head.getPunishmentId());
+        reports.reset(head.getReportId());
+        changes.reset(head.getChangeId());
+        positioned = true;
+    }
+
+    /**
+     * Remembers an action taken on this server, so its row is not applied a second time. Main thread only.
+     */
+    void markLocal(String actionId) {
+        localActions.put(actionId, Boolean.TRUE);
+    }
+
+    /**
+     * Reads everything new and hands it to the main thread. Returns at once if another poll is running.
+     */
+    void poll() {
+        if (!positioned || !polling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                pollPunishments();
+                pollReports();
+                pollChanges();
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to poll the change feed", e);
+        } finally {
+            polling.set(false);
+        }
+    }
+
+    private void pollPunishments() throws SQLException {
+        int after = punishments.start(System.currentTimeMillis());
+        List<HistoryEntry> batch;
+        do {
+            batch = storage.getPunishmentsAfter(after, batchSize);
+            long now = System.currentTimeMillis();
+            for (final HistoryEntry entry : batch) {
+                after = entry.getPunishment().getId();
+                if (punishments.accept(after, now)) {
+                    mainThread.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!isLocal(entry.getPunishment().getActionId())) {
+                                handler.punishment(entry);
+                            }
+                        }
+                    });
+                }
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private void pollReports() throws SQLException {
+        int after = reports.start(System.currentTimeMillis());
+        List<Report> batch;
+        do {
+            batch = storage.getPendingReportsAfter(after, batchSize);
+            long now = System.currentTimeMillis();
+            for (final Report report : batch) {
+                after = report.getId();
+                if (reports.accept(after, now)) {
+                    mainThread.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!isLocal(report.getActionId())) {
+                                handler.report(report);
+                            }
+                        }
+                    });
+                }
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private void pollChanges() throws SQLException {
+        int after = changes.start(System.currentTimeMillis());
+        List<Storage.Change> batch;
+        do {
+            batch = storage.getChangesAfter(after, batchSize);
+            long now = System.currentTimeMillis();
+            for (final Storage.Change change : batch) {
+                after = change.getId();
+                // This server's own unbans are applied again too; they only lift what started before them
+                if (changes.accept(after, now)) {
+                    mainThread.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            handler.change(change);
+                        }
+                    });
+                }
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private boolean isLocal(String actionId) {
+        return actionId != null && localActions.containsKey(actionId);
+    }
+}
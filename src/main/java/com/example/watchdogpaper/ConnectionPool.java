@@ -0,0 +1,300 @@
+package com.example.watchdogpaper;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Small bounded JDBC connection pool.
+ * <p>
+ * Connections are validated on borrow, evicted after sitting idle too long and
+ * retired once they reach their maximum lifetime, so a MySQL {@code wait_timeout}
+ * only ever costs one reconnect instead of breaking every caller. Closing the
+ * connection handed out by {@link #getConnection()} returns it to the pool.
+ */
+final class ConnectionPool {
+
+    static final class Settings {
+        int maximumPoolSize = 10;
+        int minimumIdle = 2;
+        long connectionTimeout = 5000L;
+        long idleTimeout = 600000L;
+        long maxLifetime = 1800000L;
+        int validationTimeout = 2; // seconds, as taken by Connection.isValid
+        String testQuery; // used instead of isValid for drivers that lack it
+        List<String> initStatements = Collections.emptyList(); // run once on every new physical connection
+        int busyTimeout; // seconds an SQLite connection waits for a lock held by another, 0 for the driver's default
+    }
+
+    private final String url;
+    private final Properties properties;
+    private final Settings settings;
+    private final Logger logger;
+    private final Metrics metrics;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    ConnectionPool(String url, Properties properties, Settings settings, Logger logger, Metrics metrics) {
+        this.url = url;
+        this.properties = properties;
+        this.settings = settings;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.permits = new Semaphore(settings.maximumPoolSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Watchdog-Pool-Housekeeper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.housekeeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                housekeep();
+            }
+        }, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting at most the configured connection timeout.
+     */
+    Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.connectionTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + settings.connectionTimeout + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled, now) && isValid(pooled.physical)) {
+                    metrics.record(Metrics.Timer.DB_POOL_WAIT, start);
+                    return pooled.lease(this);
+                }
+                discard(pooled);
+            }
+            PooledConnection created = newConnection();
+            metrics.record(Metrics.Timer.DB_POOL_WAIT, start);
+            return created.lease(this);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    int getActiveCount() {
+        return settings.maximumPoolSize - permits.availablePermits();
+    }
+
+    void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection newConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, properties);
+        try {
+            if (settings.busyTimeout > 0) {
+                // sqlite-jdbc 3.7 has no setting for it, but turns a query timeout into the connection's busy timeout
+                Statement stmt = physical.createStatement();
+                try {
+                    stmt.setQueryTimeout(settings.busyTimeout);
+                } finally {
+                    stmt.close();
+                }
+            }
+            for (String sql : settings.initStatements) {
+                execute(physical, sql);
+            }
+        } catch (SQLException e) {
+            physical.close();
+            throw e;
+        }
+        return new PooledConnection(physical);
+    }
+
+    private boolean isValid(Connection physical) {
+        if (settings.testQuery == null) {
+            try {
+                return physical.isValid(settings.validationTimeout);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+        try {
+            execute(physical, settings.testQuery);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void execute(Connection physical, String sql) throws SQLException {
+        Statement stmt = physical.createStatement();
+        try {
+            stmt.execute(sql);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled, long now) {
+        return now - pooled.createdAt < settings.maxLifetime
+                && now - pooled.lastReturned < settings.idleTimeout;
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.physical.isClosed()
+                    || System.currentTimeMillis() - pooled.createdAt >= settings.maxLifetime) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastReturned = System.currentTimeMillis();
+            // Most recently used first, so surplus connections age out at the tail
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Error closing pooled connection", e);
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (!isUsable(pooled, now) && idle.removeLastOccurrence(pooled)) {
+                discard(pooled);
+            }
+        }
+
+        int missing = settings.minimumIdle - idle.size();
+        for (int i = 0; i < missing && !closed; i++) {
+            if (getActiveCount() + idle.size() >= settings.maximumPoolSize) {
+                break;
+            }
+            try {
+                PooledConnection pooled = newConnection();
+                pooled.lastReturned = now;
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to refill database connection pool", e);
+                break;
+            }
+        }
+    }
+
+    private static final class PooledConnection {
+        final Connection physical;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReturned = createdAt;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease(ConnectionPool pool) {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(pool, this));
+        }
+    }
+
+    /**
+     * The handle given to callers. Its close() hands the physical connection back exactly once.
+     */
+    private static final class Lease implements InvocationHandler {
+        private final ConnectionPool pool;
+        private final PooledConnection pooled;
+        private final long leasedAt = System.nanoTime();
+        private boolean returned;
+
+        Lease(ConnectionPool pool, PooledConnection pooled) {
+            this.pool = pool;
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!returned) {
+                    returned = true;
+                    pool.metrics.record(Metrics.Timer.DB_OPERATION, leasedAt);
+                    pool.release(pooled);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return returned || pooled.physical.isClosed();
+            }
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
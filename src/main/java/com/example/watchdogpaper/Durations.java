@@ -0,0 +1,102 @@
+package com.example.watchdogpaper;
+
+/**
+ * Parsing and formatting of punishment durations, such as {@code 1d12h} in a command.
+ */
+final class Durations {
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long WEEK = 7 * DAY;
+    private static final long MONTH = 30 * DAY;
+    private static final long YEAR = 365 * DAY;
+
+    private Durations() {
+    }
+
+    static String format(long durationMs) {
+        long seconds = durationMs / 1000;
+        long minutes = seconds / 60;
+        long hours = minutes / 60;
+        long days = hours / 24;
+
+        if (days > 0) {
+            return String.format("%d day(s) %d hour(s) %d minute(s) and %d second(s)",
+                    days, hours % 24, minutes % 60, seconds % 60);
+        } else if (hours > 0) {
+            return String.format("%d hour(s) %d minute(s) and %d second(s)",
+                    hours, minutes % 60, seconds % 60);
+        } else if (minutes > 0) {
+            return String.format("%d minute(s) and %d second(s)", minutes, seconds % 60);
+        } else {
+            return String.format("%d second(s)", seconds);
+        }
+    }
+
+    /**
+     * Returns the duration in ms, or -1 if the text is not one.
+     * <p>
+     * The text is one or more numbers each followed by a unit: {@code s}, {@code m}, {@code h},
+     * {@code d}, {@code w}, {@code mo} (30 days) or {@code y} (365 days), as in {@code 1d12h}.
+     * Read in a single pass without splitting or regular expressions; a missing or unknown
+     * unit, or a total that overflows, makes it invalid.
+     */
+    static long parse(String durationStr) {
+        int length = durationStr.length();
+        if (length == 0) {
+            return -1;
+        }
+        long total = 0;
+        int i = 0;
+        while (i < length) {
+            long value = 0;
+            int digits = i;
+            char c;
+            while (i < length && (c = durationStr.charAt(i)) >= '0' && c <= '9') {
+                if (value > (Long.MAX_VALUE - 9) / 10) {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+                i++;
+            }
+            if (i == digits || i == length) {
+                return -1;
+            }
+            long unit;
+            switch (durationStr.charAt(i++)) {
+                case 's':
+                    unit = SECOND;
+                    break;
+                case 'm':
+                    if (i < length && durationStr.charAt(i) == 'o') {
+                        i++;
+                        unit = MONTH;
+                    } else {
+                        unit = MINUTE;
+                    }
+                    break;
+                case 'h':
+                    unit = HOUR;
+                    break;
+                case 'd':
+                    unit = DAY;
+                    break;
+                case 'w':
+                    unit = WEEK;
+                    break;
+                case 'y':
+                    unit = YEAR;
+                    break;
+                default:
+                    return -1;
+            }
+            if (value > (Long.MAX_VALUE - total) / unit) {
+                return -1;
+            }
+            total += value * unit;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.watchdogpaper;
+
+/**
+ * A punishment as listed by /history, with its current active flag.
+ */
+final class HistoryEntry {
+
+    private final Punishment punishment;
+    private final boolean active;
+
+    HistoryEntry(Punishment punishment, boolean active) {
+        this.punishment = punishment;
+        this.active = active;
+    }
+
+    Punishment getPunishment() {
+        return punishment;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+}
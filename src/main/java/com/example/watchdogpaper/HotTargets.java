@@ -0,0 +1,167 @@
+package com.example.watchdogpaper;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Approximate report counts per reported player over a sliding window, in constant memory.
+ * <p>
+ * The window is split into {@code BUCKETS} sub-windows, each a count-min sketch; a player's
+ * heat is the smallest, over the sketch rows, of that row's counts summed over the live
+ * sub-windows, so it can overestimate but never underestimate. A fixed number of candidate
+ * names is kept alongside for the top-K list: a newly reported name takes the place of the
+ * coldest candidate once it is hotter. Each player is escalated once per crossing of the
+ * threshold and re-armed after cooling below it. Main thread only.
+ */
+final class HotTargets {
+
+    private static final int BUCKETS = 6;
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1024; // power of two
+    private static final int CANDIDATES = 32;
+
+    private final long bucketMillis;
+    private final int threshold;
+    private final int[][][] counts = new int[BUCKETS][DEPTH][WIDTH];
+    private final long[] bucketIndex = new long[BUCKETS];
+    private final Map<String, String> candidates = new HashMap<>(); // lowercased -> as reported
+    private final Set<String> escalated = new HashSet<>();
+
+    HotTargets(long windowMillis, int threshold) {
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+        this.threshold = Math.max(1, threshold);
+        Arrays.fill(bucketIndex, -1);
+    }
+
+    /**
+     * Counts a report against the player and returns their heat including it.
+     */
+    int record(String playerName, long now) {
+        String key = playerName.toLowerCase(Locale.ROOT);
+        int[][] bucket = bucket(now);
+        for (int row = 0; row < DEPTH; row++) {
+            bucket[row][slot(key, row)]++;
+        }
+        int heat = estimate(key, now);
+        if (!candidates.containsKey(key)) {
+            admit(key, playerName, heat, now);
+        } else {
+            candidates.put(key, playerName);
+        }
+        return heat;
+    }
+
+    /**
+     * Returns true the first time the player's heat reaches the threshold, until it drops below again.
+     */
+    boolean shouldEscalate(String playerName, int heat) {
+        String key = playerName.toLowerCase(Locale.ROOT);
+        if (heat < threshold) {
+            escalated.remove(key);
+            return false;
+        }
+        return candidates.containsKey(key) && escalated.add(key);
+    }
+
+    int getHeat(String playerName, long now) {
+        return estimate(playerName.toLowerCase(Locale.ROOT), now);
+    }
+
+    /**
+     * Returns up to {@code limit} of the most reported players in the window with their heat, hottest first.
+     */
+    Map<String, Integer> getTop(int limit, long now) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(candidates.size());
+        for (Map.Entry<String, String> candidate : candidates.entrySet()) {
+            int heat = estimate(candidate.getKey(), now);
+            if (heat > 0) {
+                entries.add(new AbstractMap.SimpleEntry<>(candidate.getValue(), heat));
+            }
+        }
+        Collections.sort(entries, (a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        Map<String, Integer> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            if (top.size() >= limit) {
+                break;
+            }
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    int getThreshold() {
+        return threshold;
+    }
+
+    long getWindowMillis() {
+        return bucketMillis * BUCKETS;
+    }
+
+    private void admit(String key, String playerName, int heat, long now) {
+        if (candidates.size() >= CANDIDATES) {
+            String coldest = null;
+            int coldestHeat = Integer.MAX_VALUE;
+            for (String candidate : candidates.keySet()) {
+                int candidateHeat = estimate(candidate, now);
+                if (candidateHeat < coldestHeat) {
+                    coldest = candidate;
+                    coldestHeat = candidateHeat;
+                }
+            }
+            if (coldestHeat >= heat) {
+                return;
+            }
+            candidates.remove(coldest);
+            escalated.remove(coldest);
+        }
+        candidates.put(key, playerName);
+    }
+
+    /**
+     * Returns the sketch for the sub-window containing {@code now}, clearing it if it last held an older one.
+     */
+    private int[][] bucket(long now) {
+        long index = now / bucketMillis;
+        int slot = (int) (index % BUCKETS);
+        if (bucketIndex[slot] != index) {
+            bucketIndex[slot] = index;
+            for (int[] row : counts[slot]) {
+                Arrays.fill(row, 0);
+            }
+        }
+        return counts[slot];
+    }
+
+    private int estimate(String key, long now) {
+        long current = now / bucketMillis;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int column = slot(key, row);
+            int sum = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                if (bucketIndex[b] >= 0 && current - bucketIndex[b] < BUCKETS) {
+                    sum += counts[b][row][column];
+                }
+            }
+            min = Math.min(min, sum);
+        }
+        return min;
+    }
+
+    private static int slot(String key, int row) {
+        int h = key.hashCode() * 0x9E3779B9 + (row + 1) * 0x7F4A7C15;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & (WIDTH - 1);
+    }
+}
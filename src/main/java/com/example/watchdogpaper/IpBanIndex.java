@@ -0,0 +1,202 @@
+package com.example.watchdogpaper;
+
+import java.net.InetAddress;
+import java.util.Collection;
+
+/**
+ * In-memory index of active IPBAN/TEMPIPBAN rows, matched against connecting addresses.
+ * <p>
+ * A path-compressed binary trie (PATRICIA) over 128-bit prefixes: every node stores its whole
+ * prefix and nodes with a single child are folded away, so a lookup visits only the ranges
+ * that contain the address plus the branch points between them - about log2(n) nodes for n
+ * unrelated ranges, however long the prefixes are - and each visit is two 64-bit compares.
+ * Thread-safe; queried from the async pre-login thread.
+ */
+final class IpBanIndex {
+
+    private static final class Node {
+        final IpRange prefix;
+        Punishment ban; // null for a branch point that is not itself banned
+        Node zero;
+        Node one;
+
+        Node(IpRange prefix, Punishment ban) {
+            this.prefix = prefix;
+            this.ban = ban;
+        }
+
+        Node child(int bit) {
+            return bit == 0 ? zero : one;
+        }
+
+        void setChild(int bit, Node node) {
+            if (bit == 0) {
+                zero = node;
+            } else {
+                one = node;
+            }
+        }
+    }
+
+    private final Node root = new Node(IpRange.parse("::/0"), null);
+    private int size;
+
+    synchronized void load(Collection<Punishment> activeBans) {
+        root.ban = null;
+        root.zero = null;
+        root.one = null;
+        size = 0;
+        for (Punishment ban : activeBans) {
+            put(ban);
+        }
+    }
+
+    /**
+     * Adds the ban under its range, replacing any ban on exactly that range unless that one ends
+     * later. Bans whose address does not parse are ignored.
+     */
+    synchronized void put(Punishment ban) {
+        IpRange range = ban.getPlayerIp() == null ? null : IpRange.parse(ban.getPlayerIp());
+        if (range == null) {
+            return;
+        }
+        Node node = root;
+        while (true) {
+            if (node.prefix.getLength() == range.getLength()) {
+                if (node.ban == null) {
+                    size++;
+                } else if (node.ban.endsAfter(ban)) {
+                    return;
+                }
+                node.ban = ban;
+                return;
+            }
+            int bit = range.bit(node.prefix.getLength());
+            Node child = node.child(bit);
+            if (child == null) {
+                node.setChild(bit, new Node(range, ban));
+                size++;
+                return;
+            }
+            int common = range.commonPrefix(child.prefix);
+            if (common == child.prefix.getLength()) {
+                node = child;
+                continue;
+            }
+            Node added = new Node(range, ban);
+            size++;
+            if (common == range.getLength()) {
+                // The new range contains the child's
+                added.setChild(child.prefix.bit(common), child);
+                node.setChild(bit, added);
+            } else {
+                Node fork = new Node(range.truncate(common), null);
+                fork.setChild(child.prefix.bit(common), child);
+                fork.setChild(range.bit(common), added);
+                node.setChild(bit, fork);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Returns the ban on exactly this range, or null.
+     */
+    synchronized Punishment get(IpRange range) {
+        Node node = find(range);
+        return node == null ? null : node.ban;
+    }
+
+    /**
+     * Removes the ban on exactly this range and returns it, or null if there was none.
+     */
+    synchronized Punishment remove(IpRange range) {
+        return unlink(range, null);
+    }
+
+    /**
+     * Removes the entry only if it is still this ban, so a newer ban on the range survives.
+     */
+    synchronized boolean remove(Punishment ban) {
+        IpRange range = ban.getPlayerIp() == null ? null : IpRange.parse(ban.getPlayerIp());
+        return range != null && unlink(range, ban) != null;
+    }
+
+    /**
+     * Returns the active ban on the narrowest range containing the address, or null.
+     * Expired temp bans are dropped on read.
+     */
+    synchronized Punishment match(InetAddress address) {
+        IpRange key = IpRange.of(address);
+        long now = System.currentTimeMillis();
+        while (true) {
+            Punishment found = null;
+            Node node = root;
+            while (node != null && key.commonPrefix(node.prefix) == node.prefix.getLength()) {
+                if (node.ban != null) {
+                    found = node.ban;
+                }
+                if (node.prefix.getLength() == key.getLength()) {
+                    break;
+                }
+                node = node.child(key.bit(node.prefix.getLength()));
+            }
+            if (found == null || !found.isExpired(now)) {
+                return found;
+            }
+            // A wider range may still cover the address
+            remove(found);
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private Node find(IpRange range) {
+        Node node = root;
+        while (node != null && range.commonPrefix(node.prefix) == node.prefix.getLength()) {
+            if (node.prefix.getLength() == range.getLength()) {
+                return node;
+            }
+            node = node.child(range.bit(node.prefix.getLength()));
+        }
+        return null;
+    }
+
+    /**
+     * Clears the range's ban (only if it is {@code expected}, when given) and folds away the
+     * nodes that no longer hold a ban or a fork. Returns the removed ban.
+     */
+    private Punishment unlink(IpRange range, Punishment expected) {
+        Node grandparent = null;
+        Node parent = null;
+        Node node = root;
+        while (node != null && node.prefix.getLength() < range.getLength()
+                && range.commonPrefix(node.prefix) == node.prefix.getLength()) {
+            grandparent = parent;
+            parent = node;
+            node = node.child(range.bit(node.prefix.getLength()));
+        }
+        if (node == null || !node.prefix.equals(range) || node.ban == null || (expected != null && node.ban != expected)) {
+            return null;
+        }
+        Punishment removed = node.ban;
+        node.ban = null;
+        size--;
+        if (node == root) {
+            return removed;
+        }
+        if (node.zero != null && node.one != null) {
+            return removed; // still a fork
+        }
+        Node only = node.zero != null ? node.zero : node.one;
+        parent.setChild(range.bit(parent.prefix.getLength()), only);
+        if (only == null && parent != root && parent.ban == null) {
+            // The parent was a fork of two; it now has one child left and can go as well
+            Node sibling = parent.zero != null ? parent.zero : parent.one;
+            grandparent.setChild(parent.prefix.bit(grandparent.prefix.getLength()), sibling);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.watchdogpaper;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * A single IPv4/IPv6 address or CIDR range as a 128-bit prefix.
+ * <p>
+ * IPv4 is mapped into {@code ::ffff:0:0/96}, so one trie holds both families and an IPv4
+ * client that shows up as an IPv4-mapped IPv6 address still matches its IPv4 bans. Host bits
+ * past the prefix are cleared, so {@code 10.1.2.3/8} and {@code 10.0.0.0/8} are the same range.
+ */
+final class IpRange {
+
+    private static final long V4_MAPPED = 0xFFFFL << 32;
+
+    private final long high;
+    private final long low;
+    private final int length; // prefix length in bits, 0-128
+
+    private IpRange(long high, long low, int length) {
+        this.high = length == 0 ? 0 : length >= 64 ? high : high & (-1L << (64 - length));
+        this.low = length <= 64 ? 0 : length == 128 ? low : low & (-1L << (128 - length));
+        this.length = length;
+    }
+
+    /**
+     * Parses {@code a.b.c.d}, {@code a.b.c.d/n}, an IPv6 literal or {@code ipv6/n}. Returns null
+     * if the text is not one. Never resolves host names.
+     */
+    static IpRange parse(String text) {
+        int slash = text.indexOf('/');
+        String address = slash < 0 ? text : text.substring(0, slash);
+        byte[] bytes = address.indexOf(':') >= 0 ? parseIpv6(address) : parseIpv4(address);
+        if (bytes == null) {
+            return null;
+        }
+        int bits = bytes.length * 8;
+        int length = bits;
+        if (slash >= 0) {
+            try {
+                length = Integer.parseInt(text.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (length < 0 || length > bits) {
+                return null;
+            }
+        }
+        return of(bytes, length);
+    }
+
+    /**
+     * The single address, as a /32 or /128.
+     */
+    static IpRange of(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        return of(bytes, bytes.length * 8);
+    }
+
+    private static IpRange of(byte[] bytes, int length) {
+        if (bytes.length == 4) {
+            long v4 = ((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16) | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL);
+            return new IpRange(0, V4_MAPPED | v4, 96 + length);
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (bytes[i] & 0xFF);
+            low = (low << 8) | (bytes[i + 8] & 0xFF);
+        }
+        return new IpRange(high, low, length);
+    }
+
+    private static byte[] parseIpv4(String address) {
+        String[] parts = address.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3) {
+                return null;
+            }
+            int value = 0;
+            for (int j = 0; j < part.length(); j++) {
+                char c = part.charAt(j);
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (value > 255) {
+                return null;
+            }
+            bytes[i] = (byte) value;
+        }
+        return bytes;
+    }
+
+    private static byte[] parseIpv6(String address) {
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                return null;
+            }
+        }
+        try {
+            // A literal containing ':' is parsed, never looked up
+            byte[] bytes = InetAddress.getByName(address).getAddress();
+            if (bytes.length == 4) {
+                // ::ffff:a.b.c.d comes back as IPv4; keep it IPv6 so a prefix length counts all 128 bits
+                byte[] mapped = new byte[16];
+                mapped[10] = (byte) 0xFF;
+                mapped[11] = (byte) 0xFF;
+                System.arraycopy(bytes, 0, mapped, 12, 4);
+                return mapped;
+            }
+            return bytes;
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    long getHigh() {
+        return high;
+    }
+
+    long getLow() {
+        return low;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Value (0 or 1) of the given bit, counting from the most significant.
+     */
+    int bit(int index) {
+        return (int) (index < 64 ? high >>> (63 - index) : low >>> (127 - index)) & 1;
+    }
+
+    /**
+     * Number of leading bits this range shares with {@code other}, up to the shorter prefix.
+     */
+    int commonPrefix(IpRange other) {
+        long diff = high ^ other.high;
+        int common = diff != 0 ? Long.numberOfLeadingZeros(diff) : 64 + Long.numberOfLeadingZeros(low ^ other.low);
+        return Math.min(common, Math.min(length, other.length));
+    }
+
+    /**
+     * The first {@code length} bits of this range, as a (wider) range.
+     */
+    IpRange truncate(int length) {
+        return new IpRange(high, low, length);
+    }
+
+    boolean contains(InetAddress address) {
+        return commonPrefix(of(address)) == length;
+    }
+
+    boolean isIpv4() {
+        return length >= 96 && high == 0 && (low >>> 32) == 0xFFFFL;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IpRange)) {
+            return false;
+        }
+        IpRange other = (IpRange) o;
+        return high == other.high && low == other.low && length == other.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32) ^ low ^ (low >>> 32)) * 31 + length;
+    }
+
+    /**
+     * Canonical text: the address alone for a single host, with {@code /n} otherwise.
+     */
+    @Override
+    public String toString() {
+        if (isIpv4()) {
+            String address = ((low >>> 24) & 0xFF) + "." + ((low >>> 16) & 0xFF) + "." + ((low >>> 8) & 0xFF) + "." + (low & 0xFF);
+            return length == 128 ? address : address + "/" + (length - 96);
+        }
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
+        }
+        String address;
+        try {
+            address = InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e); // only thrown for a wrong array length
+        }
+        if (address.indexOf(':') < 0) {
+            // getByAddress turns ::ffff:a.b.c.d back into an Inet4Address for short IPv4-mapped prefixes
+            address = "::ffff:" + address;
+        }
+        return length == 128 ? address : address + "/" + length;
+    }
+}
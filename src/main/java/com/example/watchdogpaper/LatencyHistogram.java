@@ -0,0 +1,124 @@
+package com.example.watchdogpaper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram over log-linear nanosecond buckets.
+ * <p>
+ * Values below 8ns get a bucket each; above that every power of two is split into 8 equal
+ * buckets, so a bucket is at most 12.5% wide relative to its values and 488 buckets cover
+ * the whole {@code long} range. Recording is a bucket index computed from the leading zero
+ * count plus three atomic updates: no locks and no allocation, safe on the chat threads.
+ * Reads take a {@link Snapshot}, which may be a few records behind concurrent writers.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    /**
+     * A copy of the histogram at one point in time.
+     */
+    static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        /**
+         * Total recorded time in ns.
+         */
+        long getSum() {
+            return sum;
+        }
+
+        long getMax() {
+            return max;
+        }
+
+        long getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * Returns the value below which the given fraction of records fall, as the upper bound
+         * of its bucket (never more than the largest value recorded), or 0 if there are none.
+         */
+        long getPercentile(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(max, upperBound(i));
+                }
+            }
+            return max;
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency in ns. Negative values (a clock step) count as 0.
+     */
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Lost to a concurrent larger or equal value; re-check
+        }
+    }
+
+    Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sum.get(), max.get());
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * The largest value that falls in the bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long lower = (long) (SUB_COUNT + bucket % SUB_COUNT) << (exponent - SUB_BITS);
+        long width = 1L << (exponent - SUB_BITS);
+        return lower + width - 1;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.watchdogpaper;
+
+import java.util.Locale;
+
+/**
+ * Every player-facing message that can be changed in messages.yml, with its built-in text
+ * and the placeholders it is rendered with, in argument order.
+ */
+enum Message {
+    BAN_SCREEN_PERMANENT("ban-screen.permanent",
+            "&cYou are permanently banned from this server!\n&7\n&7Reason: &f{reason}\n"
+                    + "&7Find out more: &b&nhttps://www.farepixel.fun/appeal\n&7\n&7Ban ID: &f{id}\n"
+                    + "&7Sharing your Ban ID may affect the processing of your appeal",
+            Placeholder.REASON, Placeholder.ID),
+    BAN_SCREEN_TEMPORARY("ban-screen.temporary",
+            "&cYou are temporarily banned for &f{duration} &cfrom this server!\n&7\n&7Reason: &f{reason}\n"
+                    + "&7Find out more: &b&nhttps://www.farepixel.fun/appeal\n&7\n&7Ban ID: &f{id}\n"
+                    + "&7Sharing your Ban ID may affect the processing of your appeal",
+            Placeholder.DURATION, Placeholder.REASON, Placeholder.ID),
+    BAN_SCREEN_ALT("ban-screen.alt",
+            "&cThis account is linked to a banned account!\n&7\n&7Reason: &f{reason}\n"
+                    + "&7Find out more: &b&nhttps://www.farepixel.fun/appeal\n&7\n&7Ban ID: &f{id}\n"
+                    + "&7Sharing your Ban ID may affect the processing of your appeal",
+            Placeholder.REASON, Placeholder.ID),
+    MUTE_NOTICE_PERMANENT("mute-notice.permanent",
+            "&cYou are permanently muted from this server!\n&7\n&7Reason: &f{reason}\n"
+                    + "&7Find out more: &b&nhttps://www.farepixel.fun/appeal",
+            Placeholder.REASON),
+    MUTE_NOTICE_TEMPORARY("mute-notice.temporary",
+            "&cYou are temporarily muted for &f{duration} &cfrom this server!\n&7\n&7Reason: &f{reason}\n"
+                    + "&7Find out more: &b&nhttps://www.farepixel.fun/appeal",
+            Placeholder.DURATION, Placeholder.REASON),
+    MUTE_EXPIRED("mute-notice.expired",
+            "&aYour mute has expired. You can chat again!"),
+    WARN_NOTICE("warn-notice",
+            "&cYou received a warning from this server!\n&7\n&7Reason: &f{reason}\n"
+                    + "&7Find out more: &b&nhttps://www.farepixel.fun/appeal",
+            Placeholder.REASON),
+    KICK_SCREEN("kick-screen",
+            "&cYou got kicked from this server!\n&7\n&7Reason: &l{reason}\n&7",
+            Placeholder.REASON),
+
+    STAFF_BAN("staff.ban",
+            "&c&l&n{player} &cgot banned by &l{operator} &cFor {reason} permanently",
+            Placeholder.PLAYER, Placeholder.OPERATOR, Placeholder.REASON),
+    STAFF_TEMPBAN("staff.tempban",
+            "&c&l&n{player} &cgot banned by &l{operator} &cFor {reason} For &f{duration}",
+            Placeholder.PLAYER, Placeholder.OPERATOR, Placeholder.REASON, Placeholder.DURATION),
+    STAFF_IPBAN("staff.ipban",
+            "&c&l&n{player} &cgot IP-banned by &l{operator} &cFor {reason} permanently",
+            Placeholder.PLAYER, Placeholder.OPERATOR, Placeholder.REASON),
+    STAFF_TEMPIPBAN("staff.tempipban",
+            "&c&l&n{player} &cgot IP-banned by &l{operator} &cFor {reason} For &f{duration}",
+            Placeholder.PLAYER, Placeholder.OPERATOR, Placeholder.REASON, Placeholder.DURATION),
+    STAFF_MUTE("staff.mute",
+            "&c&l&n{player} &cgot muted permanently by &l{operator} &cFor {reason}",
+            Placeholder.PLAYER, Placeholder.OPERATOR, Placeholder.REASON),
+    STAFF_TEMPMUTE("staff.tempmute",
+            "&c&l&n{player} &cgot muted by &l{operator} &cFor {reason} For &f{duration}",
+            Placeholder.PLAYER, Placeholder.OPERATOR, Placeholder.REASON, Placeholder.DURATION),
+    STAFF_WARN("staff.warn",
+            "&c&l&n{player} &cgot warned by &l{operator} &cFor the reason {reason}",
+            Placeholder.PLAYER, Placeholder.OPERATOR, Placeholder.REASON),
+    STAFF_UNBAN("staff.unban",
+            "&e&o{operator} &7unbanned &c&o{player}",
+            Placeholder.PLAYER, Placeholder.OPERATOR),
+    STAFF_UNMUTE("staff.unmute",
+            "&e&o{operator} &7unmuted &c&o{player}",
+            Placeholder.PLAYER, Placeholder.OPERATOR),
+    STAFF_REPORT("staff.report",
+            "&f[WATCHDOG] &e{reporter} &ahas reported &e{player} &afor &e[{reason}]",
+            Placeholder.REPORTER, Placeholder.PLAYER, Placeholder.REASON),
+    STAFF_ESCALATION("staff.escalation",
+            "&4[WATCHDOG] &c&l{player} &chas been reported &l{count} &ctimes in the last {duration}! &7/watchdoglist t:{player}",
+            Placeholder.PLAYER, Placeholder.COUNT, Placeholder.DURATION),
+
+    REPORT_SUBMITTED("report.submitted",
+            "&f[WATCHDOG] &aReport submitted! Make sure to open a report at &b&nhttps://farepixel.net/report&r\n"
+                    + "&f[WATCHDOG] &c&oWarning! Abuse of this command is punishable."),
+    REPORT_ADDRESSED("report.addressed",
+            "&f[WATCHDOG] &aYour report against {player} has been addressed! Thanks for your help!",
+            Placeholder.PLAYER),
+
+    ANNOUNCEMENT("announcement",
+            "&f\n&4[WATCHDOG ANNOUNCEMENT]\n&fWatchdog has banned &c&l{automated} &fplayers in the last 7 days.\n"
+                    + "&fStaff have banned an additional &c&l{staff} &fin the last 7 days.\n"
+                    + "&fBlacklisted modifications are a bannable offense!\n&f",
+            Placeholder.AUTOMATED, Placeholder.STAFF);
+
+    enum Placeholder {
+        PLAYER, OPERATOR, REASON, DURATION, ID, REPORTER, COUNT, AUTOMATED, STAFF;
+
+        /**
+         * The name written between braces in a template.
+         */
+        String token() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final String path;
+    private final String defaultText;
+    private final Placeholder[] placeholders;
+
+    Message(String path, String defaultText, Placeholder... placeholders) {
+        this.path = path;
+        this.defaultText = defaultText;
+        this.placeholders = placeholders;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getDefaultText() {
+        return defaultText;
+    }
+
+    Placeholder[] getPlaceholders() {
+        return placeholders.clone();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message parsed once into literal text and placeholder slots.
+ * <p>
+ * Color codes in the literal parts are translated when the template is compiled, so rendering
+ * is a single pass that appends literals and argument values into one presized builder.
+ * Argument values are inserted as given and are not color-translated. Immutable.
+ */
+final class MessageTemplate {
+
+    private final String[] literals; // literals[i] comes before slot i; the last one trails
+    private final int[] slots;       // index into the render arguments
+    private final int literalLength;
+
+    private MessageTemplate(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parses {@code text}. A {@code {token}} naming one of {@code placeholders} becomes a slot
+     * filled by the argument at the same position; anything else in braces is kept as text
+     * and reported to {@code unknown}, if given.
+     */
+    static MessageTemplate compile(String text, Message.Placeholder[] placeholders, List<String> unknown) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int close = c == '{' ? text.indexOf('}', i + 1) : -1;
+            if (close < 0) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            String token = text.substring(i + 1, close);
+            int slot = indexOf(placeholders, token);
+            if (slot < 0) {
+                if (unknown != null) {
+                    unknown.add(token);
+                }
+                literal.append(text, i, close + 1);
+            } else {
+                literals.add(ChatColor.translateAlternateColorCodes('&', literal.toString()));
+                slots.add(slot);
+                literal.setLength(0);
+            }
+            i = close + 1;
+        }
+        literals.add(ChatColor.translateAlternateColorCodes('&', literal.toString()));
+
+        int[] slotArray = new int[slots.size()];
+        for (int s = 0; s < slotArray.length; s++) {
+            slotArray[s] = slots.get(s);
+        }
+        return new MessageTemplate(literals.toArray(new String[0]), slotArray);
+    }
+
+    private static int indexOf(Message.Placeholder[] placeholders, String token) {
+        for (int p = 0; p < placeholders.length; p++) {
+            if (placeholders[p].token().equalsIgnoreCase(token)) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Renders the template. {@code args} follow the message's placeholder order; missing
+     * arguments render as empty text.
+     */
+    String render(Object... args) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = new StringBuilder(literalLength + slots.length * 16);
+        for (int s = 0; s < slots.length; s++) {
+            out.append(literals[s]);
+            int slot = slots[s];
+            if (slot < args.length && args[slot] != null) {
+                out.append(args[slot]);
+            }
+        }
+        return out.append(literals[slots.length]).toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The compiled templates for every {@link Message}, read from messages.yml.
+ * <p>
+ * All templates are compiled into a fresh table before it replaces the current one, so a
+ * reload is a single reference swap and readers on any thread see either the old set or
+ * the new one, never a mix. Keys missing from the file keep their built-in text.
+ */
+final class Messages {
+
+    private final Logger logger;
+    private volatile MessageTemplate[] templates;
+
+    Messages(Logger logger) {
+        this.logger = logger;
+        this.templates = compile(null);
+    }
+
+    /**
+     * Recompiles every message from {@code file} and swaps them in.
+     */
+    void load(File file) {
+        templates = compile(file.exists() ? YamlConfiguration.loadConfiguration(file) : null);
+    }
+
+    String render(Message message, Object... args) {
+        return templates[message.ordinal()].render(args);
+    }
+
+    private MessageTemplate[] compile(YamlConfiguration config) {
+        Message[] messages = Message.values();
+        MessageTemplate[] compiled = new MessageTemplate[messages.length];
+        List<String> unknown = new ArrayList<>();
+        for (Message message : messages) {
+            String text = message.getDefaultText();
+            if (config != null) {
+                if (config.isList(message.getPath())) {
+                    text = String.join("\n", config.getStringList(message.getPath()));
+                } else if (config.isString(message.getPath())) {
+                    text = config.getString(message.getPath());
+                }
+            }
+            unknown.clear();
+            compiled[message.ordinal()] = MessageTemplate.compile(text, message.getPlaceholders(), unknown);
+            if (!unknown.isEmpty()) {
+                logger.warning("Unknown placeholders " + unknown + " in message '" + message.getPath() + "'");
+            }
+        }
+        return compiled;
+    }
+}
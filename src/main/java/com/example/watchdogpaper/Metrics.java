@@ -0,0 +1,120 @@
+package com.example.watchdogpaper;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms and event counters for the plugin's hot paths and database access.
+ * <p>
+ * Every timer and counter is a constant, so recording is an array index plus the atomic
+ * updates of {@link LatencyHistogram}: lock-free and allocation-free, safe to leave on in
+ * the chat and login paths. Values accumulate from startup. Thread-safe.
+ */
+final class Metrics {
+
+    enum Timer {
+        LOGIN_CHECK("login_check", "Pre-login: ban, IP ban and alt checks and loading the session"),
+        CHAT_MUTE_CHECK("chat_mute_check", "Mute check on a chat message"),
+        PUNISH("punish", "Placing a punishment, main thread"),
+        REPORT("report", "Submitting a report, main thread"),
+        MENU_OPEN("menu_open", "Opening a report menu, main thread"),
+        BROADCAST("broadcast", "Rendering and sending a staff notification, main thread"),
+        DB_POOL_WAIT("db_pool_wait", "Waiting for a database connection"),
+        DB_OPERATION("db_operation", "Database connection in use, from borrow to return"),
+        DB_WRITE_BATCH("db_write_batch", "Flushing one batch of queued writes"),
+        DB_WRITE_LAG("db_write_lag", "Queued write until its batch was flushed");
+
+        private final String key;
+        private final String help;
+
+        Timer(String key, String help) {
+            this.key = key;
+            this.help = help;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        String getHelp() {
+            return help;
+        }
+    }
+
+    enum Counter {
+        LOGINS_DENIED("logins_denied", "Logins refused for a ban, IP ban or banned alt"),
+        CHAT_BLOCKED("chat_blocked", "Chat messages blocked by a mute"),
+        PUNISHMENTS("punishments", "Punishments placed on this server"),
+        REPORTS("reports", "Reports submitted on this server"),
+        DB_WRITES("db_writes", "Queued writes flushed to the database"),
+        DB_WRITE_FAILURES("db_write_failures", "Queued writes the database rejected");
+
+        private final String key;
+        private final String help;
+
+        Counter(String key, String help) {
+            this.key = key;
+            this.help = help;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        String getHelp() {
+            return help;
+        }
+    }
+
+    private final LatencyHistogram[] timers = new LatencyHistogram[Timer.values().length];
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final long startedAt = System.currentTimeMillis();
+
+    Metrics() {
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the time since {@code startNanos}, a {@link System#nanoTime()} reading.
+     */
+    void record(Timer timer, long startNanos) {
+        timers[timer.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    void increment(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    void add(Counter counter, long delta) {
+        counters.addAndGet(counter.ordinal(), delta);
+    }
+
+    LatencyHistogram.Snapshot snapshot(Timer timer) {
+        return timers[timer.ordinal()].snapshot();
+    }
+
+    long get(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Formats a latency for chat: {@code 850ns}, {@code 12.4µs}, {@code 3.1ms} or {@code 1.20s}.
+     */
+    static String formatNanos(long nanos) {
+        if (nanos < 1000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1000000) {
+            return String.format("%.1fµs", nanos / 1e3);
+        }
+        if (nanos < 1000000000) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.2fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.watchdogpaper;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Serves {@link Metrics} at {@code /metrics} in the Prometheus text format, for scraping.
+ * <p>
+ * Timers are exported as summaries in seconds with the 0.5, 0.9, 0.99 and 0.999 quantiles,
+ * counters as {@code _total} counters. Requests are answered on one daemon thread that only
+ * reads the metrics, so a scrape never touches the main thread or the database.
+ */
+final class MetricsExporter {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Metrics metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    MetricsExporter(Metrics metrics, String host, int port) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Watchdog-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    String render() {
+        StringBuilder text = new StringBuilder(4096);
+        for (Metrics.Timer timer : Metrics.Timer.values()) {
+            String name = "watchdog_" + timer.getKey() + "_seconds";
+            LatencyHistogram.Snapshot snapshot = metrics.snapshot(timer);
+            text.append("# HELP ").append(name).append(' ').append(timer.getHelp()).append('\n');
+            text.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(snapshot.getCount() == 0 ? "NaN" : seconds(snapshot.getPercentile(quantile))).append('\n');
+            }
+            text.append(name).append("_sum ").append(seconds(snapshot.getSum())).append('\n');
+            text.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+        }
+        for (Metrics.Counter counter : Metrics.Counter.values()) {
+            String name = "watchdog_" + counter.getKey() + "_total";
+            text.append("# HELP ").append(name).append(' ').append(counter.getHelp()).append('\n');
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ').append(metrics.get(counter)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
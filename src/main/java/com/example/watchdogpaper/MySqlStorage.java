@@ -0,0 +1,36 @@
+package com.example.watchdogpaper;
+
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Storage on a (possibly shared) MySQL server.
+ */
+final class MySqlStorage extends SqlStorage {
+
+    private final String url;
+    private final Properties credentials;
+    private final ConnectionPool.Settings poolSettings;
+
+    MySqlStorage(String host, int port, String database, String user, String password, String properties,
+                 ConnectionPool.Settings poolSettings, Logger logger, Metrics metrics, Executor callbackExecutor,
+                 int batchSize, long flushInterval) {
+        super(SqlDialect.MYSQL, logger, metrics, callbackExecutor, batchSize, flushInterval);
+        this.url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?" + properties;
+        this.credentials = new Properties();
+        this.credentials.setProperty("user", user);
+        this.credentials.setProperty("password", password);
+        this.poolSettings = poolSettings;
+    }
+
+    @Override
+    protected ConnectionPool createConnectionPool() {
+        return new ConnectionPool(url, credentials, poolSettings, logger, metrics);
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.watchdogpaper;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bidirectional name and UUID lookup for players seen recently, so commands naming an offline
+ * player rarely need the {@code player_names} table.
+ * <p>
+ * Each account maps to its current name and each name to the account that last logged in with
+ * it; a rename or a name taken over by another account drops the stale direction. At most
+ * {@code maxSize} players are kept, least recently used first out. Thread-safe; written from
+ * the async pre-login thread and read by commands on the main thread.
+ */
+final class NameCache {
+
+    private final int maxSize;
+    private final Map<String, PlayerIdentity> byName;
+    private final Map<UUID, PlayerIdentity> byUuid = new HashMap<>();
+
+    NameCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.byName = new LinkedHashMap<String, PlayerIdentity>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PlayerIdentity> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                byUuid.remove(eldest.getValue().getUuid(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Records that {@code uuid} now goes by {@code name}. Returns the name it had before, or null
+     * if it was not cached.
+     */
+    synchronized String put(UUID uuid, String name) {
+        PlayerIdentity identity = new PlayerIdentity(uuid, name);
+        PlayerIdentity previous = byUuid.put(uuid, identity);
+        if (previous != null && !key(previous.getName()).equals(key(name))) {
+            byName.remove(key(previous.getName()), previous);
+        }
+        PlayerIdentity owner = byName.put(key(name), identity);
+        if (owner != null && !owner.getUuid().equals(uuid)) {
+            // The name changed hands; the old owner's current name is no longer known
+            byUuid.remove(owner.getUuid(), owner);
+        }
+        return previous == null ? null : previous.getName();
+    }
+
+    synchronized PlayerIdentity getByName(String name) {
+        return byName.get(key(name));
+    }
+
+    synchronized PlayerIdentity getByUuid(UUID uuid) {
+        return byUuid.get(uuid);
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    synchronized int size() {
+        return byName.size();
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
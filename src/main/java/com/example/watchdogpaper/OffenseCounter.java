@@ -0,0 +1,77 @@
+package com.example.watchdogpaper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * How many punishments each player has had under each escalation layout, so picking the step of
+ * a {@code @Layout} punishment is a map lookup instead of a history query.
+ * <p>
+ * Filled from storage when it connects and kept current by counting every punishment placed here
+ * or picked up from another server. Accounts are counted by UUID; rows placed before the account
+ * was known are counted by name, and a lookup adds both. Thread-safe.
+ */
+final class OffenseCounter {
+
+    private final Map<UUID, Map<String, Integer>> byAccount = new HashMap<>();
+    private final Map<String, Map<String, Integer>> byName = new HashMap<>();
+
+    /**
+     * Replaces every count with those loaded from storage.
+     */
+    synchronized void load(List<Storage.OffenseCount> counts) {
+        byAccount.clear();
+        byName.clear();
+        for (Storage.OffenseCount count : counts) {
+            add(count.getPlayerId(), count.getPlayerName(), count.getLayout(), count.getCount());
+        }
+    }
+
+    /**
+     * Counts the punishment if it was placed under a layout.
+     */
+    synchronized void record(Punishment punishment) {
+        if (punishment.getLayout() != null) {
+            add(punishment.getPlayerId(), punishment.getPlayerName(), punishment.getLayout(), 1);
+        }
+    }
+
+    /**
+     * Returns how many punishments the player has had under the layout.
+     */
+    synchronized int get(UUID playerId, String playerName, String layout) {
+        int count = 0;
+        if (playerId != null) {
+            count += get(byAccount.get(playerId), layout);
+        }
+        if (playerName != null) {
+            count += get(byName.get(playerName.toLowerCase(Locale.ROOT)), layout);
+        }
+        return count;
+    }
+
+    synchronized int size() {
+        return byAccount.size() + byName.size();
+    }
+
+    private void add(UUID playerId, String playerName, String layout, int count) {
+        Map<String, Integer> counts;
+        if (playerId != null) {
+            counts = byAccount.computeIfAbsent(playerId, id -> new HashMap<>(4));
+        } else if (playerName != null && !playerName.isEmpty()) {
+            counts = byName.computeIfAbsent(playerName.toLowerCase(Locale.ROOT), name -> new HashMap<>(4));
+        } else {
+            // A bare address or range; there is no player to escalate
+            return;
+        }
+        counts.merge(layout, count, Integer::sum);
+    }
+
+    private static int get(Map<String, Integer> counts, String layout) {
+        Integer count = counts == null ? null : counts.get(layout);
+        return count == null ? 0 : count;
+    }
+}
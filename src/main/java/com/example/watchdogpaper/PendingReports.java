@@ -0,0 +1,267 @@
+package com.example.watchdogpaper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of pending reports, newest first, for /watchdoglist and /watchdogreport-accept.
+ * <p>
+ * Besides the full ordered set, reports are indexed by reason, by reported player and by
+ * (reporter, reported) pair, so a filtered page or an accept only touches the matching
+ * reports and the per-reason counts are just set sizes. Thread-safe.
+ */
+final class PendingReports {
+
+    static final class Page {
+        private final List<Report> reports;
+        private final int page;
+        private final int totalMatches;
+        private final int pageSize;
+
+        Page(List<Report> reports, int page, int totalMatches, int pageSize) {
+            this.reports = reports;
+            this.page = page;
+            this.totalMatches = totalMatches;
+            this.pageSize = pageSize;
+        }
+
+        List<Report> getReports() {
+            return reports;
+        }
+
+        int getPage() {
+            return page;
+        }
+
+        int getTotalMatches() {
+            return totalMatches;
+        }
+
+        int getTotalPages() {
+            return Math.max(1, (totalMatches + pageSize - 1) / pageSize);
+        }
+    }
+
+    private static final Comparator<Report> NEWEST_FIRST = new Comparator<Report>() {
+        @Override
+        public int compare(Report a, Report b) {
+            int result = Long.compare(b.getTimestamp(), a.getTimestamp());
+            if (result == 0) {
+                result = Integer.compare(b.getId(), a.getId());
+            }
+            if (result == 0) {
+                String x = a.getActionId() == null ? "" : a.getActionId();
+                String y = b.getActionId() == null ? "" : b.getActionId();
+                result = x.compareTo(y);
+            }
+            return result;
+        }
+    };
+
+    private final NavigableSet<Report> all = new TreeSet<>(NEWEST_FIRST);
+    private final Map<String, NavigableSet<Report>> byReason = new HashMap<>();
+    private final Map<String, NavigableSet<Report>> byReported = new HashMap<>();
+    private final Map<String, List<Report>> byPair = new HashMap<>();
+    private final Map<String, Report> byActionId = new HashMap<>();
+
+    /**
+     * Replaces the contents with the given pending reports.
+     */
+    synchronized void load(Collection<Report> reports) {
+        all.clear();
+        byReason.clear();
+        byReported.clear();
+        byPair.clear();
+        byActionId.clear();
+        for (Report report : reports) {
+            add(report);
+        }
+    }
+
+    synchronized void add(Report report) {
+        // A spooled report that already reached the database is loaded from both
+        if (report.getActionId() != null && byActionId.containsKey(report.getActionId())) {
+            return;
+        }
+        if (!all.add(report)) {
+            return;
+        }
+        if (report.getActionId() != null) {
+            byActionId.put(report.getActionId(), report);
+        }
+        index(byReason, report.getReason(), report);
+        index(byReported, key(report.getReported()), report);
+        List<Report> pair = byPair.get(pairKey(report.getReporter(), report.getReported()));
+        if (pair == null) {
+            pair = new ArrayList<>(1);
+            byPair.put(pairKey(report.getReporter(), report.getReported()), pair);
+        }
+        pair.add(report);
+    }
+
+    /**
+     * Removes and returns every pending report by {@code reporter} against {@code reported} filed at
+     * or before {@code before}.
+     */
+    synchronized List<Report> accept(String reporter, String reported, long before) {
+        String pairKey = pairKey(reporter, reported);
+        List<Report> pair = byPair.get(pairKey);
+        if (pair == null) {
+            return Collections.emptyList();
+        }
+        List<Report> accepted = new ArrayList<>(pair.size());
+        for (Iterator<Report> it = pair.iterator(); it.hasNext(); ) {
+            Report report = it.next();
+            if (report.getTimestamp() <= before) {
+                it.remove();
+                accepted.add(report);
+            }
+        }
+        if (pair.isEmpty()) {
+            byPair.remove(pairKey);
+        }
+        for (Report report : accepted) {
+            all.remove(report);
+            if (report.getActionId() != null) {
+                byActionId.remove(report.getActionId());
+            }
+            unindex(byReason, report.getReason(), report);
+            unindex(byReported, key(report.getReported()), report);
+        }
+        return accepted;
+    }
+
+    /**
+     * Folds a new report into an identical pending one (same reporter, reported player and reason)
+     * filed at or after {@code since}. Returns the report it was folded into, or null if there is none.
+     */
+    synchronized Report coalesce(String reporter, String reported, String reason, long since) {
+        List<Report> pair = byPair.get(pairKey(reporter, reported));
+        if (pair == null) {
+            return null;
+        }
+        for (Report report : pair) {
+            if (report.getTimestamp() >= since && report.getReason().equals(reason)) {
+                report.addHit();
+                return report;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts one more hit on the pending report with the action ID (or, for rows older than the
+     * spool, the database ID), as a replayed {@link #coalesce} does. Does nothing if it is gone.
+     */
+    synchronized void addHit(String actionId, int id) {
+        Report found = actionId != null ? byActionId.get(actionId) : null;
+        if (actionId == null) {
+            for (Report report : all) {
+                if (report.getId() == id) {
+                    found = report;
+                    break;
+                }
+            }
+        }
+        if (found != null) {
+            found.addHit();
+        }
+    }
+
+    /**
+     * Returns one page of pending reports, optionally only those with the exact reason and/or against the player.
+     * With an {@code order}, matches are sorted by it (newest first among equals) before paging.
+     */
+    synchronized Page query(String reason, String reported, int page, int pageSize, Comparator<Report> order) {
+        NavigableSet<Report> candidates;
+        if (reported != null) {
+            candidates = byReported.get(key(reported));
+        } else if (reason != null) {
+            candidates = byReason.get(reason);
+        } else {
+            candidates = all;
+        }
+        if (candidates == null) {
+            return new Page(Collections.<Report>emptyList(), page, 0, pageSize);
+        }
+
+        boolean filterReason = reason != null && reported != null;
+        int skip = (page - 1) * pageSize;
+        if (order != null) {
+            List<Report> matches = new ArrayList<>();
+            for (Report report : candidates) {
+                if (!filterReason || report.getReason().equals(reason)) {
+                    matches.add(report);
+                }
+            }
+            Collections.sort(matches, order);
+            List<Report> reports = skip < matches.size()
+                    ? new ArrayList<>(matches.subList(skip, Math.min(matches.size(), skip + pageSize)))
+                    : Collections.<Report>emptyList();
+            return new Page(reports, page, matches.size(), pageSize);
+        }
+        int matches = 0;
+        List<Report> reports = new ArrayList<>(pageSize);
+        for (Report report : candidates) {
+            if (filterReason && !report.getReason().equals(reason)) {
+                continue;
+            }
+            if (matches >= skip && reports.size() < pageSize) {
+                reports.add(report);
+            }
+            matches++;
+        }
+        return new Page(reports, page, matches, pageSize);
+    }
+
+    /**
+     * Returns the number of pending reports per reason, largest first.
+     */
+    synchronized Map<String, Integer> countByReason() {
+        List<Map.Entry<String, NavigableSet<Report>>> entries = new ArrayList<>(byReason.entrySet());
+        Collections.sort(entries, (a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()));
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, NavigableSet<Report>> entry : entries) {
+            counts.put(entry.getKey(), entry.getValue().size());
+        }
+        return counts;
+    }
+
+    synchronized int size() {
+        return all.size();
+    }
+
+    private static void index(Map<String, NavigableSet<Report>> map, String key, Report report) {
+        NavigableSet<Report> set = map.get(key);
+        if (set == null) {
+            set = new TreeSet<>(NEWEST_FIRST);
+            map.put(key, set);
+        }
+        set.add(report);
+    }
+
+    private static void unindex(Map<String, NavigableSet<Report>> map, String key, Report report) {
+        NavigableSet<Report> set = map.get(key);
+        if (set != null && set.remove(report) && set.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    private static String key(String playerName) {
+        return playerName.toLowerCase(Locale.ROOT);
+    }
+
+    private static String pairKey(String reporter, String reported) {
+        return key(reporter) + '\n' + key(reported);
+    }
+}
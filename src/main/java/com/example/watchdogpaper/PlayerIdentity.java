@@ -0,0 +1,32 @@
+package com.example.watchdogpaper;
+
+import java.util.UUID;
+
+/**
+ * A player name together with the account that last used it.
+ */
+final class PlayerIdentity {
+
+    private final UUID uuid;
+    private final String name;
+
+    /**
+     * @param uuid null if the name has never been seen on this network
+     */
+    PlayerIdentity(UUID uuid, String name) {
+        this.uuid = uuid;
+        this.name = name;
+    }
+
+    UUID getUuid() {
+        return uuid;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean isKnown() {
+        return uuid != null;
+    }
+}
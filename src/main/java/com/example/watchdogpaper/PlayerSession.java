@@ -0,0 +1,66 @@
+package com.example.watchdogpaper;
+
+import java.util.UUID;
+
+/**
+ * Moderation state of an online player, loaded once at pre-login.
+ * Read from async chat threads and updated in place by the mute commands.
+ */
+final class PlayerSession {
+
+    private final UUID uuid;
+    private final String name;
+    private volatile Punishment mute;
+
+    PlayerSession(UUID uuid, String name, Punishment mute) {
+        this.uuid = uuid;
+        this.name = name;
+        this.mute = mute;
+    }
+
+    UUID getUuid() {
+        return uuid;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the active mute, or null. A temp mute whose cached end time has passed is cleared here.
+     */
+    Punishment getActiveMute(long now) {
+        Punishment current = mute;
+        if (current != null && current.isExpired(now)) {
+            mute = null;
+            return null;
+        }
+        return current;
+    }
+
+    /**
+     * Clears the mute if it has ended. Returns true if there was one to clear.
+     */
+    boolean clearExpiredMute(long now) {
+        Punishment current = mute;
+        if (current != null && current.isExpired(now)) {
+            mute = null;
+            return true;
+        }
+        return false;
+    }
+
+    void setMute(Punishment mute) {
+        this.mute = mute;
+    }
+
+    /**
+     * Applies a new mute unless the current one ends later.
+     */
+    void addMute(Punishment added) {
+        Punishment current = getActiveMute(System.currentTimeMillis());
+        if (current == null || !current.endsAfter(added)) {
+            mute = added;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.watchdogpaper;
+
+import java.util.UUID;
+
+/**
+ * A single row of the punishments table.
+ */
+final class Punishment {
+
+    private final int id;
+    private final String actionId; // spool entry that created it, null for rows older than the spool
+    private final String playerName;
+    private final UUID playerId; // null if the player's account was unknown when punished
+    private final String playerIp; // the banned address or range for IP bans, else the player's IP if known
+    private final PunishmentType type;
+    private final String reason;
+    private final String layout; // escalation layout it was placed under, null if none
+    private final String operator;
+    private final long startTime;
+    private final long endTime; // 0 for permanent
+
+    Punishment(int id, String actionId, String playerName, UUID playerId, String playerIp, PunishmentType type,
+               String reason, String layout, String operator, long startTime, long endTime) {
+        this.id = id;
+        this.actionId = actionId;
+        this.playerName = playerName;
+        this.playerId = playerId;
+        this.playerIp = playerIp;
+        this.type = type;
+        this.reason = reason;
+        this.layout = layout;
+        this.operator = operator;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    Punishment withId(int id) {
+        return new Punishment(id, actionId, playerName, playerId, playerIp, type, reason, layout, operator, startTime, endTime);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    String getActionId() {
+        return actionId;
+    }
+
+    String getPlayerName() {
+        return playerName;
+    }
+
+    UUID getPlayerId() {
+        return playerId;
+    }
+
+    String getPlayerIp() {
+        return playerIp;
+    }
+
+    PunishmentType getType() {
+        return type;
+    }
+
+    String getReason() {
+        return reason;
+    }
+
+    String getLayout() {
+        return layout;
+    }
+
+    String getOperator() {
+        return operator;
+    }
+
+    long getStartTime() {
+        return startTime;
+    }
+
+    long getEndTime() {
+        return endTime;
+    }
+
+    boolean isPermanent() {
+        return endTime <= 0;
+    }
+
+    boolean isExpired(long now) {
+        return endTime > 0 && endTime <= now;
+    }
+
+    /**
+     * Whether this punishment ends later than {@code other}; a permanent one ends after any temporary one.
+     */
+    boolean endsAfter(Punishment other) {
+        return endsAfter(other.endTime);
+    }
+
+    /**
+     * @param otherEnd epoch ms, or 0 for permanent
+     */
+    boolean endsAfter(long otherEnd) {
+        return otherEnd > 0 && (isPermanent() || endTime > otherEnd);
+    }
+
+    long getRemaining(long now) {
+        return isPermanent() ? -1 : Math.max(0, endTime - now);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.watchdogpaper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tracks when every live TEMPBAN and TEMPMUTE ends, at most one of each per player, and when
+ * every TEMPIPBAN ends, one per address or range. Of two for the same player (or range) the one
+ * that ends later keeps the timer, and a permanent one clears it. Thread-safe.
+ */
+final class PunishmentExpiry {
+
+    private final TimerWheel<Punishment> wheel;
+    private final Map<String, TimerWheel.Timeout<Punishment>> timers = new HashMap<>();
+
+    PunishmentExpiry(long now) {
+        this.wheel = new TimerWheel<>(1000L, now);
+    }
+
+    /**
+     * Schedules the punishment's end, unless one that ends later is already scheduled for the
+     * player or range. A permanent punishment cancels the timer instead.
+     */
+    synchronized void schedule(Punishment punishment) {
+        String key = key(punishment);
+        TimerWheel.Timeout<Punishment> previous = timers.get(key);
+        if (previous != null) {
+            if (previous.getValue().endsAfter(punishment)) {
+                return;
+            }
+            wheel.cancel(previous);
+            timers.remove(key);
+        }
+        if (!punishment.isPermanent()) {
+            timers.put(key, wheel.schedule(punishment, punishment.getEndTime()));
+        }
+    }
+
+    synchronized void cancel(String playerName, boolean ban) {
+        cancel((ban ? "ban:" : "mute:") + playerName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param range canonical address or CIDR range
+     */
+    synchronized void cancelIpBan(String range) {
+        cancel("ip:" + range);
+    }
+
+    private void cancel(String key) {
+        TimerWheel.Timeout<Punishment> timeout = timers.remove(key);
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    /**
+     * Returns the punishments that have ended since the last call.
+     */
+    synchronized List<Punishment> advance(long now) {
+        List<Punishment> expired = wheel.advance(now);
+        for (Punishment punishment : expired) {
+            String key = key(punishment);
+            TimerWheel.Timeout<Punishment> timeout = timers.get(key);
+            if (timeout != null && timeout.getValue() == punishment) {
+                timers.remove(key);
+            }
+        }
+        return expired;
+    }
+
+    synchronized int size() {
+        return wheel.size();
+    }
+
+    static boolean isBan(PunishmentType type) {
+        return type == PunishmentType.BAN || type == PunishmentType.TEMPBAN;
+    }
+
+    static boolean isIpBan(PunishmentType type) {
+        return type == PunishmentType.IPBAN || type == PunishmentType.TEMPIPBAN;
+    }
+
+    private static String key(Punishment punishment) {
+        if (isIpBan(punishment.getType())) {
+            return "ip:" + punishment.getPlayerIp();
+        }
+        return (isBan(punishment.getType()) ? "ban:" : "mute:") + punishment.getPlayerName().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.watchdogpaper;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Pages through a player's (or IP's) punishments, newest first, for /history.
+ * <p>
+ * Pages are fetched with keyset pagination: page N continues below the smallest ID on page
+ * N-1, so every page is one index range scan however deep it is. The boundary IDs of pages
+ * seen so far are remembered per target, letting a jump to a later page walk only the IDs of
+ * the pages in between. Recently viewed pages are kept in an LRU cache that is dropped for a
+ * target whenever its rows change. {@link #getPage} blocks on the database; call it off the main thread.
+ */
+final class PunishmentHistory {
+
+    static final int PAGE_SIZE = 10;
+    private static final int MAX_TARGETS = 64;
+    private static final int MAX_PAGES_PER_TARGET = 8;
+
+    static final class Page {
+        private final List<HistoryEntry> entries;
+        private final int page;
+        private final int totalEntries;
+
+        Page(List<HistoryEntry> entries, int page, int totalEntries) {
+            this.entries = entries;
+            this.page = page;
+            this.totalEntries = totalEntries;
+        }
+
+        List<HistoryEntry> getEntries() {
+            return entries;
+        }
+
+        int getPage() {
+            return page;
+        }
+
+        int getTotalEntries() {
+            return totalEntries;
+        }
+
+        int getTotalPages() {
+            return Math.max(1, (totalEntries + PAGE_SIZE - 1) / PAGE_SIZE);
+        }
+    }
+
+    private static final class TargetCache {
+        final String name; // lowercase name or address the rows were looked up by
+        int total = -1;
+        final List<Integer> cursors = new ArrayList<>(); // cursors.get(i) = smallest ID on page i + 1
+        final Map<Integer, List<HistoryEntry>> pages = new LinkedHashMap<Integer, List<HistoryEntry>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<HistoryEntry>> eldest) {
+                return size() > MAX_PAGES_PER_TARGET;
+            }
+        };
+
+        TargetCache(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Storage storage;
+    private final Map<String, TargetCache> targets = new LinkedHashMap<String, TargetCache>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TargetCache> eldest) {
+            return size() > MAX_TARGETS;
+        }
+    };
+
+    PunishmentHistory(Storage storage) {
+        this.storage = storage;
+    }
+
+    static boolean isAddress(String target) {
+        // Player names never contain these
+        return target.indexOf('.') >= 0 || target.indexOf(':') >= 0;
+    }
+
+    /**
+     * Returns the given 1-based page; a page past the end comes back empty.
+     *
+     * @param playerId the player's account, so rows placed under its earlier names are included; may be null
+     */
+    Page getPage(String target, UUID playerId, int page) throws SQLException {
+        boolean byIp = isAddress(target);
+        String name = target.toLowerCase(Locale.ROOT);
+        // An account's history is cached once, whichever of its names it was looked up by
+        String key = playerId != null && !byIp ? playerId.toString() : name;
+        TargetCache cache;
+        int total;
+        int known;
+        int before;
+        synchronized (this) {
+            cache = targets.get(key);
+            if (cache == null) {
+                cache = new TargetCache(name);
+                targets.put(key, cache);
+            }
+            List<HistoryEntry> cached = cache.pages.get(page);
+            if (cached != null && cache.total >= 0) {
+                return new Page(cached, page, cache.total);
+            }
+            total = cache.total;
+            known = Math.min(cache.cursors.size(), page - 1);
+            before = known == 0 ? Integer.MAX_VALUE : cache.cursors.get(known - 1);
+        }
+
+        if (total < 0) {
+            total = storage.countHistory(target, playerId, byIp);
+        }
+        if ((page - 1) * PAGE_SIZE >= total) {
+            return new Page(Collections.<HistoryEntry>emptyList(), page, total);
+        }
+
+        // Seek to the page through the ID-only boundaries of the pages in between
+        List<Integer> discovered = new ArrayList<>();
+        for (int p = known + 1; p < page; p++) {
+            before = storage.findHistoryCursor(target, playerId, byIp, before, PAGE_SIZE);
+            discovered.add(before);
+        }
+        List<HistoryEntry> entries = storage.getHistory(target, playerId, byIp, before, PAGE_SIZE);
+
+        synchronized (this) {
+            // Skip storing if the target was invalidated while we were querying
+            if (targets.get(key) == cache) {
+                cache.total = total;
+                if (cache.cursors.size() == known) {
+                    cache.cursors.addAll(discovered);
+                    if (!entries.isEmpty()) {
+                        cache.cursors.add(entries.get(entries.size() - 1).getPunishment().getId());
+                    }
+                }
+                cache.pages.put(page, entries);
+            }
+        }
+        return new Page(entries, page, total);
+    }
+
+    /**
+     * Forgets everything cached for the target, e.g. after it was punished or unbanned. The target
+     * is a name, an address or an account's UUID; a name also drops the account last looked up by it.
+     */
+    synchronized void invalidate(String target) {
+        if (target == null) {
+            return;
+        }
+        String key = target.toLowerCase(Locale.ROOT);
+        targets.remove(key);
+        for (Iterator<TargetCache> it = targets.values().iterator(); it.hasNext(); ) {
+            if (it.next().name.equals(key)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Forgets everything cached for the punishment's player, account and address.
+     */
+    void invalidate(Punishment punishment) {
+        invalidate(punishment.getPlayerName());
+        invalidate(punishment.getPlayerIp());
+        if (punishment.getPlayerId() != null) {
+            invalidate(punishment.getPlayerId().toString());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Named escalation ladders, read from the {@code layouts} section of config.yml, for the
+ * {@code @Layout} reason and {@code #TimeLayout} duration of the punishment commands.
+ * <p>
+ * A layout is a reason and a ladder of durations. A player's next punishment under it takes the
+ * step matching the number they already have, and the last step repeats. Every layout is compiled
+ * into a fresh immutable table before it replaces the current one, so a reload is a single
+ * reference swap and a command never sees half of one.
+ */
+final class PunishmentLayouts {
+
+    /**
+     * Longest layout name; it is stored with each punishment placed under it.
+     */
+    static final int MAX_NAME_LENGTH = 32;
+
+    static final class Layout {
+        private final String name;
+        private final String reason;
+        private final long[] steps; // ms, 0 for permanent
+
+        private Layout(String name, String reason, long[] steps) {
+            this.name = name;
+            this.reason = reason;
+            this.steps = steps;
+        }
+
+        /**
+         * Lowercase name, as stored with the punishments placed under it.
+         */
+        String getName() {
+            return name;
+        }
+
+        String getReason() {
+            return reason;
+        }
+
+        /**
+         * Returns the duration in ms for a player with this many earlier offenses, or 0 for permanent.
+         */
+        long getDuration(int offenses) {
+            return steps[Math.min(offenses, steps.length - 1)];
+        }
+    }
+
+    private final Logger logger;
+    private volatile Map<String, Layout> layouts = Collections.emptyMap();
+
+    PunishmentLayouts(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Recompiles every layout under {@code section} and swaps them in. A layout with an invalid
+     * name or step is skipped with a warning.
+     */
+    void load(ConfigurationSection section) {
+        Map<String, Layout> compiled = new HashMap<>();
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                Layout layout = compile(key, section.getConfigurationSection(key));
+                if (layout != null) {
+                    compiled.put(layout.getName(), layout);
+                }
+            }
+        }
+        layouts = Collections.unmodifiableMap(compiled);
+    }
+
+    /**
+     * Returns the layout with this name (without the {@code @} or {@code #}, any case), or null.
+     */
+    Layout get(String name) {
+        return layouts.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    List<String> getNames() {
+        List<String> names = new ArrayList<>(layouts.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    int size() {
+        return layouts.size();
+    }
+
+    private Layout compile(String key, ConfigurationSection layout) {
+        String name = key.toLowerCase(Locale.ROOT);
+        if (layout == null || name.isEmpty() || name.length() > MAX_NAME_LENGTH || name.indexOf(' ') >= 0) {
+            logger.warning("Skipping layout '" + key + "': it needs a name of at most " + MAX_NAME_LENGTH +
+                    " characters without spaces, and a reason and durations below it");
+            return null;
+        }
+        List<String> durations = layout.getStringList("durations");
+        if (durations.isEmpty()) {
+            logger.warning("Skipping layout '" + key + "': it has no durations");
+            return null;
+        }
+        long[] steps = new long[durations.size()];
+        for (int i = 0; i < steps.length; i++) {
+            String step = durations.get(i).trim();
+            if (step.equalsIgnoreCase("permanent")) {
+                continue;
+            }
+            steps[i] = Durations.parse(step);
+            if (steps[i] <= 0) {
+                logger.warning("Skipping layout '" + key + "': '" + step + "' is not a duration or 'permanent'");
+                return null;
+            }
+        }
+        return new Layout(name, layout.getString("reason", key), steps);
+    }
+}
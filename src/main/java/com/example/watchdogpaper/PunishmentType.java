@@ -0,0 +1,6 @@
+package com.example.watchdogpaper;
+
+// Punishment types
+enum PunishmentType {
+    BAN, TEMPBAN, IPBAN, TEMPIPBAN, MUTE, TEMPMUTE, WARN, TEMPWARN, NOTE, KICK
+}
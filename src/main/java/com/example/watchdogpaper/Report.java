@@ -0,0 +1,65 @@
+package com.example.watchdogpaper;
+
+/**
+ * A single row of the reports table, including the count of identical reports that were
+ * folded into it instead of being stored again.
+ */
+final class Report {
+
+    private final int id;
+    private final String actionId; // spool entry that created it, null for rows older than the spool
+    private final String reporter;
+    private final String reported;
+    private final String reason;
+    private final long timestamp;
+    private volatile int hits;
+
+    Report(int id, String actionId, String reporter, String reported, String reason, long timestamp) {
+        this(id, actionId, reporter, reported, reason, timestamp, 1);
+    }
+
+    Report(int id, String actionId, String reporter, String reported, String reason, long timestamp, int hits) {
+        this.id = id;
+        this.actionId = actionId;
+        this.reporter = reporter;
+        this.reported = reported;
+        this.reason = reason;
+        this.timestamp = timestamp;
+        this.hits = hits;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    String getActionId() {
+        return actionId;
+    }
+
+    String getReporter() {
+        return reporter;
+    }
+
+    String getReported() {
+        return reported;
+    }
+
+    String getReason() {
+        return reason;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Number of times this report was submitted, counting duplicates folded into it.
+     */
+    int getHits() {
+        return hits;
+    }
+
+    void addHit() {
+        hits++;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+import java.util.UUID;
+
+/**
+ * Holder of an open report menu, carrying the report being built.
+ * Clicks are routed by checking for this holder instead of comparing inventory titles.
+ */
+final class ReportMenu implements InventoryHolder {
+
+    enum Stage {
+        /** Choosing a reason. */
+        REASON,
+        /** Confirming the chosen reason. */
+        CONFIRM
+    }
+
+    private final UUID reporter;
+    private final String reportedName;
+    private final String reason;
+    private final long openedAt;
+    private Inventory inventory;
+
+    ReportMenu(UUID reporter, String reportedName, String reason, long openedAt) {
+        this.reporter = reporter;
+        this.reportedName = reportedName;
+        this.reason = reason;
+        this.openedAt = openedAt;
+    }
+
+    Stage getStage() {
+        return reason == null ? Stage.REASON : Stage.CONFIRM;
+    }
+
+    UUID getReporter() {
+        return reporter;
+    }
+
+    String getReportedName() {
+        return reportedName;
+    }
+
+    /**
+     * The chosen reason, or null while it is still being chosen.
+     */
+    String getReason() {
+        return reason;
+    }
+
+    long getOpenedAt() {
+        return openedAt;
+    }
+
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
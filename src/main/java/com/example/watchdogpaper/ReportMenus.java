@@ -0,0 +1,149 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds the report and confirmation menus.
+ * <p>
+ * The static items of both menus are built once; each menu opened gets copies of them plus
+ * the reported player's head. Main thread only.
+ */
+final class ReportMenus {
+
+    private final SkullCache skullCache;
+    private final String[] reasons = new String[54];
+    private final ItemStack[] reportLayout;
+    private final ItemStack[] confirmLayout;
+
+    ReportMenus(SkullCache skullCache) {
+        this.skullCache = skullCache;
+        this.reportLayout = buildReportLayout();
+        this.confirmLayout = buildConfirmLayout();
+    }
+
+    /**
+     * Creates the menu for choosing a reason. The caller opens it and tracks the session.
+     */
+    ReportMenu createReportMenu(UUID reporter, String reportedName, long now) {
+        ReportMenu holder = new ReportMenu(reporter, reportedName, null, now);
+        Inventory menu = Bukkit.createInventory(holder, 54, "Report Menu");
+        holder.setInventory(menu);
+        // The inventory copies each item, so the shared layout is never modified
+        menu.setContents(reportLayout);
+        setReportedHead(menu, 4, reportedName, ChatColor.YELLOW + "/reporing " + reportedName,
+                Arrays.asList(ChatColor.GRAY + "Select a reason below"));
+        return holder;
+    }
+
+    /**
+     * Creates the menu for confirming the chosen reason.
+     */
+    ReportMenu createConfirmMenu(UUID reporter, String reportedName, String reason, long now) {
+        ReportMenu holder = new ReportMenu(reporter, reportedName, reason, now);
+        Inventory confirmMenu = Bukkit.createInventory(holder, 9 * 3, "Confirm Report");
+        holder.setInventory(confirmMenu);
+        confirmMenu.setContents(confirmLayout);
+
+        // Player head center
+        setReportedHead(confirmMenu, 13, reportedName, ChatColor.YELLOW + "/Reported " + reportedName,
+                Arrays.asList(ChatColor.GRAY + "Reason: " + ChatColor.GREEN + reason));
+        return holder;
+    }
+
+    /**
+     * Returns the reason behind a slot of the report menu, or null if the slot is not one.
+     */
+    String getReason(int slot) {
+        return slot >= 0 && slot < reasons.length ? reasons[slot] : null;
+    }
+
+    private ItemStack[] buildReportLayout() {
+        ItemStack[] layout = new ItemStack[54];
+
+        // Report reason items
+        addReasonItem(layout, 20, Material.BOOK_AND_QUILL, "Chat Abuse", "Chat Abuse", (short) 0);
+        addReasonItem(layout, 21, Material.DIAMOND_SWORD, "Cheating (Hacks)", "Cheating (Hacks)", (short) 0);
+        addReasonItem(layout, 22, Material.PAPER, "Bad Name", "Bad Name", (short) 0);
+        addReasonItem(layout, 23, Material.BANNER, "Bad Skin", "Bad Skin", (short) 0);
+        addReasonItem(layout, 24, Material.COMPASS, "Other", "Other", (short) 0);
+
+        // Second row
+        addReasonItem(layout, 29, Material.LEATHER, "Bug Abuse", "Bug Abuse", (short) 0);
+        addReasonItem(layout, 30, Material.MONSTER_EGG, "Bad Pet name", "Pet Name Abuse", (short) 97);
+        addReasonItem(layout, 31, Material.TNT, "Boosting / Exploits", "Boosting / Exploits", (short) 0);
+        layout[48] = createMenuItem(Material.BOOK, ChatColor.GREEN + "Report Info", (short) 0);
+        layout[49] = createCloseItem();
+        return layout;
+    }
+
+    private void addReasonItem(ItemStack[] layout, int slot, Material material, String label, String reason, short durability) {
+        layout[slot] = createMenuItem(material, ChatColor.GREEN + label, durability);
+        reasons[slot] = reason;
+    }
+
+    private ItemStack[] buildConfirmLayout() {
+        ItemStack[] layout = new ItemStack[9 * 3];
+
+        ItemStack confirm = new ItemStack(Material.STAINED_CLAY, 1, (short) 13);
+        ItemMeta confirmMeta = confirm.getItemMeta();
+        confirmMeta.setDisplayName(ChatColor.GREEN + "Submit Report");
+        confirm.setItemMeta(confirmMeta);
+        layout[11] = confirm;
+
+        ItemStack cancel = new ItemStack(Material.STAINED_CLAY, 1, (short) 14);
+        ItemMeta cancelMeta = cancel.getItemMeta();
+        cancelMeta.setDisplayName(ChatColor.RED + "Cancel Report");
+        cancel.setItemMeta(cancelMeta);
+        layout[15] = cancel;
+        return layout;
+    }
+
+    /**
+     * Puts the reported player's head in the menu. Until the skin has been looked up a plain head
+     * is shown and replaced when the lookup completes.
+     */
+    private void setReportedHead(final Inventory menu, final int slot, String reportedName,
+                                 final String displayName, final List<String> lore) {
+        ItemStack head = skullCache.getIfPresent(reportedName);
+        menu.setItem(slot, decorateHead(head != null ? head : SkullCache.placeholder(), displayName, lore));
+        if (head == null) {
+            // Harmless if the menu has been closed in the meantime
+            skullCache.resolve(reportedName, resolved -> menu.setItem(slot, decorateHead(resolved, displayName, lore)));
+        }
+    }
+
+    private static ItemStack decorateHead(ItemStack head, String displayName, List<String> lore) {
+        ItemMeta meta = head.getItemMeta();
+        meta.setDisplayName(displayName);
+        meta.setLore(lore);
+        head.setItemMeta(meta);
+        return head;
+    }
+
+    private static ItemStack createMenuItem(Material material, String name, short durability) {
+        ItemStack item = new ItemStack(material, 1, durability);
+        ItemMeta meta = item.getItemMeta();
+        meta.setDisplayName(name);
+        meta.setLore(Arrays.asList("" + ChatColor.RED + "Abuse may result in punishment!"));
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    private static ItemStack createCloseItem() {
+        ItemStack close = new ItemStack(Material.BARRIER);
+        ItemMeta meta = close.getItemMeta();
+        meta.setDisplayName(ChatColor.RED + "Close " + ChatColor.GRAY + "(#0166)");
+        meta.setLore(Arrays.asList(ChatColor.GRAY + ""));
+        close.setItemMeta(meta);
+        return close;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.watchdogpaper;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Token bucket per reporter: each report costs a token, the bucket holds at most
+ * {@code capacity} and one token comes back every {@code refillInterval} ms.
+ * <p>
+ * Buckets are kept by UUID across quits, so relogging does not refill them; a bucket that
+ * would be full again carries no state and is dropped on the next sweep. Main thread only.
+ */
+final class ReportRateLimiter {
+
+    private static final class Bucket {
+        double tokens;
+        long updatedAt;
+
+        Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private final int capacity;
+    private final long refillInterval;
+    private final Map<UUID, Bucket> buckets = new HashMap<>();
+    private long lastSweep;
+
+    ReportRateLimiter(int capacity, long refillInterval) {
+        this.capacity = Math.max(1, capacity);
+        this.refillInterval = Math.max(1, refillInterval);
+    }
+
+    /**
+     * Takes a token for the reporter. Returns false, taking nothing, if the bucket is empty.
+     */
+    boolean tryAcquire(UUID reporter, long now) {
+        sweep(now);
+        Bucket bucket = buckets.get(reporter);
+        if (bucket == null) {
+            buckets.put(reporter, new Bucket(capacity - 1, now));
+            return true;
+        }
+        refill(bucket, now);
+        if (bucket.tokens < 1) {
+            return false;
+        }
+        bucket.tokens--;
+        return true;
+    }
+
+    /**
+     * Milliseconds until the reporter has a token again, 0 if they have one now.
+     */
+    long getWaitTime(UUID reporter, long now) {
+        Bucket bucket = buckets.get(reporter);
+        if (bucket == null) {
+            return 0;
+        }
+        refill(bucket, now);
+        return bucket.tokens >= 1 ? 0 : (long) Math.ceil((1 - bucket.tokens) * refillInterval);
+    }
+
+    private void refill(Bucket bucket, long now) {
+        if (now > bucket.updatedAt) {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (double) (now - bucket.updatedAt) / refillInterval);
+            bucket.updatedAt = now;
+        }
+    }
+
+    private void sweep(long now) {
+        long fullAfter = capacity * refillInterval;
+        if (now - lastSweep < fullAfter) {
+            return;
+        }
+        lastSweep = now;
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket bucket = it.next();
+            if (bucket.tokens + (double) (now - bucket.updatedAt) / refillInterval >= capacity) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.watchdogpaper;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The report menu each player currently has open, keyed by player UUID.
+ * <p>
+ * A session ends when its menu is closed, when the player quits, or {@code ttl} ms after the
+ * menu was opened, so the store never holds more than one entry per online player and keeps
+ * no {@code Player} references. Main thread only.
+ */
+final class ReportSessions {
+
+    private final long ttl;
+    private final Map<UUID, ReportMenu> sessions = new HashMap<>();
+
+    ReportSessions(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Makes {@code menu} the reporter's current session, replacing any previous one.
+     */
+    void open(ReportMenu menu) {
+        evictExpired(menu.getOpenedAt());
+        sessions.put(menu.getReporter(), menu);
+    }
+
+    /**
+     * Returns the player's session if it has not expired.
+     */
+    ReportMenu get(UUID player, long now) {
+        ReportMenu menu = sessions.get(player);
+        if (menu != null && isExpired(menu, now)) {
+            sessions.remove(player);
+            return null;
+        }
+        return menu;
+    }
+
+    /**
+     * Ends the session if it is still {@code menu}. Opening the next menu closes the previous
+     * one first, so a close must not end the session that replaced it.
+     */
+    void close(UUID player, ReportMenu menu) {
+        sessions.remove(player, menu);
+    }
+
+    void remove(UUID player) {
+        sessions.remove(player);
+    }
+
+    private void evictExpired(long now) {
+        Iterator<ReportMenu> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            if (isExpired(it.next(), now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private boolean isExpired(ReportMenu menu, long now) {
+        return now - menu.getOpenedAt() > ttl;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.watchdogpaper;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Embedded, file-backed storage for single-server setups. No network hop, no external service.
+ * <p>
+ * The database runs in WAL mode so the async chat/login readers never wait on the writer
+ * thread, with synchronous=NORMAL (durable across crashes of the JVM, which is what WAL needs)
+ * and a page cache large enough to keep the hot indexes resident.
+ */
+final class SQLiteStorage extends SqlStorage {
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int BUSY_TIMEOUT = 5; // seconds
+
+    private final File file;
+    private final int cacheSizeKb;
+    private final int poolSize;
+
+    SQLiteStorage(File file, int cacheSizeKb, int poolSize, Logger logger, Metrics metrics,
+                  Executor callbackExecutor, int batchSize, long flushInterval) {
+        super(SqlDialect.SQLITE, logger, metrics, callbackExecutor, batchSize, flushInterval);
+        this.file = file;
+        this.cacheSizeKb = cacheSizeKb;
+        this.poolSize = poolSize;
+    }
+
+    @Override
+    protected ConnectionPool createConnectionPool() throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite JDBC driver is not available on this server", e);
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new SQLException("Could not create directory " + parent);
+        }
+
+        ConnectionPool.Settings settings = new ConnectionPool.Settings();
+        settings.maximumPoolSize = Math.max(1, poolSize);
+        settings.minimumIdle = 1;
+        // Local file handles never time out; keep them for the whole uptime
+        settings.idleTimeout = Long.MAX_VALUE;
+        settings.maxLifetime = Long.MAX_VALUE;
+        settings.testQuery = "SELECT 1";
+        // PRAGMA busy_timeout only arrived in SQLite 3.7.15; newer drivers take it as a property instead
+        settings.busyTimeout = BUSY_TIMEOUT;
+        Properties properties = new Properties();
+        properties.setProperty("busy_timeout", Integer.toString(BUSY_TIMEOUT * 1000));
+        settings.initStatements = Arrays.asList(
+                "PRAGMA page_size = " + PAGE_SIZE, // only takes effect on a new file
+                "PRAGMA journal_mode = WAL",
+                "PRAGMA synchronous = NORMAL",
+                "PRAGMA cache_size = " + Math.max(1, cacheSizeKb * 1024 / PAGE_SIZE),
+                "PRAGMA temp_store = MEMORY"
+        );
+        return new ConnectionPool("jdbc:sqlite:" + file.getAbsolutePath(), properties, settings, logger, metrics);
+    }
+
+    @Override
+    public String getName() {
+        return "SQLite (" + file.getName() + ")";
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.watchdogpaper;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies ordered, idempotent schema migrations and records them in {@code schema_version}.
+ * <p>
+ * Every migration checks the live schema before changing it, so re-running one that was
+ * interrupted (or applied concurrently by another server on the same database) is harmless.
+ * On MySQL indexes are added with online DDL so large tables stay readable and writable meanwhile.
+ */
+final class SchemaMigrator {
+
+    abstract static class Migration {
+        final int version;
+        final String description;
+
+        Migration(int version, String description) {
+            this.version = version;
+            this.description = description;
+        }
+
+        abstract void apply(Connection conn) throws SQLException;
+    }
+
+    private final ConnectionPool connectionPool;
+    private final SqlDialect dialect;
+    private final Logger logger;
+    private final List<Migration> migrations = new ArrayList<>();
+
+    SchemaMigrator(ConnectionPool connectionPool, SqlDialect dialect, Logger logger) {
+        this.connectionPool = connectionPool;
+        this.dialect = dialect;
+        this.logger = logger;
+        registerMigrations();
+    }
+
+    private void registerMigrations() {
+        migrations.add(statement(1, "create reports table",
+                "CREATE TABLE IF NOT EXISTS reports (" +
+                        "id " + dialect.autoIncrementPrimaryKey() + ", " +
+                        "reporter VARCHAR(16) NOT NULL, " +
+                        "reported VARCHAR(16) NOT NULL, " +
+                        "reason TEXT NOT NULL, " +
+                        "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                        "status VARCHAR(20) DEFAULT 'pending'" +
+                        ")"));
+        migrations.add(statement(2, "create punishments table",
+                "CREATE TABLE IF NOT EXISTS punishments (" +
+                        "id " + dialect.autoIncrementPrimaryKey() + ", " +
+                        "player_name VARCHAR(16) NOT NULL, " +
+                        "player_uuid VARCHAR(36), " +
+                        "player_ip VARCHAR(45), " +
+                        "punishment_type VARCHAR(20) NOT NULL, " +
+                        "reason TEXT NOT NULL, " +
+                        "operator VARCHAR(16) NOT NULL, " +
+                        "duration BIGINT, " + // in milliseconds, NULL for permanent
+                        "start_time BIGINT NOT NULL, " +
+                        "end_time BIGINT, " + // NULL for permanent
+                        "active BOOLEAN DEFAULT 1, " +
+                        "silent BOOLEAN DEFAULT 0" +
+                        ")"));
+        // Ban and mute lookups: player_name = ? AND punishment_type IN (...) AND active = 1 AND end_time ...
+        migrations.add(index(3, "punishments", "idx_punishments_player_type_active",
+                "player_name", "punishment_type", "active", "end_time"));
+        // Recent ban count: punishment_type IN (...) AND start_time > ?
+        migrations.add(index(4, "punishments", "idx_punishments_type_start",
+                "punishment_type", "start_time"));
+        // /watchdoglist: status = 'pending' ORDER BY timestamp DESC
+        migrations.add(index(5, "reports", "idx_reports_status_time",
+                "status", "timestamp"));
+        // /watchdogreport-accept: reporter = ? AND reported = ? AND status = 'pending'
+        migrations.add(index(6, "reports", "idx_reports_reporter_reported_status",
+                "reporter", "reported", "status"));
+        // Spool replays: a write that already reached the database is skipped by its action ID
+        migrations.add(column(7, "punishments", "action_id", "CHAR(36)"));
+        migrations.add(uniqueIndex(8, "punishments", "idx_punishments_action", "action_id"));
+        migrations.add(column(9, "reports", "action_id", "CHAR(36)"));
+        migrations.add(uniqueIndex(10, "reports", "idx_reports_action", "action_id"));
+        // /history: player_name = ? (or player_ip = ?) AND id < ? ORDER BY id DESC
+        migrations.add(index(11, "punishments", "idx_punishments_player_id", "player_name", "id"));
+        migrations.add(index(12, "punishments", "idx_punishments_ip_id", "player_ip", "id"));
+        // Change feed: unbans, unmutes and accepts other servers on this database pick up by ID
+        migrations.add(statement(13, "create moderation_changes table",
+                "CREATE TABLE IF NOT EXISTS moderation_changes (" +
+                        "id " + dialect.autoIncrementPrimaryKey() + ", " +
+                        "change_type VARCHAR(20) NOT NULL, " +
+                        "target VARCHAR(45) NOT NULL, " +
+                        "reporter VARCHAR(16), " +
+                        "change_time BIGINT NOT NULL" +
+                        ")"));
+        // Accounts are keyed by UUID as 16 raw bytes; every name an account logged in with is kept
+        migrations.add(statement(14, "create player_names table",
+                "CREATE TABLE IF NOT EXISTS player_names (" +
+                        "uuid " + dialect.uuidType() + " NOT NULL, " +
+                        "name " + dialect.playerNameType() + " NOT NULL, " +
+                        "first_seen BIGINT NOT NULL, " +
+                        "last_seen BIGINT NOT NULL, " +
+                        "PRIMARY KEY (uuid, name)" +
+                        ")"));
+        // Name to account: name = ? ORDER BY last_seen DESC LIMIT 1
+        migrations.add(index(15, "player_names", "idx_player_names_name_seen", "name", "last_seen"));
+        // Name cache warm-up: ORDER BY last_seen DESC LIMIT ?
+        migrations.add(index(16, "player_names", "idx_player_names_seen", "last_seen"));
+        // Bans and mutes follow the account across renames: player_id = ? AND punishment_type IN (...) AND active = 1
+        migrations.add(column(17, "punishments", "player_id", dialect.uuidType()));
+        migrations.add(index(18, "punishments", "idx_punishments_uuid_type_active",
+                "player_id", "punishment_type", "active", "end_time"));
+        // Every address an account logged in from, for alt detection
+        migrations.add(statement(19, "create player_addresses table",
+                "CREATE TABLE IF NOT EXISTS player_addresses (" +
+                        "uuid " + dialect.uuidType() + " NOT NULL, " +
+                        "ip VARCHAR(45) NOT NULL, " +
+                        "first_seen BIGINT NOT NULL, " +
+                        "last_seen BIGINT NOT NULL, " +
+                        "PRIMARY KEY (uuid, ip)" +
+                        ")"));
+        // Alt index warm-up: last_seen > ? ORDER BY last_seen
+        migrations.add(index(20, "player_addresses", "idx_player_addresses_seen", "last_seen"));
+        // Escalation layouts: offense count warm-up, layout IS NOT NULL GROUP BY player_id, player_name, layout
+        migrations.add(column(21, "punishments", "layout", "VARCHAR(32)"));
+        migrations.add(index(22, "punishments", "idx_punishments_layout_player", "layout", "player_id", "player_name"));
+        // /history of an account: player_id = ? AND id < ? ORDER BY id DESC, next to the (player_name, id) one
+        migrations.add(index(23, "punishments", "idx_punishments_uuid_id", "player_id", "id"));
+        migrations.add(column(24, "reports", "hits", "INT NOT NULL DEFAULT 1"));
+    }
+
+    /**
+     * Brings the schema up to date. Returns false if a migration failed; later ones are then skipped.
+     */
+    boolean migrate() {
+        Connection conn = null;
+        try {
+            conn = connectionPool.getConnection();
+            createVersionTable(conn);
+            int current = getCurrentVersion(conn);
+
+            List<Migration> pending = new ArrayList<>();
+            for (Migration migration : migrations) {
+                if (migration.version > current) {
+                    pending.add(migration);
+                }
+            }
+            Collections.sort(pending, (a, b) -> Integer.compare(a.version, b.version));
+
+            for (Migration migration : pending) {
+                logger.info("Applying schema migration " + migration.version + ": " + migration.description);
+                long start = System.currentTimeMillis();
+                migration.apply(conn);
+                recordVersion(conn, migration);
+                logger.info("Schema migration " + migration.version + " done in " + (System.currentTimeMillis() - start) + "ms.");
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Schema migration failed", e);
+            return false;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Error closing connection", e);
+                }
+            }
+        }
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INT PRIMARY KEY, " +
+                "description VARCHAR(255) NOT NULL, " +
+                "applied_at BIGINT NOT NULL" +
+                ")");
+    }
+
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        Statement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.createStatement();
+            rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version");
+            return rs.next() ? rs.getInt(1) : 0;
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    private void recordVersion(Connection conn, Migration migration) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement("INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)");
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.setLong(3, System.currentTimeMillis());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            // Another server sharing this database may have recorded it first
+            if (getCurrentVersion(conn) < migration.version) {
+                throw e;
+            }
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
+    private static Migration statement(int version, String description, final String sql) {
+        return new Migration(version, description) {
+            @Override
+            void apply(Connection conn) throws SQLException {
+                execute(conn, sql);
+            }
+        };
+    }
+
+    private Migration index(int version, String table, String name, String... columns) {
+        return index(version, false, table, name, columns);
+    }
+
+    private Migration uniqueIndex(int version, String table, String name, String... columns) {
+        return index(version, true, table, name, columns);
+    }
+
+    private Migration index(int version, final boolean unique, final String table, final String name,
+                            final String... columns) {
+        return new Migration(version, "add " + (unique ? "unique " : "") + "index " + name + " on " + table) {
+            @Override
+            void apply(Connection conn) throws SQLException {
+                String kind = unique ? "UNIQUE INDEX " : "INDEX ";
+                if (dialect == SqlDialect.SQLITE) {
+                    execute(conn, "CREATE " + kind + "IF NOT EXISTS " + name + " ON " + table + " (" + String.join(", ", columns) + ")");
+                    return;
+                }
+                if (indexExists(conn, table, name)) {
+                    return;
+                }
+                alterOnline(conn, "ALTER TABLE " + table + " ADD " + kind + name + " (" + String.join(", ", columns) + "), " +
+                        "ALGORITHM=INPLACE, LOCK=NONE");
+            }
+        };
+    }
+
+    private Migration column(int version, final String table, final String column, final String definition) {
+        return new Migration(version, "add column " + column + " to " + table) {
+            @Override
+            void apply(Connection conn) throws SQLException {
+                if (columnExists(conn, table, column)) {
+                    return;
+                }
+                if (dialect == SqlDialect.SQLITE) {
+                    execute(conn, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+                    return;
+                }
+                alterOnline(conn, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition + ", " +
+                        "ALGORITHM=INPLACE, LOCK=NONE");
+            }
+        };
+    }
+
+    private static void alterOnline(Connection conn, String sql) throws SQLException {
+        // Give up quickly instead of queueing every other query behind a metadata lock
+        execute(conn, "SET SESSION lock_wait_timeout = 10");
+        try {
+            execute(conn, sql);
+        } finally {
+            execute(conn, "SET SESSION lock_wait_timeout = DEFAULT");
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        ResultSet rs = null;
+        try {
+            rs = meta.getColumns(conn.getCatalog(), null, table, null);
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+        }
+    }
+
+    private static boolean indexExists(Connection conn, String table, String name) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        ResultSet rs = null;
+        try {
+            rs = meta.getIndexInfo(conn.getCatalog(), null, table, false, false);
+            while (rs.next()) {
+                if (name.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        Statement stmt = null;
+        try {
+            stmt = conn.createStatement();
+            stmt.execute(sql);
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+}
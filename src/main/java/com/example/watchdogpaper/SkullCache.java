@@ -0,0 +1,127 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Player heads with their owner profile already resolved, keyed by player name.
+ * <p>
+ * On 1.8 {@code SkullMeta.setOwner} looks the profile up through the server's user cache
+ * and, on a miss, blocks on a request to Mojang. The profile is therefore looked up on the
+ * async executor, which fills the user cache, and the head is built from it on the main
+ * thread, as item meta is not thread-safe; callers show a placeholder until then.
+ * Resolved heads are kept in an LRU of at most {@code maxSize} entries for {@code ttl} ms.
+ * Main thread only, apart from the lookup itself.
+ */
+final class SkullCache {
+
+    private static final class Cached {
+        final ItemStack head;
+        final long loadedAt;
+
+        Cached(ItemStack head, long loadedAt) {
+            this.head = head;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final Executor async;
+    private final Executor mainThread;
+    private final long ttl;
+    private final Map<String, Cached> heads;
+    private final Map<String, List<Consumer<ItemStack>>> loading = new LinkedHashMap<>();
+
+    SkullCache(Executor async, Executor mainThread, long ttl, final int maxSize) {
+        this.async = async;
+        this.mainThread = mainThread;
+        this.ttl = ttl;
+        this.heads = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of the resolved head, or null if it is not cached (or has expired).
+     */
+    ItemStack getIfPresent(String playerName) {
+        String key = playerName.toLowerCase(Locale.ROOT);
+        Cached cached = heads.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - cached.loadedAt > ttl) {
+            heads.remove(key);
+            return null;
+        }
+        return cached.head.clone();
+    }
+
+    /**
+     * Passes a copy of the resolved head to {@code callback} on the main thread, looking it up
+     * first if needed. Concurrent requests for the same player share one lookup.
+     */
+    void resolve(final String playerName, Consumer<ItemStack> callback) {
+        ItemStack head = getIfPresent(playerName);
+        if (head != null) {
+            callback.accept(head);
+            return;
+        }
+        final String key = playerName.toLowerCase(Locale.ROOT);
+        List<Consumer<ItemStack>> waiting = loading.get(key);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        loading.put(key, waiting);
+        async.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Only the profile lookup; the head itself is built on the main thread
+                Bukkit.getOfflinePlayer(playerName);
+                mainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        ItemStack resolved = createHead(playerName);
+                        heads.put(key, new Cached(resolved, System.currentTimeMillis()));
+                        List<Consumer<ItemStack>> callbacks = loading.remove(key);
+                        if (callbacks != null) {
+                            for (Consumer<ItemStack> waiter : callbacks) {
+                                waiter.accept(resolved.clone());
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * A player head without an owner, shown until the real one has been resolved.
+     */
+    static ItemStack placeholder() {
+        return new ItemStack(Material.SKULL_ITEM, 1, (short) 3);
+    }
+
+    private static ItemStack createHead(String playerName) {
+        ItemStack head = placeholder();
+        SkullMeta meta = (SkullMeta) head.getItemMeta();
+        meta.setOwner(playerName);
+        head.setItemMeta(meta);
+        return head;
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.watchdogpaper;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Routes every moderation write through the {@link WriteAheadSpool} before it reaches storage.
+ * <p>
+ * Callers enforce the action in memory as soon as the write is journaled; storage is attached
+ * once it is reachable and whatever is still pending is replayed by {@link #replay()}. A write
+ * is acknowledged in the spool only after storage has committed it, so an outage or a crash
+ * at any point leaves it in the spool to be retried.
+ */
+final class SpooledWriter {
+
+    private final WriteAheadSpool spool;
+    private final Logger logger;
+    private final Consumer<String> playerChanged;
+    private final Runnable committed;
+    private final Set<String> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile Storage storage;
+
+    /**
+     * @param playerChanged told the player name (and IP and UUID, if known) whenever a punishment or
+     *                      unban/unmute for them has been committed
+     * @param committed     run after any write has been committed
+     */
+    SpooledWriter(WriteAheadSpool spool, Logger logger, Consumer<String> playerChanged, Runnable committed) {
+        this.spool = spool;
+        this.logger = logger;
+        this.playerChanged = playerChanged;
+        this.committed = committed;
+    }
+
+    /**
+     * Starts sending writes to the given storage, which must already be initialized.
+     */
+    void attach(Storage storage) {
+        this.storage = storage;
+    }
+
+    boolean isAttached() {
+        return storage != null;
+    }
+
+    int getPendingCount() {
+        return spool.getPendingCount();
+    }
+
+    // =====================
+    // Writes
+    // =====================
+    /**
+     * Journals the punishment and returns it (without a database ID) for immediate enforcement.
+     */
+    Punishment punish(String playerName, UUID playerId, String playerIP, PunishmentType type, String reason,
+                      String layout, String operator, long startTime, long endTime, boolean silent) {
+        WriteAheadSpool.Entry entry = journal(WriteAheadSpool.Action.PUNISH,
+                playerName, type.name(), reason, operator, Long.toString(startTime), Long.toString(endTime),
+                toString(playerId), playerIP, Boolean.toString(silent), layout);
+        dispatch(entry, null);
+        return toPunishment(entry);
+    }
+
+    /**
+     * @param playerId also lifts bans the account got under an earlier name; may be null
+     */
+    void deactivateBans(String playerName, UUID playerId, Consumer<WriteBehindQueue.Result> callback) {
+        dispatch(journal(WriteAheadSpool.Action.DEACTIVATE_BANS, playerName, toString(playerId)), callback);
+    }
+
+    void deactivateMutes(String playerName, UUID playerId, Consumer<WriteBehindQueue.Result> callback) {
+        dispatch(journal(WriteAheadSpool.Action.DEACTIVATE_MUTES, playerName, toString(playerId)), callback);
+    }
+
+    /**
+     * @param range canonical address or CIDR range, as {@link IpRange#toString()} gives it
+     */
+    void deactivateIpBans(String range, Consumer<WriteBehindQueue.Result> callback) {
+        dispatch(journal(WriteAheadSpool.Action.DEACTIVATE_IP_BANS, range), callback);
+    }
+
+    /**
+     * Journals the report and returns it (without a database ID) for the pending index.
+     */
+    Report insertReport(String reporter, String reported, String reason) {
+        WriteAheadSpool.Entry entry = journal(WriteAheadSpool.Action.REPORT, reporter, reported, reason);
+        dispatch(entry, null);
+        return toReport(entry);
+    }
+
+    void acceptReport(String reporter, String reported, Consumer<WriteBehindQueue.Result> callback) {
+        dispatch(journal(WriteAheadSpool.Action.ACCEPT_REPORT, reporter, reported), callback);
+    }
+
+    /**
+     * Journals one more hit on a report that an identical one was folded into.
+     */
+    void addReportHit(Report report) {
+        dispatch(journal(WriteAheadSpool.Action.REPORT_HIT, report.getActionId(), Integer.toString(report.getId())), null);
+    }
+
+    /**
+     * Sends every pending write that is not already on its way. Safe to call from any thread.
+     */
+    void replay() {
+        if (storage == null) {
+            return;
+        }
+        int sent = 0;
+        for (WriteAheadSpool.Entry entry : spool.getPending()) {
+            if (dispatch(entry, null)) {
+                sent++;
+            }
+        }
+        if (sent > 0) {
+            logger.info("Replaying " + sent + " spooled moderation writes.");
+        }
+    }
+
+    // =====================
+    // Pending state
+    // =====================
+    /**
+     * Applies pending bans, IP bans and unbans to the indexes, on top of whatever storage returned.
+     * Returns the bans that were added.
+     */
+    List<Punishment> applyPendingBans(BanIndex banIndex, IpBanIndex ipBanIndex, long now) {
+        List<Punishment> applied = new ArrayList<>();
+        for (WriteAheadSpool.Entry entry : spool.getPending()) {
+            if (entry.getAction() == WriteAheadSpool.Action.DEACTIVATE_BANS) {
+                banIndex.remove(entry.getArg(0));
+                UUID playerId = toUuid(entry.getArg(1));
+                if (playerId != null) {
+                    banIndex.remove(playerId);
+                }
+            } else if (entry.getAction() == WriteAheadSpool.Action.DEACTIVATE_IP_BANS) {
+                IpRange range = IpRange.parse(entry.getArg(0));
+                if (range != null) {
+                    ipBanIndex.remove(range);
+                }
+            } else if (entry.getAction() == WriteAheadSpool.Action.PUNISH) {
+                Punishment punishment = toPunishment(entry);
+                if (punishment.isExpired(now)) {
+                    continue;
+                }
+                if (PunishmentExpiry.isBan(punishment.getType())) {
+                    banIndex.put(punishment);
+                    applied.add(punishment);
+                } else if (PunishmentExpiry.isIpBan(punishment.getType())) {
+                    ipBanIndex.put(punishment);
+                    applied.add(punishment);
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Applies pending reports, hits and accepts to the index, on top of whatever storage returned.
+     */
+    void applyPendingReports(PendingReports pendingReports) {
+        for (WriteAheadSpool.Entry entry : spool.getPending()) {
+            if (entry.getAction() == WriteAheadSpool.Action.REPORT) {
+                pendingReports.add(toReport(entry));
+            } else if (entry.getAction() == WriteAheadSpool.Action.ACCEPT_REPORT) {
+                pendingReports.accept(entry.getArg(0), entry.getArg(1), entry.getTime());
+            } else if (entry.getAction() == WriteAheadSpool.Action.REPORT_HIT) {
+                pendingReports.addHit(entry.getArg(0), Integer.parseInt(entry.getArg(1)));
+            }
+        }
+    }
+
+    /**
+     * Returns the player's mute after applying pending mutes and unmutes to {@code stored}. A pending
+     * mute only replaces one that ends sooner.
+     */
+    Punishment resolveMute(String playerName, UUID playerId, Punishment stored, long now) {
+        Punishment mute = stored;
+        String key = playerName.toLowerCase(Locale.ROOT);
+        String id = toString(playerId);
+        for (WriteAheadSpool.Entry entry : spool.getPending()) {
+            if (entry.getAction() != WriteAheadSpool.Action.PUNISH
+                    && entry.getAction() != WriteAheadSpool.Action.DEACTIVATE_MUTES) {
+                continue;
+            }
+            // PUNISH journals the UUID as argument 6, the deactivations as argument 1
+            String entryId = entry.getArg(entry.getAction() == WriteAheadSpool.Action.PUNISH ? 6 : 1);
+            if (!entry.getArg(0).toLowerCase(Locale.ROOT).equals(key) && (id == null || !id.equals(entryId))) {
+                continue;
+            }
+            if (entry.getAction() == WriteAheadSpool.Action.DEACTIVATE_MUTES) {
+                mute = null;
+            } else if (entry.getAction() == WriteAheadSpool.Action.PUNISH) {
+                Punishment punishment = toPunishment(entry);
+                if ((punishment.getType() == PunishmentType.MUTE || punishment.getType() == PunishmentType.TEMPMUTE)
+                        && (mute == null || !mute.endsAfter(punishment))) {
+                    mute = punishment;
+                }
+            }
+        }
+        return mute == null || mute.isExpired(now) ? null : mute;
+    }
+
+    private WriteAheadSpool.Entry journal(WriteAheadSpool.Action action, String... args) {
+        try {
+            return spool.append(action, args);
+        } catch (IOException e) {
+            // Still send it; it is only lost if the database is unreachable as well
+            logger.log(Level.SEVERE, "Failed to journal " + action + " write to the spool", e);
+            return new WriteAheadSpool.Entry(UUID.randomUUID().toString(), action, System.currentTimeMillis(), args);
+        }
+    }
+
+    /**
+     * Sends the entry to storage unless storage is detached or the entry is already in flight.
+     * A detached storage fails the callback right away. Returns true if the entry was sent.
+     */
+    private boolean dispatch(final WriteAheadSpool.Entry entry, final Consumer<WriteBehindQueue.Result> callback) {
+        Storage target = storage;
+        if (target == null) {
+            if (callback != null) {
+                callback.accept(new WriteBehindQueue.Result(0, 0, new SQLException("Storage is not connected")));
+            }
+            return false;
+        }
+        if (!inFlight.add(entry.getId())) {
+            return false;
+        }
+        Consumer<WriteBehindQueue.Result> done = result -> {
+            complete(entry, result.isSuccess());
+            if (callback != null) {
+                callback.accept(result);
+            }
+        };
+        switch (entry.getAction()) {
+            case PUNISH:
+                target.insertPunishment(toPunishment(entry), entry.getArg(7),
+                        Boolean.parseBoolean(entry.getArg(8)),
+                        stored -> complete(entry, stored != null));
+                break;
+            case DEACTIVATE_BANS:
+                target.deactivateBans(entry.getArg(0), toUuid(entry.getArg(1)), entry.getTime(), done);
+                break;
+            case DEACTIVATE_MUTES:
+                target.deactivateMutes(entry.getArg(0), toUuid(entry.getArg(1)), entry.getTime(), done);
+                break;
+            case REPORT:
+                target.insertReport(entry.getId(), entry.getArg(0), entry.getArg(1), entry.getArg(2), entry.getTime(), done);
+                break;
+            case ACCEPT_REPORT:
+                target.acceptReport(entry.getArg(0), entry.getArg(1), entry.getTime(), done);
+                break;
+            case DEACTIVATE_IP_BANS:
+                target.deactivateIpBans(entry.getArg(0), entry.getTime(), done);
+                break;
+            case REPORT_HIT:
+                target.addReportHit(entry.getArg(0), Integer.parseInt(entry.getArg(1)), done);
+                break;
+        }
+        return true;
+    }
+
+    private void complete(WriteAheadSpool.Entry entry, boolean success) {
+        if (success) {
+            spool.acknowledge(entry.getId());
+            WriteAheadSpool.Action action = entry.getAction();
+            if (action == WriteAheadSpool.Action.PUNISH || action == WriteAheadSpool.Action.DEACTIVATE_BANS
+                    || action == WriteAheadSpool.Action.DEACTIVATE_MUTES || action == WriteAheadSpool.Action.DEACTIVATE_IP_BANS) {
+                playerChanged.accept(entry.getArg(0));
+                if (action == WriteAheadSpool.Action.PUNISH && entry.getArg(7) != null) {
+                    playerChanged.accept(entry.getArg(7));
+                }
+                String playerId = action == WriteAheadSpool.Action.PUNISH ? entry.getArg(6)
+                        : action == WriteAheadSpool.Action.DEACTIVATE_IP_BANS ? null : entry.getArg(1);
+                if (playerId != null) {
+                    playerChanged.accept(playerId);
+                }
+            }
+            committed.run();
+        }
+        inFlight.remove(entry.getId());
+    }
+
+    private static Report toReport(WriteAheadSpool.Entry entry) {
+        return new Report(0, entry.getId(), entry.getArg(0), entry.getArg(1), entry.getArg(2), entry.getTime());
+    }
+
+    private static Punishment toPunishment(WriteAheadSpool.Entry entry) {
+        return new Punishment(0, entry.getId(), entry.getArg(0), toUuid(entry.getArg(6)), entry.getArg(7),
+                // Entries journaled before layouts have no argument 9 and read it as null
+                PunishmentType.valueOf(entry.getArg(1)), entry.getArg(2), entry.getArg(9), entry.getArg(3),
+                Long.parseLong(entry.getArg(4)), Long.parseLong(entry.getArg(5)));
+    }
+
+    private static UUID toUuid(String value) {
+        return value == null ? null : UUID.fromString(value);
+    }
+
+    private static String toString(UUID uuid) {
+        return uuid == null ? null : uuid.toString();
+    }
+}
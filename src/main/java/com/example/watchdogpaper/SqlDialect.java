@@ -0,0 +1,199 @@
+package com.example.watchdogpaper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * The few places where MySQL and SQLite SQL differ.
+ */
+enum SqlDialect {
+
+    MYSQL {
+        @Override
+        String autoIncrementPrimaryKey() {
+            return "INT AUTO_INCREMENT PRIMARY KEY";
+        }
+
+        @Override
+        String insertIgnoringDuplicates(String table, String columns, String values) {
+            // Unlike INSERT IGNORE this does not also swallow truncation and NOT NULL errors
+            return "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ") ON DUPLICATE KEY UPDATE id = id";
+        }
+
+        @Override
+        String upsert(String table, String columns, String values, String key, String... updates) {
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (").append(columns)
+                    .append(") VALUES (").append(values).append(") ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < updates.length; i++) {
+                sql.append(i == 0 ? "" : ", ").append(updates[i]).append(" = VALUES(").append(updates[i]).append(')');
+            }
+            return sql.toString();
+        }
+
+        @Override
+        String uuidType() {
+            return "BINARY(16)";
+        }
+
+        @Override
+        String playerNameType() {
+            // The default collation already compares case-insensitively
+            return "VARCHAR(16)";
+        }
+
+        @Override
+        boolean supportsBatchGeneratedKeys() {
+            return true;
+        }
+
+        @Override
+        int maxRowsPerInsert(int columns) {
+            // Well under the 65535 placeholders a statement may have and the default max_allowed_packet
+            return Math.max(1, Math.min(1000, 65535 / columns));
+        }
+
+        @Override
+        long readTimestamp(ResultSet rs, String column) throws SQLException {
+            Timestamp timestamp = rs.getTimestamp(column);
+            return timestamp == null ? 0 : timestamp.getTime();
+        }
+
+        @Override
+        Object writeTimestamp(long time) {
+            return new Timestamp(time);
+        }
+    },
+
+    SQLITE {
+        @Override
+        String autoIncrementPrimaryKey() {
+            return "INTEGER PRIMARY KEY AUTOINCREMENT";
+        }
+
+        @Override
+        String insertIgnoringDuplicates(String table, String columns, String values) {
+            return "INSERT OR IGNORE INTO " + table + " (" + columns + ") VALUES (" + values + ")";
+        }
+
+        @Override
+        String upsert(String table, String columns, String values, String key, String... updates) {
+            // ON CONFLICT DO UPDATE needs SQLite 3.24; on 3.7.2 the row is replaced instead, carrying
+            // over the columns that are not updated from the row it replaces, if there was one
+            String[] names = columns.split(", ");
+            String[] params = values.split(", ");
+            String[] keys = key.split(", ");
+            List<String> updated = Arrays.asList(updates);
+            StringBuilder selected = new StringBuilder();
+            StringBuilder given = new StringBuilder();
+            for (int i = 0; i < names.length; i++) {
+                String separator = i == 0 ? "" : ", ";
+                given.append(separator).append(params[i]).append(" AS ").append(names[i]);
+                if (updated.contains(names[i])) {
+                    selected.append(separator).append("v.").append(names[i]);
+                } else {
+                    selected.append(separator).append("CASE WHEN o.").append(keys[0]).append(" IS NULL THEN v.")
+                            .append(names[i]).append(" ELSE o.").append(names[i]).append(" END");
+                }
+            }
+            StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO ").append(table).append(" (").append(columns)
+                    .append(") SELECT ").append(selected).append(" FROM (SELECT ").append(given).append(") v LEFT JOIN ")
+                    .append(table).append(" o ON ");
+            for (int i = 0; i < keys.length; i++) {
+                sql.append(i == 0 ? "" : " AND ").append("o.").append(keys[i]).append(" = v.").append(keys[i]);
+            }
+            return sql.toString();
+        }
+
+        @Override
+        String uuidType() {
+            return "BLOB";
+        }
+
+        @Override
+        String playerNameType() {
+            return "VARCHAR(16) COLLATE NOCASE";
+        }
+
+        @Override
+        boolean supportsBatchGeneratedKeys() {
+            // The driver only reports last_insert_rowid() after executeBatch
+            return false;
+        }
+
+        @Override
+        int maxRowsPerInsert(int columns) {
+            // The SQLite the servers ship (3.7.2) predates multi-row VALUES; in one transaction
+            // a batch of single-row statements costs no round trips anyway
+            return 1;
+        }
+
+        @Override
+        long readTimestamp(ResultSet rs, String column) throws SQLException {
+            // CURRENT_TIMESTAMP is stored as UTC text, e.g. 2024-01-31 18:04:05
+            String value = rs.getString(column);
+            if (value == null) {
+                return 0;
+            }
+            try {
+                return utcFormat().parse(value).getTime();
+            } catch (ParseException e) {
+                throw new SQLException("Unreadable timestamp '" + value + "' in column " + column, e);
+            }
+        }
+
+        @Override
+        Object writeTimestamp(long time) {
+            // Same text form CURRENT_TIMESTAMP produces, so both read back alike
+            return utcFormat().format(new Date(time));
+        }
+
+        private SimpleDateFormat utcFormat() {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return format;
+        }
+    };
+
+    abstract String autoIncrementPrimaryKey();
+
+    /**
+     * An INSERT that silently skips rows colliding with a unique key, used to make replays idempotent.
+     */
+    abstract String insertIgnoringDuplicates(String table, String columns, String values);
+
+    /**
+     * An INSERT that, when the row already exists under {@code key}, overwrites the {@code updates} columns instead.
+     */
+    abstract String upsert(String table, String columns, String values, String key, String... updates);
+
+    /**
+     * Column type holding a UUID as its 16 raw bytes.
+     */
+    abstract String uuidType();
+
+    /**
+     * Column type for player names that compares them case-insensitively, as Minecraft does.
+     */
+    abstract String playerNameType();
+
+    abstract boolean supportsBatchGeneratedKeys();
+
+    /**
+     * Most rows one multi-row INSERT may carry with this many columns per row.
+     */
+    abstract int maxRowsPerInsert(int columns);
+
+    abstract long readTimestamp(ResultSet rs, String column) throws SQLException;
+
+    /**
+     * The JDBC parameter to bind for a TIMESTAMP column holding {@code time} (epoch millis).
+     */
+    abstract Object writeTimestamp(long time);
+}
@@ -0,0 +1,767 @@
+package com.example.watchdogpaper;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JDBC storage shared by the MySQL and SQLite backends. Subclasses only decide how
+ * connections are opened; the SQL itself is kept portable, with the differences in {@link SqlDialect}.
+ */
+abstract class SqlStorage implements Storage {
+
+    private static final String IMPORT_COLUMNS =
+            "action_id, player_name, player_id, player_ip, punishment_type, reason, operator, duration, " +
+                    "start_time, end_time, active, silent";
+    private static final int IMPORT_COLUMN_COUNT = 12;
+    // Action IDs looked up per query, under the 999 parameters the SQLite the servers ship allows
+    private static final int IMPORT_LOOKUP_SIZE = 500;
+    private static final String PUNISHMENT_COLUMNS =
+            "id, action_id, player_name, player_id, player_ip, punishment_type, reason, layout, operator, start_time, end_time";
+
+    protected final Logger logger;
+    protected final Metrics metrics;
+    private final SqlDialect dialect;
+    private final Executor callbackExecutor;
+    private final int batchSize;
+    private final long flushInterval;
+    private ConnectionPool connectionPool;
+    private WriteBehindQueue writeQueue;
+
+    SqlStorage(SqlDialect dialect, Logger logger, Metrics metrics, Executor callbackExecutor, int batchSize,
+               long flushInterval) {
+        this.dialect = dialect;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.callbackExecutor = callbackExecutor;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Creates the pool this backend reads and writes through.
+     */
+    protected abstract ConnectionPool createConnectionPool() throws SQLException;
+
+    @Override
+    public void init() throws SQLException {
+        connectionPool = createConnectionPool();
+        Connection conn = null;
+        try {
+            // Open the first connection eagerly so bad credentials fail at startup
+            conn = connectionPool.getConnection();
+        } catch (SQLException e) {
+            connectionPool.close();
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.close();
+            }
+        }
+
+        if (!new SchemaMigrator(connectionPool, dialect, logger).migrate()) {
+            logger.severe("Database schema could not be fully migrated; some lookups may be slow or fail.");
+        }
+        writeQueue = new WriteBehindQueue(connectionPool, callbackExecutor, logger, metrics, batchSize, flushInterval,
+                dialect.supportsBatchGeneratedKeys());
+    }
+
+    @Override
+    public void close() {
+        if (writeQueue != null) {
+            writeQueue.shutdown(10000L);
+        }
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+    }
+
+    // =====================
+    // Punishments
+    // =====================
+    @Override
+    public void insertPunishment(final Punishment punishment, String playerIP, boolean silent,
+                                 final Consumer<Punishment> callback) {
+        boolean temporary = !punishment.isPermanent();
+        writeQueue.insert(
+                dialect.insertIgnoringDuplicates("punishments",
+                        "action_id, player_name, player_id, player_ip, punishment_type, " +
+                                "reason, layout, operator, duration, start_time, end_time, silent",
+                        "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?"),
+                new Object[]{punishment.getActionId(), punishment.getPlayerName(), toBytes(punishment.getPlayerId()), playerIP,
+                        punishment.getType().name(),
+                        punishment.getReason(), punishment.getLayout(), punishment.getOperator(),
+                        temporary ? punishment.getEndTime() - punishment.getStartTime() : null,
+                        punishment.getStartTime(), temporary ? punishment.getEndTime() : null, silent},
+                result -> {
+                    if (!result.isSuccess()) {
+                        callback.accept(null);
+                        return;
+                    }
+                    // No row affected: an earlier attempt of this action already stored it
+                    callback.accept(punishment.withId(result.getUpdateCount() > 0 ? result.getGeneratedKey() : 0));
+                });
+    }
+
+    @Override
+    public void deactivateBans(String playerName, UUID playerId, long before, Consumer<WriteBehindQueue.Result> callback) {
+        logChange(Change.Type.UNBAN, playerName, null, before);
+        // A NULL player_id matches nothing, so an unknown account falls back to the name alone
+        writeQueue.update(
+                "UPDATE punishments SET active = 0 WHERE (player_name = ? OR player_id = ?) " +
+                        "AND punishment_type IN ('BAN', 'TEMPBAN') AND active = 1 AND start_time <= ?",
+                new Object[]{playerName, toBytes(playerId), before}, callback);
+    }
+
+    @Override
+    public void deactivateMutes(String playerName, UUID playerId, long before, Consumer<WriteBehindQueue.Result> callback) {
+        logChange(Change.Type.UNMUTE, playerName, null, before);
+        writeQueue.update(
+                "UPDATE punishments SET active = 0 WHERE (player_name = ? OR player_id = ?) " +
+                        "AND punishment_type IN ('MUTE', 'TEMPMUTE') AND active = 1 AND start_time <= ?",
+                new Object[]{playerName, toBytes(playerId), before}, callback);
+    }
+
+    @Override
+    public void deactivateIpBans(String range, long before, Consumer<WriteBehindQueue.Result> callback) {
+        logChange(Change.Type.UNBAN_IP, range, null, before);
+        writeQueue.update(
+                "UPDATE punishments SET active = 0 WHERE player_ip = ? AND punishment_type IN ('IPBAN', 'TEMPIPBAN') AND active = 1 " +
+                        "AND start_time <= ?",
+                new Object[]{range, before}, callback);
+    }
+
+    @Override
+    public void deactivateExpired(Punishment punishment, long now, Consumer<WriteBehindQueue.Result> callback) {
+        // Same SQL for every expiry, so the writer sends each second's worth as one batch
+        if (PunishmentExpiry.isIpBan(punishment.getType())) {
+            writeQueue.update(
+                    "UPDATE punishments SET active = 0 WHERE player_ip = ? AND punishment_type = ? AND active = 1 AND end_time <= ?",
+                    new Object[]{punishment.getPlayerIp(), punishment.getType().name(), now}, callback);
+            return;
+        }
+        writeQueue.update(
+                "UPDATE punishments SET active = 0 WHERE player_name = ? AND punishment_type = ? AND active = 1 AND end_time <= ?",
+                new Object[]{punishment.getPlayerName(), punishment.getType().name(), now}, callback);
+    }
+
+    @Override
+    public void deactivateAllExpired(long now, Consumer<WriteBehindQueue.Result> callback) {
+        writeQueue.update(
+                "UPDATE punishments SET active = 0 WHERE active = 1 AND end_time IS NOT NULL AND end_time <= ?",
+                new Object[]{now}, callback);
+    }
+
+    @Override
+    public List<Punishment> importPunishments(List<Punishment> punishments, long now) throws SQLException {
+        int rowsPerInsert = dialect.maxRowsPerInsert(IMPORT_COLUMN_COUNT);
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        PreparedStatement tail = null;
+        try {
+            conn.setAutoCommit(false);
+            try {
+                // A multi-row INSERT does not say which of its rows were duplicates, so look them up first
+                List<Punishment> added = withoutStored(conn, punishments);
+                int fullRows = added.size() / rowsPerInsert * rowsPerInsert;
+                if (fullRows > 0) {
+                    stmt = conn.prepareStatement(importSql(rowsPerInsert));
+                    for (int start = 0; start < fullRows; start += rowsPerInsert) {
+                        bindImport(stmt, added, start, rowsPerInsert, now);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                if (fullRows < added.size()) {
+                    tail = conn.prepareStatement(importSql(added.size() - fullRows));
+                    bindImport(tail, added, fullRows, added.size() - fullRows, now);
+                    tail.executeUpdate();
+                }
+                conn.commit();
+                return added;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            close(null, tail, null);
+            close(conn, stmt, null);
+        }
+    }
+
+    /**
+     * Returns the punishments whose action ID is not stored yet, each once.
+     */
+    private List<Punishment> withoutStored(Connection conn, List<Punishment> punishments) throws SQLException {
+        Set<String> stored = new HashSet<>();
+        for (int start = 0; start < punishments.size(); start += IMPORT_LOOKUP_SIZE) {
+            int rows = Math.min(IMPORT_LOOKUP_SIZE, punishments.size() - start);
+            StringBuilder sql = new StringBuilder("SELECT action_id FROM punishments WHERE action_id IN (");
+            for (int i = 0; i < rows; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            PreparedStatement stmt = conn.prepareStatement(sql.append(")").toString());
+            ResultSet rs = null;
+            try {
+                for (int i = 0; i < rows; i++) {
+                    stmt.setString(i + 1, punishments.get(start + i).getActionId());
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    stored.add(rs.getString(1));
+                }
+            } finally {
+                close(null, stmt, rs);
+            }
+        }
+        List<Punishment> added = new ArrayList<>(punishments.size());
+        for (Punishment punishment : punishments) {
+            if (stored.add(punishment.getActionId())) {
+                added.add(punishment);
+            }
+        }
+        return added;
+    }
+
+    private String importSql(int rows) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            values.append(i == 0 ? "" : "), (").append("?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?");
+        }
+        return dialect.insertIgnoringDuplicates("punishments", IMPORT_COLUMNS, values.toString());
+    }
+
+    private static void bindImport(PreparedStatement stmt, List<Punishment> punishments, int start, int rows, long now)
+            throws SQLException {
+        int index = 1;
+        for (int i = start; i < start + rows; i++) {
+            Punishment punishment = punishments.get(i);
+            boolean temporary = !punishment.isPermanent();
+            stmt.setString(index++, punishment.getActionId());
+            stmt.setString(index++, punishment.getPlayerName());
+            stmt.setBytes(index++, toBytes(punishment.getPlayerId()));
+            stmt.setString(index++, punishment.getPlayerIp());
+            stmt.setString(index++, punishment.getType().name());
+            stmt.setString(index++, punishment.getReason());
+            stmt.setString(index++, punishment.getOperator());
+            if (temporary) {
+                stmt.setLong(index++, punishment.getEndTime() - punishment.getStartTime());
+            } else {
+                stmt.setNull(index++, Types.BIGINT);
+            }
+            stmt.setLong(index++, punishment.getStartTime());
+            if (temporary) {
+                stmt.setLong(index++, punishment.getEndTime());
+            } else {
+                stmt.setNull(index++, Types.BIGINT);
+            }
+            stmt.setBoolean(index++, !punishment.isExpired(now));
+            stmt.setBoolean(index++, false);
+        }
+    }
+
+    @Override
+    public List<Punishment> loadActiveBans(long now) throws SQLException {
+        return loadActive("punishment_type IN ('BAN', 'TEMPBAN') AND active = 1 AND (end_time IS NULL OR end_time > ?)", now);
+    }
+
+    @Override
+    public List<Punishment> loadActiveTempMutes(long now) throws SQLException {
+        return loadActive("punishment_type = 'TEMPMUTE' AND active = 1 AND end_time > ?", now);
+    }
+
+    @Override
+    public List<Punishment> loadActiveIpBans(long now) throws SQLException {
+        return loadActive("punishment_type IN ('IPBAN', 'TEMPIPBAN') AND active = 1 AND (end_time IS NULL OR end_time > ?)", now);
+    }
+
+    private List<Punishment> loadActive(String where, long now) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement("SELECT " + PUNISHMENT_COLUMNS + " FROM punishments WHERE " + where);
+            stmt.setLong(1, now);
+            rs = stmt.executeQuery();
+            List<Punishment> punishments = new ArrayList<>();
+            while (rs.next()) {
+                punishments.add(readPunishment(rs));
+            }
+            return punishments;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public Punishment findActiveMute(String playerName, UUID playerId, long now) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            // Rows of a known account match on it alone, so a mute placed on a name the account
+            // no longer uses still applies and one placed on another account that used it does not
+            stmt = conn.prepareStatement(
+                    "SELECT " + PUNISHMENT_COLUMNS + " FROM punishments " +
+                            "WHERE (player_id = ? OR (player_id IS NULL AND player_name = ?)) " +
+                            "AND punishment_type IN ('MUTE', 'TEMPMUTE') AND active = 1 AND (end_time IS NULL OR end_time > ?) " +
+                            "ORDER BY end_time IS NULL DESC, end_time DESC LIMIT 1"
+            );
+            stmt.setBytes(1, toBytes(playerId));
+            stmt.setString(2, playerName);
+            stmt.setLong(3, now);
+            rs = stmt.executeQuery();
+            return rs.next() ? readPunishment(rs) : null;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    // =====================
+    // History
+    // =====================
+    @Override
+    public List<HistoryEntry> getHistory(String target, UUID playerId, boolean byIp, int beforeId, int limit)
+            throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            // Seek, not OFFSET: range scans on (player_id, id), (player_name, id) or (player_ip, id) however deep the page
+            stmt = conn.prepareStatement(
+                    "SELECT " + PUNISHMENT_COLUMNS + ", active FROM punishments " +
+                            "WHERE " + historyFilter(playerId, byIp) + " AND id < ? ORDER BY id DESC LIMIT ?"
+            );
+            int index = bindHistoryFilter(stmt, target, playerId, byIp);
+            stmt.setInt(index++, beforeId);
+            stmt.setInt(index, limit);
+            rs = stmt.executeQuery();
+            List<HistoryEntry> entries = new ArrayList<>();
+            while (rs.next()) {
+                entries.add(new HistoryEntry(readPunishment(rs), rs.getBoolean("active")));
+            }
+            return entries;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public int findHistoryCursor(String target, UUID playerId, boolean byIp, int beforeId, int limit)
+            throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(
+                    "SELECT MIN(id) FROM (SELECT id FROM punishments " +
+                            "WHERE " + historyFilter(playerId, byIp) + " AND id < ? ORDER BY id DESC LIMIT ?) page"
+            );
+            int index = bindHistoryFilter(stmt, target, playerId, byIp);
+            stmt.setInt(index++, beforeId);
+            stmt.setInt(index, limit);
+            rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public int countHistory(String target, UUID playerId, boolean byIp) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement("SELECT COUNT(*) FROM punishments WHERE " + historyFilter(playerId, byIp));
+            bindHistoryFilter(stmt, target, playerId, byIp);
+            rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public List<OffenseCount> countOffenses() throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(
+                    "SELECT player_id, player_name, layout, COUNT(*) AS offenses FROM punishments " +
+                            "WHERE layout IS NOT NULL GROUP BY player_id, player_name, layout");
+            rs = stmt.executeQuery();
+            List<OffenseCount> counts = new ArrayList<>();
+            while (rs.next()) {
+                counts.add(new OffenseCount(toUuid(rs.getBytes("player_id")), rs.getString("player_name"),
+                        rs.getString("layout"), rs.getInt("offenses")));
+            }
+            return counts;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    /**
+     * Rows of a known account match on it alone, plus those placed on the name before the account
+     * was known, as for the active mute; without the account, every row under the name.
+     */
+    private static String historyFilter(UUID playerId, boolean byIp) {
+        if (byIp) {
+            return "player_ip = ?";
+        }
+        return playerId == null ? "player_name = ?" : "(player_id = ? OR (player_id IS NULL AND player_name = ?))";
+    }
+
+    /**
+     * Binds the parameters of {@link #historyFilter} and returns the index of the next one.
+     */
+    private static int bindHistoryFilter(PreparedStatement stmt, String target, UUID playerId, boolean byIp)
+            throws SQLException {
+        int index = 1;
+        if (!byIp && playerId != null) {
+            stmt.setBytes(index++, toBytes(playerId));
+        }
+        stmt.setString(index++, target);
+        return index;
+    }
+
+    // =====================
+    // Players
+    // =====================
+    @Override
+    public void recordName(UUID playerId, String name, long time) {
+        // Same SQL for every login, so a join wave is written as one batch
+        writeQueue.update(
+                dialect.upsert("player_names", "uuid, name, first_seen, last_seen", "?, ?, ?, ?", "uuid, name",
+                        "name", "last_seen"),
+                new Object[]{toBytes(playerId), name, time, time}, null);
+    }
+
+    @Override
+    public PlayerIdentity findPlayer(String name) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement("SELECT uuid, name FROM player_names WHERE name = ? ORDER BY last_seen DESC LIMIT 1");
+            stmt.setString(1, name);
+            rs = stmt.executeQuery();
+            return rs.next() ? new PlayerIdentity(toUuid(rs.getBytes("uuid")), rs.getString("name")) : null;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public List<PlayerIdentity> loadRecentPlayers(int limit) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            // An account that renamed has a row per name; only the newest one is its current name
+            stmt = conn.prepareStatement("SELECT uuid, name FROM player_names ORDER BY last_seen DESC LIMIT ?");
+            stmt.setInt(1, limit);
+            rs = stmt.executeQuery();
+            List<PlayerIdentity> players = new ArrayList<>();
+            while (rs.next()) {
+                players.add(new PlayerIdentity(toUuid(rs.getBytes("uuid")), rs.getString("name")));
+            }
+            return players;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public PlayerIdentity findPlayer(UUID playerId) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement("SELECT name FROM player_names WHERE uuid = ? ORDER BY last_seen DESC LIMIT 1");
+            stmt.setBytes(1, toBytes(playerId));
+            rs = stmt.executeQuery();
+            return rs.next() ? new PlayerIdentity(playerId, rs.getString("name")) : null;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public void recordAddress(UUID playerId, String address, long time) {
+        writeQueue.update(
+                dialect.upsert("player_addresses", "uuid, ip, first_seen, last_seen", "?, ?, ?, ?", "uuid, ip",
+                        "last_seen"),
+                new Object[]{toBytes(playerId), address, time, time}, null);
+    }
+
+    @Override
+    public List<AccountAddress> loadAddresses(long since) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            // Oldest first, so each account's last address is the one read last
+            stmt = conn.prepareStatement("SELECT uuid, ip FROM player_addresses WHERE last_seen > ? ORDER BY last_seen");
+            stmt.setLong(1, since);
+            rs = stmt.executeQuery();
+            List<AccountAddress> addresses = new ArrayList<>();
+            while (rs.next()) {
+                addresses.add(new AccountAddress(toUuid(rs.getBytes("uuid")), rs.getString("ip")));
+            }
+            return addresses;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    // =====================
+    // Reports
+    // =====================
+    @Override
+    public void insertReport(String actionId, String reporter, String reported, String reason, long timestamp,
+                             Consumer<WriteBehindQueue.Result> callback) {
+        writeQueue.insert(
+                dialect.insertIgnoringDuplicates("reports",
+                        "action_id, reporter, reported, reason, timestamp, status", "?, ?, ?, ?, ?, 'pending'"),
+                new Object[]{actionId, reporter, reported, reason, dialect.writeTimestamp(timestamp)}, callback);
+    }
+
+    @Override
+    public void acceptReport(String reporter, String reported, long before, Consumer<WriteBehindQueue.Result> callback) {
+        logChange(Change.Type.ACCEPT_REPORT, reported, reporter, before);
+        // The column keeps whole seconds (MySQL rounds to them), so the bound is rounded up to one
+        writeQueue.update(
+                "UPDATE reports SET status = 'accepted' WHERE reporter = ? AND reported = ? AND status = 'pending' " +
+                        "AND timestamp <= ?",
+                new Object[]{reporter, reported, dialect.writeTimestamp((before + 999) / 1000 * 1000)}, callback);
+    }
+
+    @Override
+    public void addReportHit(String actionId, int id, Consumer<WriteBehindQueue.Result> callback) {
+        if (actionId != null) {
+            writeQueue.update("UPDATE reports SET hits = hits + 1 WHERE action_id = ?", new Object[]{actionId}, callback);
+        } else {
+            writeQueue.update("UPDATE reports SET hits = hits + 1 WHERE id = ?", new Object[]{id}, callback);
+        }
+    }
+
+    @Override
+    public List<Report> loadPendingReports() throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(
+                    "SELECT id, action_id, reporter, reported, reason, timestamp, hits FROM reports WHERE status = 'pending' ORDER BY timestamp DESC");
+            rs = stmt.executeQuery();
+            return readReports(rs);
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    private List<Report> readReports(ResultSet rs) throws SQLException {
+        List<Report> reports = new ArrayList<>();
+        while (rs.next()) {
+            reports.add(new Report(
+                    rs.getInt("id"),
+                    rs.getString("action_id"),
+                    rs.getString("reporter"),
+                    rs.getString("reported"),
+                    rs.getString("reason"),
+                    dialect.readTimestamp(rs, "timestamp"),
+                    rs.getInt("hits")
+            ));
+        }
+        return reports;
+    }
+
+    // =====================
+    // Counts
+    // =====================
+    @Override
+    public List<HourlyBanCount> countBansByHour(long sinceTime) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            // start_time - start_time % 3600000 truncates to the hour on both MySQL and SQLite
+            stmt = conn.prepareStatement(
+                    "SELECT start_time - start_time % 3600000 AS hour_start, operator, COUNT(*) AS count FROM punishments " +
+                            "WHERE punishment_type IN ('BAN', 'TEMPBAN') AND start_time > ? " +
+                            "GROUP BY start_time - start_time % 3600000, operator"
+            );
+            stmt.setLong(1, sinceTime);
+            rs = stmt.executeQuery();
+            List<HourlyBanCount> counts = new ArrayList<>();
+            while (rs.next()) {
+                counts.add(new HourlyBanCount(rs.getLong("hour_start"), rs.getString("operator"), rs.getInt("count")));
+            }
+            return counts;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    // =====================
+    // Change Feed
+    // =====================
+    /**
+     * Queued alongside the write it describes; a replayed write may log it twice, which readers tolerate.
+     */
+    private void logChange(Change.Type type, String target, String reporter, long time) {
+        writeQueue.insert(
+                "INSERT INTO moderation_changes (change_type, target, reporter, change_time) VALUES (?, ?, ?, ?)",
+                new Object[]{type.name(), target, reporter, time}, null);
+    }
+
+    @Override
+    public FeedPosition getFeedHead() throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(
+                    "SELECT (SELECT COALESCE(MAX(id), 0) FROM punishments), (SELECT COALESCE(MAX(id), 0) FROM reports), " +
+                            "(SELECT COALESCE(MAX(id), 0) FROM moderation_changes)");
+            rs = stmt.executeQuery();
+            rs.next();
+            return new FeedPosition(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public List<HistoryEntry> getPunishmentsAfter(int afterId, int limit) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(
+                    "SELECT " + PUNISHMENT_COLUMNS + ", active FROM punishments WHERE id > ? ORDER BY id LIMIT ?");
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            rs = stmt.executeQuery();
+            List<HistoryEntry> entries = new ArrayList<>();
+            while (rs.next()) {
+                entries.add(new HistoryEntry(readPunishment(rs), rs.getBoolean("active")));
+            }
+            return entries;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public List<Report> getPendingReportsAfter(int afterId, int limit) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(
+                    "SELECT id, action_id, reporter, reported, reason, timestamp, hits FROM reports " +
+                            "WHERE id > ? AND status = 'pending' ORDER BY id LIMIT ?");
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            rs = stmt.executeQuery();
+            return readReports(rs);
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    @Override
+    public List<Change> getChangesAfter(int afterId, int limit) throws SQLException {
+        Connection conn = connectionPool.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = conn.prepareStatement(
+                    "SELECT id, change_type, target, reporter, change_time FROM moderation_changes WHERE id > ? ORDER BY id LIMIT ?");
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            rs = stmt.executeQuery();
+            List<Change> changes = new ArrayList<>();
+            while (rs.next()) {
+                changes.add(new Change(rs.getInt("id"), Change.Type.valueOf(rs.getString("change_type")),
+                        rs.getString("target"), rs.getString("reporter"), rs.getLong("change_time")));
+            }
+            return changes;
+        } finally {
+            close(conn, stmt, rs);
+        }
+    }
+
+    protected static Punishment readPunishment(ResultSet rs) throws SQLException {
+        return new Punishment(
+                rs.getInt("id"),
+                rs.getString("action_id"),
+                rs.getString("player_name"),
+                toUuid(rs.getBytes("player_id")),
+                rs.getString("player_ip"),
+                PunishmentType.valueOf(rs.getString("punishment_type")),
+                rs.getString("reason"),
+                rs.getString("layout"),
+                rs.getString("operator"),
+                rs.getLong("start_time"),
+                rs.getLong("end_time") // NULL reads as 0 = permanent
+        );
+    }
+
+    protected static byte[] toBytes(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    protected static UUID toUuid(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    protected void close(Connection conn, PreparedStatement stmt, ResultSet rs) {
+        if (rs != null) {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Error closing result set", e);
+            }
+        }
+        if (stmt != null) {
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Error closing statement", e);
+            }
+        }
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Error closing connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.watchdogpaper;
+
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The online players who receive each kind of staff notification.
+ * <p>
+ * Membership is decided once when a player joins and re-checked when they change world and
+ * on a periodic resync (Bukkit has no event for permission changes), so a broadcast is a
+ * direct loop over a handful of players instead of a permission check on everyone online.
+ * Main thread only.
+ */
+final class StaffAudience {
+
+    enum Tier {
+        /** Punishment announcements. */
+        STAFF("watchdog.staff"),
+        /** New report notifications. */
+        REPORTS("farepixel.admin", "watchdog.admin");
+
+        private final String[] permissions;
+
+        Tier(String... permissions) {
+            this.permissions = permissions;
+        }
+
+        boolean includes(Player player) {
+            for (String permission : permissions) {
+                if (player.hasPermission(permission)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Map<Tier, Map<UUID, Player>> members = new EnumMap<>(Tier.class);
+
+    StaffAudience() {
+        for (Tier tier : Tier.values()) {
+            members.put(tier, new LinkedHashMap<UUID, Player>());
+        }
+    }
+
+    /**
+     * Re-evaluates which tiers the player belongs to.
+     */
+    void update(Player player) {
+        for (Tier tier : Tier.values()) {
+            if (tier.includes(player)) {
+                members.get(tier).put(player.getUniqueId(), player);
+            } else {
+                members.get(tier).remove(player.getUniqueId());
+            }
+        }
+    }
+
+    void remove(Player player) {
+        for (Map<UUID, Player> tier : members.values()) {
+            tier.remove(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Rebuilds every tier from the given online players.
+     */
+    void resync(Collection<? extends Player> online) {
+        for (Map<UUID, Player> tier : members.values()) {
+            tier.clear();
+        }
+        for (Player player : online) {
+            update(player);
+        }
+    }
+
+    /**
+     * Sends the message to every member of the tier.
+     */
+    void broadcast(Tier tier, String message) {
+        for (Player player : members.get(tier).values()) {
+            player.sendMessage(message);
+        }
+    }
+
+    Collection<Player> get(Tier tier) {
+        return Collections.unmodifiableCollection(members.get(tier).values());
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.watchdogpaper;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Persistence for punishments and reports.
+ * <p>
+ * Reads are synchronous and must not be called from the main thread on hot paths.
+ * Writes are queued and their callbacks run on the main thread. Every write is safe to
+ * repeat: inserts are keyed by their spool action ID and updates only touch rows that
+ * existed when the action was taken, so replaying a journaled write never duplicates it.
+ */
+interface Storage {
+
+    /**
+     * Number of bans one operator made within one hour.
+     */
+    final class HourlyBanCount {
+        private final long hourStart;
+        private final String operator;
+        private final int count;
+
+        HourlyBanCount(long hourStart, String operator, int count) {
+            this.hourStart = hourStart;
+            this.operator = operator;
+            this.count = count;
+        }
+
+        long getHourStart() {
+            return hourStart;
+        }
+
+        String getOperator() {
+            return operator;
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * An unban, unmute or report accept, logged so other servers on the same database can apply it.
+     */
+    final class Change {
+        enum Type {
+            UNBAN, UNMUTE, ACCEPT_REPORT, UNBAN_IP
+        }
+
+        private final int id;
+        private final Type type;
+        private final String target;
+        private final String reporter;
+        private final long time;
+
+        Change(int id, Type type, String target, String reporter, long time) {
+            this.id = id;
+            this.type = type;
+            this.target = target;
+            this.reporter = reporter;
+            this.time = time;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        Type getType() {
+            return type;
+        }
+
+        /**
+         * The unbanned or unmuted player (or IP), or the reported player of an accepted report.
+         */
+        String getTarget() {
+            return target;
+        }
+
+        /**
+         * The reporter of an accepted report, null otherwise.
+         */
+        String getReporter() {
+            return reporter;
+        }
+
+        /**
+         * Only punishments that started at or before this time were lifted.
+         */
+        long getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * The highest row ID of each table the change feed follows.
+     */
+    final class FeedPosition {
+        private final int punishmentId;
+        private final int reportId;
+        private final int changeId;
+
+        FeedPosition(int punishmentId, int reportId, int changeId) {
+            this.punishmentId = punishmentId;
+            this.reportId = reportId;
+            this.changeId = changeId;
+        }
+
+        int getPunishmentId() {
+            return punishmentId;
+        }
+
+        int getReportId() {
+            return reportId;
+        }
+
+        int getChangeId() {
+            return changeId;
+        }
+    }
+
+    /**
+     * An address an account logged in from.
+     */
+    final class AccountAddress {
+        private final UUID playerId;
+        private final String address;
+
+        AccountAddress(UUID playerId, String address) {
+            this.playerId = playerId;
+            this.address = address;
+        }
+
+        UUID getPlayerId() {
+            return playerId;
+        }
+
+        String getAddress() {
+            return address;
+        }
+    }
+
+    /**
+     * Number of punishments placed on one player under one escalation layout.
+     */
+    final class OffenseCount {
+        private final UUID playerId;
+        private final String playerName;
+        private final String layout;
+        private final int count;
+
+        OffenseCount(UUID playerId, String playerName, String layout, int count) {
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.layout = layout;
+            this.count = count;
+        }
+
+        /**
+         * Null for punishments placed before the account was known.
+         */
+        UUID getPlayerId() {
+            return playerId;
+        }
+
+        String getPlayerName() {
+            return playerName;
+        }
+
+        String getLayout() {
+            return layout;
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Connects, migrates the schema and starts the writer. Throws if the backend is unusable.
+     */
+    void init() throws SQLException;
+
+    void close();
+
+    String getName();
+
+    // =====================
+    // Punishments
+    // =====================
+    /**
+     * Stores the punishment; the callback receives it with its generated ID, or null on failure.
+     * If a row with the same action ID already exists the callback gets it with ID 0.
+     */
+    void insertPunishment(Punishment punishment, String playerIP, boolean silent, Consumer<Punishment> callback);
+
+    /**
+     * Deactivates the player's bans that started at or before {@code before}, and logs the unban to the change feed.
+     * If {@code playerId} is not null, bans the account got under any other name are lifted too.
+     */
+    void deactivateBans(String playerName, UUID playerId, long before, Consumer<WriteBehindQueue.Result> callback);
+
+    void deactivateMutes(String playerName, UUID playerId, long before, Consumer<WriteBehindQueue.Result> callback);
+
+    /**
+     * Deactivates the IP bans on exactly this address or range that started at or before {@code before},
+     * and logs the unban to the change feed.
+     */
+    void deactivateIpBans(String range, long before, Consumer<WriteBehindQueue.Result> callback);
+
+    /**
+     * Flips the rows of this punishment's player (or banned range) and type whose end time has passed to inactive.
+     */
+    void deactivateExpired(Punishment punishment, long now, Consumer<WriteBehindQueue.Result> callback);
+
+    /**
+     * Flips every temporary row whose end time has passed to inactive, e.g. those that ended while offline.
+     */
+    void deactivateAllExpired(long now, Consumer<WriteBehindQueue.Result> callback);
+
+    /**
+     * Inserts the punishments in one transaction, skipping those whose action ID is already stored,
+     * and returns the ones that were new. Rows that ended before {@code now} are stored inactive. For
+     * bulk imports: synchronous, and it bypasses the write queue and the change feed.
+     */
+    List<Punishment> importPunishments(List<Punishment> punishments, long now) throws SQLException;
+
+    List<Punishment> loadActiveBans(long now) throws SQLException;
+
+    List<Punishment> loadActiveTempMutes(long now) throws SQLException;
+
+    List<Punishment> loadActiveIpBans(long now) throws SQLException;
+
+    /**
+     * Returns the account's active mute, or one placed on the name before the account was known.
+     * If there are several, the one that ends last.
+     */
+    Punishment findActiveMute(String playerName, UUID playerId, long now) throws SQLException;
+
+    // =====================
+    // History
+    // =====================
+    /**
+     * Returns up to {@code limit} rows for the player (or IP) with an ID below {@code beforeId}, newest first.
+     *
+     * @param playerId the player's account, whose rows are found under any name it used (and those
+     *                 placed on the name before it was known); null to look up the name alone
+     */
+    List<HistoryEntry> getHistory(String target, UUID playerId, boolean byIp, int beforeId, int limit)
+            throws SQLException;
+
+    /**
+     * Returns the smallest ID among the rows {@link #getHistory} would return, or 0 if there are none.
+     */
+    int findHistoryCursor(String target, UUID playerId, boolean byIp, int beforeId, int limit) throws SQLException;
+
+    int countHistory(String target, UUID playerId, boolean byIp) throws SQLException;
+
+    /**
+     * Returns how many punishments each player got under each layout, over the whole history.
+     */
+    List<OffenseCount> countOffenses() throws SQLException;
+
+    // =====================
+    // Players
+    // =====================
+    /**
+     * Records that the account logged in under this name, adding it to the account's name history.
+     */
+    void recordName(UUID playerId, String name, long time);
+
+    /**
+     * Returns the account that most recently used the name (with the name's stored spelling), or null.
+     */
+    PlayerIdentity findPlayer(String name) throws SQLException;
+
+    /**
+     * Returns up to {@code limit} accounts with their latest name, most recently seen first.
+     */
+    List<PlayerIdentity> loadRecentPlayers(int limit) throws SQLException;
+
+    /**
+     * Returns the account's latest name, or null if it has never logged in.
+     */
+    PlayerIdentity findPlayer(UUID playerId) throws SQLException;
+
+    /**
+     * Records that the account logged in from this address, for alt detection.
+     */
+    void recordAddress(UUID playerId, String address, long time);
+
+    /**
+     * Returns every account and address pair last seen after {@code since}, oldest first.
+     */
+    List<AccountAddress> loadAddresses(long since) throws SQLException;
+
+    // =====================
+    // Reports
+    // =====================
+    void insertReport(String actionId, String reporter, String reported, String reason, long timestamp,
+                      Consumer<WriteBehindQueue.Result> callback);
+
+    /**
+     * Accepts the reporter's pending reports against {@code reported} filed at or before {@code before},
+     * and logs the accept to the change feed.
+     */
+    void acceptReport(String reporter, String reported, long before, Consumer<WriteBehindQueue.Result> callback);
+
+    /**
+     * Counts an identical report folded into the stored one with the action ID, or the database ID
+     * if the report is older than the spool and has none.
+     */
+    void addReportHit(String actionId, int id, Consumer<WriteBehindQueue.Result> callback);
+
+    /**
+     * Returns every pending report, newest first.
+     */
+    List<Report> loadPendingReports() throws SQLException;
+
+    // =====================
+    // Counts
+    // =====================
+    /**
+     * Returns ban counts since {@code sinceTime}, grouped by hour and operator.
+     */
+    List<HourlyBanCount> countBansByHour(long sinceTime) throws SQLException;
+
+    // =====================
+    // Change Feed
+    // =====================
+    FeedPosition getFeedHead() throws SQLException;
+
+    /**
+     * Returns up to {@code limit} punishments with an ID above {@code afterId}, oldest first.
+     */
+    List<HistoryEntry> getPunishmentsAfter(int afterId, int limit) throws SQLException;
+
+    List<Report> getPendingReportsAfter(int afterId, int limit) throws SQLException;
+
+    List<Change> getChangesAfter(int afterId, int limit) throws SQLException;
+}
@@ -0,0 +1,167 @@
+package com.example.watchdogpaper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hierarchical hashed timing wheel.
+ * <p>
+ * Level 0 has one slot per tick, each level above covers 64 times the span of the one below,
+ * so five levels reach about 34 years at one-second ticks. A timeout sits in the coarsest slot
+ * that still fires before its deadline and is cascaded one level down when that slot comes
+ * round. Scheduling and cancelling are O(1) (slots are doubly linked lists); advancing costs
+ * one step per elapsed tick plus the entries it expires or cascades. Not thread-safe on its own.
+ */
+final class TimerWheel<T> {
+
+    static final class Timeout<T> {
+        private final T value;
+        private final long deadline; // in ticks
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int level = -1; // -1 while not in the wheel, LEVELS for the overflow list
+        private int slot;
+
+        Timeout(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        T getValue() {
+            return value;
+        }
+
+        boolean isPending() {
+            return level >= 0;
+        }
+    }
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+
+    private final long tickMillis;
+    @SuppressWarnings("unchecked")
+    private final Timeout<T>[][] wheel = new Timeout[LEVELS + 1][SLOTS]; // last row: beyond the top level, slot 0
+    private long currentTick;
+    private int size;
+
+    TimerWheel(long tickMillis, long now) {
+        this.tickMillis = tickMillis;
+        this.currentTick = now / tickMillis;
+    }
+
+    /**
+     * Schedules {@code value} to come out of {@link #advance(long)} once {@code deadlineMillis} has passed.
+     */
+    Timeout<T> schedule(T value, long deadlineMillis) {
+        // Round up so nothing fires early; anything already due fires on the next tick
+        long deadline = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        Timeout<T> timeout = new Timeout<>(value, deadline);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Removes a pending timeout. Returns false if it already fired or was cancelled.
+     */
+    boolean cancel(Timeout<T> timeout) {
+        if (!timeout.isPending()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel up to {@code now} and returns the values whose deadline has passed.
+     */
+    List<T> advance(long now) {
+        long target = now / tickMillis;
+        List<T> expired = null;
+        while (currentTick < target) {
+            currentTick++;
+            cascade();
+            Timeout<T> timeout = wheel[0][(int) (currentTick & MASK)];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                unlink(timeout);
+                size--;
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(timeout.value);
+                timeout = next;
+            }
+        }
+        return expired == null ? Collections.<T>emptyList() : expired;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Re-files every level whose slot boundary the current tick has just crossed, coarsest first.
+     */
+    private void cascade() {
+        int top = 0;
+        while (top < LEVELS - 1 && (currentTick & ((1L << (BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        if (top == LEVELS - 1 && (currentTick & ((1L << (BITS * LEVELS)) - 1)) == 0) {
+            refile(LEVELS, 0);
+        }
+        for (int level = top; level >= 1; level--) {
+            refile(level, (int) ((currentTick >>> (BITS * level)) & MASK));
+        }
+    }
+
+    private void refile(int level, int slot) {
+        Timeout<T> timeout = wheel[level][slot];
+        wheel[level][slot] = null;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.level = -1;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = level == LEVELS ? 0 : (int) ((timeout.deadline >>> (BITS * level)) & MASK);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = wheel[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        wheel[level][slot] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheel[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+}
@@ -6,46 +6,155 @@ import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.inventory.meta.SkullMeta;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.text.SimpleDateFormat;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import java.util.regex.Pattern;
 
 public class WatchdogPaper extends JavaPlugin implements Listener {
 
-    private Connection dbConnection;
+    private static final long SEVEN_DAYS = 7L * 24 * 60 * 60 * 1000;
+    private static final String PUSH_CHANNEL = "WatchdogSync";
+    private static final Pattern PLAYER_NAME = Pattern.compile("[A-Za-z0-9_]{1,16}");
+    private static final int MAX_LISTED_ALTS = 10;
+
+    private Storage storage;
+    private WriteAheadSpool spool;
+    private SpooledWriter writer;
+    private PunishmentExpiry expiry;
+    private PunishmentHistory history;
+    private BanCounter banCounter;
     private final Set<String> validReasons = new HashSet<>(Arrays.asList(
             "Chat Abuse", "Cheating (Hacks)", "Bad Name", "Bad Skin", "Other",
             "Bug Abuse", "Pet Name Abuse", "Boosting / Exploits"
     ));
-    private final Map<Player, String> reportSelections = new HashMap<>();
-
-    // Punishment types
-    private enum PunishmentType {
-        BAN, TEMPBAN, IPBAN, TEMPIPBAN, MUTE, TEMPMUTE, WARN, TEMPWARN, NOTE, KICK
-    }
+    private final BanIndex banIndex = new BanIndex();
+    private final IpBanIndex ipBanIndex = new IpBanIndex();
+    private NameCache nameCache;
+    private final Metrics metrics = new Metrics();
+    private MetricsExporter metricsExporter;
+    private AltIndex altIndex;
+    private PunishmentLayouts layouts;
+    private final OffenseCounter offenses = new OffenseCounter();
+    private long altLookback;
+    private boolean denyBannedAlts;
+    private final PendingReports pendingReports = new PendingReports();
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+    private final StaffAudience staffAudience = new StaffAudience();
+    private Messages messages;
+    private ReportMenus reportMenus;
+    private ReportSessions reportSessions;
+    private ReportRateLimiter reportLimiter;
+    private long reportCoalesceWindow;
+    private HotTargets hotTargets;
+    private ChangeFeed changeFeed;
+    private BanListImporter importer;
+    private boolean importing;
+    private boolean pushScheduled;
+    private volatile boolean reconnecting;
+    private final Executor mainThread = task -> {
+        // Callbacks that arrive while disabling are dropped; the scheduler rejects them anyway
+        if (isEnabled()) {
+            getServer().getScheduler().runTask(this, task);
+        }
+    };
 
     @Override
     public void onEnable() {
-        connectToDatabase();
-        if (dbConnection == null) {
-            getLogger().severe("Failed to connect to the database. Check your credentials!");
+        saveDefaultConfig();
+        loadMessages();
+        try {
+            spool = new WriteAheadSpool(new File(getDataFolder(), getConfig().getString("spool.file", "spool.dat")),
+                    getConfig().getLong("spool.fsync-interval", 50L), getLogger());
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Failed to open the write-ahead spool", e);
             getServer().getPluginManager().disablePlugin(this);
             return;
         }
+        storage = createStorage();
+        history = new PunishmentHistory(storage);
+        importer = new BanListImporter(storage, Math.max(1, getConfig().getInt("import.batch-size", 500)));
+        writer = new SpooledWriter(spool, getLogger(), history::invalidate, this::pushChanges);
+        changeFeed = new ChangeFeed(storage, getLogger(), mainThread, new ChangeFeed.Handler() {
+            @Override
+            public void punishment(HistoryEntry entry) {
+                applyRemotePunishment(entry);
+            }
+
+            @Override
+            public void report(Report report) {
+                applyRemoteReport(report);
+            }
 
-        createTables();
+            @Override
+            public void change(Storage.Change change) {
+                applyRemoteChange(change);
+            }
+        }, getConfig().getInt("network.batch-size", 200));
+        expiry = new PunishmentExpiry(System.currentTimeMillis());
+        banCounter = new BanCounter(getConfig().getStringList("announcement.automated-operators"));
+        reportMenus = new ReportMenus(new SkullCache(
+                task -> getServer().getScheduler().runTaskAsynchronously(this, task),
+                mainThread,
+                getConfig().getLong("report-menu.skull-cache-ttl", 600L) * 1000L,
+                Math.max(1, getConfig().getInt("report-menu.skull-cache-size", 256))));
+        reportLimiter = new ReportRateLimiter(getConfig().getInt("reports.rate-limit.burst", 3),
+                getConfig().getLong("reports.rate-limit.refill-seconds", 60L) * 1000L);
+        reportCoalesceWindow = getConfig().getLong("reports.coalesce-window", 120L) * 1000L;
+        hotTargets = new HotTargets(getConfig().getLong("reports.escalation.window", 60L) * 1000L,
+                getConfig().getInt("reports.escalation.threshold", 5));
+        reportSessions = new ReportSessions(getConfig().getLong("report-menu.session-ttl", 300L) * 1000L);
+        nameCache = new NameCache(Math.max(1, getConfig().getInt("players.name-cache-size", 10000)));
+        altIndex = new AltIndex(Math.max(2, getConfig().getInt("alts.max-accounts-per-address", 5)));
+        altLookback = getConfig().getLong("alts.lookback-days", 90L) * 24 * 60 * 60 * 1000;
+        denyBannedAlts = getConfig().getBoolean("alts.deny-banned", false);
+        layouts = new PunishmentLayouts(getLogger());
+        layouts.load(getConfig().getConfigurationSection("layouts"));
+
+        if (connectStorage(false)) {
+            positionChangeFeed();
+            applyStoredState(fetchStoredState(System.currentTimeMillis()));
+        } else {
+            getLogger().severe("Failed to connect to the database. Check your credentials!");
+            getLogger().severe("Punishments are enforced from memory and kept in the spool until it is reachable.");
+        }
+        applySpooledWrites(System.currentTimeMillis());
+        for (Player player : getServer().getOnlinePlayers()) {
+            nameCache.put(player.getUniqueId(), player.getName());
+            if (player.getAddress() != null) {
+                altIndex.record(player.getUniqueId(), IpRange.of(player.getAddress().getAddress()).toString());
+            }
+            openSession(player.getUniqueId(), player.getName());
+        }
+        staffAudience.resync(getServer().getOnlinePlayers());
         getServer().getPluginManager().registerEvents(this, this);
         getCommand("report").setExecutor(new ReportCommand());
         getCommand("watchdogreport-accept").setExecutor(new AcceptCommand());
@@ -58,320 +167,828 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
         getCommand("tempmute").setExecutor(new TempMuteCommand());
         getCommand("warn").setExecutor(new WarnCommand());
         getCommand("kick").setExecutor(new KickCommand());
+        getCommand("ipban").setExecutor(new IpBanCommand());
+        getCommand("tempipban").setExecutor(new TempIpBanCommand());
         getCommand("unban").setExecutor(new UnBanCommand());
         getCommand("unmute").setExecutor(new UnMuteCommand());
         getCommand("history").setExecutor(new HistoryCommand());
+        getCommand("watchdog").setExecutor(new WatchdogCommand());
 
         // Start announcement task
         startAnnouncementTask();
+        startReplayTask();
+        startExpiryTask();
+        startStaffResyncTask();
+        startChangeFeed();
+        startMetricsExporter();
 
         getLogger().info("WatchdogReport has been enabled!");
     }
 
     @Override
     public void onDisable() {
-        if (dbConnection != null) {
-            try {
-                dbConnection.close();
-            } catch (SQLException e) {
-                getLogger().log(Level.WARNING, "Error closing database connection", e);
-            }
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        if (importer != null) {
+            // Its checkpoint lets the same command pick it up after the restart
+            importer.cancel();
+        }
+        if (storage != null) {
+            storage.close();
+        }
+        if (spool != null) {
+            spool.close();
         }
         getLogger().info("WatchdogReport has been disabled!");
     }
 
-    private void connectToDatabase() {
-        try {
-            String url = "jdbc:mysql://host/db_831273?user=username&password=pass&useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
-            dbConnection = DriverManager.getConnection(url);
-            getLogger().info("Successfully connected to MySQL database.");
-        } catch (SQLException e) {
-            getLogger().log(Level.SEVERE, "Failed to connect to MySQL", e);
-            dbConnection = null;
+    private Storage createStorage() {
+        int batchSize = getConfig().getInt("write-behind.batch-size", 100);
+        long flushInterval = getConfig().getLong("write-behind.flush-interval", 50L);
+
+        String type = getConfig().getString("storage.type", "mysql");
+        if (type.equalsIgnoreCase("sqlite")) {
+            ConfigurationSection sqlite = getConfig().getConfigurationSection("sqlite");
+            return new SQLiteStorage(
+                    new File(getDataFolder(), sqlite.getString("file", "watchdog.db")),
+                    sqlite.getInt("cache-size", 16384),
+                    sqlite.getInt("pool-size", 4),
+                    getLogger(), metrics, mainThread, batchSize, flushInterval);
+        }
+        if (!type.equalsIgnoreCase("mysql")) {
+            getLogger().warning("Unknown storage.type '" + type + "', using MySQL.");
         }
+
+        ConfigurationSection db = getConfig().getConfigurationSection("database");
+        ConnectionPool.Settings settings = new ConnectionPool.Settings();
+        ConfigurationSection pool = db.getConfigurationSection("pool");
+        if (pool != null) {
+            settings.maximumPoolSize = Math.max(1, pool.getInt("maximum-size", settings.maximumPoolSize));
+            settings.minimumIdle = Math.min(settings.maximumPoolSize, pool.getInt("minimum-idle", settings.minimumIdle));
+            settings.connectionTimeout = pool.getLong("connection-timeout", settings.connectionTimeout);
+            settings.idleTimeout = pool.getLong("idle-timeout", settings.idleTimeout);
+            settings.maxLifetime = pool.getLong("max-lifetime", settings.maxLifetime);
+            settings.validationTimeout = pool.getInt("validation-timeout", settings.validationTimeout);
+        }
+        return new MySqlStorage(
+                db.getString("host", "localhost"),
+                db.getInt("port", 3306),
+                db.getString("name", "watchdog"),
+                db.getString("user", "root"),
+                db.getString("password", ""),
+                db.getString("properties", "useSSL=false"),
+                settings, getLogger(), metrics, mainThread, batchSize, flushInterval);
     }
 
-    private void createTables() {
-        createReportsTable();
-        createPunishmentsTable();
+    /**
+     * Opens storage and starts sending spooled writes to it. Returns false if the database is unreachable.
+     */
+    private boolean connectStorage(boolean retry) {
+        if (!openStorage(retry)) {
+            return false;
+        }
+        attachStorage();
+        return true;
     }
 
-    private void createReportsTable() {
-        PreparedStatement stmt = null;
+    private boolean openStorage(boolean retry) {
         try {
-            stmt = dbConnection.prepareStatement(
-                    "CREATE TABLE IF NOT EXISTS reports (" +
-                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                            "reporter VARCHAR(16) NOT NULL, " +
-                            "reported VARCHAR(16) NOT NULL, " +
-                            "reason TEXT NOT NULL, " +
-                            "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                            "status VARCHAR(20) DEFAULT 'pending'" +
-                            ")"
-            );
-            stmt.executeUpdate();
-            getLogger().info("Reports table created/verified.");
+            storage.init();
         } catch (SQLException e) {
-            getLogger().log(Level.SEVERE, "Failed to create reports table", e);
-        } finally {
-            if (stmt != null) {
-                try {
-                    stmt.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing statement", e);
-                }
+            if (retry) {
+                getLogger().warning("Database is still unreachable (" + e.getMessage() + "), " +
+                        writer.getPendingCount() + " writes waiting in the spool.");
+            } else {
+                getLogger().log(Level.SEVERE, "Failed to open " + storage.getName() + " storage", e);
             }
+            return false;
         }
+        return true;
     }
 
-    private void createPunishmentsTable() {
-        PreparedStatement stmt = null;
-        try {
-            stmt = dbConnection.prepareStatement(
-                    "CREATE TABLE IF NOT EXISTS punishments (" +
-                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                            "player_name VARCHAR(16) NOT NULL, " +
-                            "player_uuid VARCHAR(36), " +
-                            "player_ip VARCHAR(45), " +
-                            "punishment_type VARCHAR(20) NOT NULL, " +
-                            "reason TEXT NOT NULL, " +
-                            "operator VARCHAR(16) NOT NULL, " +
-                            "duration BIGINT, " + // in milliseconds, NULL for permanent
-                            "start_time BIGINT NOT NULL, " +
-                            "end_time BIGINT, " + // NULL for permanent
-                            "active BOOLEAN DEFAULT TRUE, " +
-                            "silent BOOLEAN DEFAULT FALSE" +
-                            ")"
-            );
-            stmt.executeUpdate();
-            getLogger().info("Punishments table created/verified.");
-        } catch (SQLException e) {
-            getLogger().log(Level.SEVERE, "Failed to create punishments table", e);
-        } finally {
-            if (stmt != null) {
-                try {
-                    stmt.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing statement", e);
-                }
+    private void attachStorage() {
+        writer.attach(storage);
+        getLogger().info("Successfully connected to " + storage.getName() + " storage.");
+    }
+
+    // =====================
+    // Spool Replay
+    // =====================
+    private void startReplayTask() {
+        long interval = Math.max(1, getConfig().getLong("spool.replay-interval", 30L)) * 20L;
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
+            @Override
+            public void run() {
+                replaySpool();
             }
+        }, interval, interval);
+    }
+
+    private void replaySpool() {
+        if (!writer.isAttached()) {
+            if (reconnecting || !openStorage(true)) {
+                return;
+            }
+            // Started without a database: read what it knew here, then swap it in on the main thread
+            // with what happened since laid over it. Until then writes only go to the spool, so none
+            // can reach the database after it was read and be missing from both.
+            reconnecting = true;
+            positionChangeFeed();
+            final StoredState state = fetchStoredState(System.currentTimeMillis());
+            final Map<UUID, Punishment> mutes = new HashMap<>();
+            for (PlayerSession session : sessions.values()) {
+                mutes.put(session.getUuid(), findActiveMute(session.getName(), session.getUuid()));
+            }
+            mainThread.execute(() -> {
+                long now = System.currentTimeMillis();
+                applyStoredState(state);
+                applySpooledWrites(now);
+                // Players who joined meanwhile read their mute from storage already
+                for (PlayerSession session : sessions.values()) {
+                    if (mutes.containsKey(session.getUuid())) {
+                        session.setMute(writer.resolveMute(session.getName(), session.getUuid(),
+                                mutes.get(session.getUuid()), now));
+                    }
+                }
+                attachStorage();
+                reconnecting = false;
+                Bukkit.getScheduler().runTaskAsynchronously(this, writer::replay);
+            });
+            return;
         }
+        writer.replay();
     }
 
     private void sendMessage(CommandSender sender, String message) {
         sender.sendMessage(ChatColor.translateAlternateColorCodes('&', message));
     }
 
-    private void broadcastMessage(String message) {
-        Bukkit.broadcastMessage(ChatColor.translateAlternateColorCodes('&', message));
+    private void sendMessage(CommandSender sender, Message message, Object... args) {
+        sender.sendMessage(messages.render(message, args));
+    }
+
+    private void notifyStaff(StaffAudience.Tier tier, Message message, Object... args) {
+        long start = System.nanoTime();
+        staffAudience.broadcast(tier, messages.render(message, args));
+        metrics.record(Metrics.Timer.BROADCAST, start);
+    }
+
+    private void loadMessages() {
+        File file = new File(getDataFolder(), "messages.yml");
+        if (!file.exists()) {
+            saveResource("messages.yml", false);
+        }
+        if (messages == null) {
+            messages = new Messages(getLogger());
+        }
+        messages.load(file);
+    }
+
+    private void startMetricsExporter() {
+        ConfigurationSection prometheus = getConfig().getConfigurationSection("metrics.prometheus");
+        if (prometheus == null || !prometheus.getBoolean("enabled", false)) {
+            return;
+        }
+        String host = prometheus.getString("host", "127.0.0.1");
+        int port = prometheus.getInt("port", 9225);
+        try {
+            metricsExporter = new MetricsExporter(metrics, host, port);
+            metricsExporter.start();
+            getLogger().info("Serving metrics at http://" + host + ":" + port + "/metrics");
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Failed to start the metrics endpoint on " + host + ":" + port, e);
+        }
+    }
+
+    private void startStaffResyncTask() {
+        // Catches permission changes made by permission plugins, which fire no Bukkit event
+        long interval = Math.max(1, getConfig().getLong("staff.resync-interval", 10L)) * 20L;
+        Bukkit.getScheduler().runTaskTimer(this, new Runnable() {
+            @Override
+            public void run() {
+                staffAudience.resync(getServer().getOnlinePlayers());
+            }
+        }, interval, interval);
     }
 
     // =====================
-    // Time Formatting
+    // Punishment Management
     // =====================
-    private String formatDuration(long durationMs) {
-        long seconds = durationMs / 1000;
-        long minutes = seconds / 60;
-        long hours = minutes / 60;
-        long days = hours / 24;
-
-        if (days > 0) {
-            return String.format("%d day(s) %d hour(s) %d minute(s) and %d second(s)",
-                    days, hours % 24, minutes % 60, seconds % 60);
-        } else if (hours > 0) {
-            return String.format("%d hour(s) %d minute(s) and %d second(s)",
-                    hours, minutes % 60, seconds % 60);
-        } else if (minutes > 0) {
-            return String.format("%d minute(s) and %d second(s)", minutes, seconds % 60);
+    /**
+     * Journals the punishment and returns it for immediate enforcement; it reaches the
+     * database in the background, or once the database is reachable again. The player's
+     * IP is recorded too: the current one if they are online, else the last one they used.
+     */
+    private Punishment addPunishment(PlayerIdentity target, PunishmentType type, String reason,
+                                     PunishmentLayouts.Layout layout, String operator, long duration, boolean silent) {
+        Player online = getOnlinePlayer(target);
+        String playerIP;
+        if (online != null && online.getAddress() != null) {
+            playerIP = IpRange.of(online.getAddress().getAddress()).toString();
         } else {
-            return String.format("%d second(s)", seconds);
+            playerIP = target.isKnown() ? altIndex.getLastAddress(target.getUuid()) : null;
         }
+        return addPunishment(target, playerIP, type, reason, layout, operator, duration, silent);
     }
 
-    private long parseDuration(String durationStr) {
-        try {
-            if (durationStr.startsWith("#")) {
-                // Handle time layouts (simplified)
-                return parseTimeLayout(durationStr.substring(1));
+    /**
+     * @param playerIP for IP bans the banned address or range, in canonical form
+     * @param layout the escalation layout it counts as an offense under, or null
+     */
+    private Punishment addPunishment(PlayerIdentity target, String playerIP, PunishmentType type, String reason,
+                                     PunishmentLayouts.Layout layout, String operator, long duration, boolean silent) {
+        long start = System.nanoTime();
+        long startTime = System.currentTimeMillis();
+        long endTime = (duration > 0) ? startTime + duration : 0;
+        if (type == PunishmentType.BAN || type == PunishmentType.TEMPBAN) {
+            banCounter.record(startTime, operator);
+        }
+        Punishment punishment = writer.punish(target.getName(), target.getUuid(), playerIP, type, reason,
+                layout == null ? null : layout.getName(), operator, startTime, endTime, silent);
+        changeFeed.markLocal(punishment.getActionId());
+        offenses.record(punishment);
+        metrics.increment(Metrics.Counter.PUNISHMENTS);
+        metrics.record(Metrics.Timer.PUNISH, start);
+        return punishment;
+    }
+
+    // =====================
+    // Layouts
+    // =====================
+    /**
+     * What a punishment command asked for: the reason to record, the layout it counts under and how long.
+     */
+    private static final class PunishmentSpec {
+        final String reason;
+        final PunishmentLayouts.Layout layout;
+        final long duration; // ms, 0 for permanent, -1 to take it from the layout's ladder
+
+        PunishmentSpec(String reason, PunishmentLayouts.Layout layout, long duration) {
+            this.reason = reason;
+            this.layout = layout;
+            this.duration = duration;
+        }
+    }
+
+    /**
+     * Reads the duration (null for a permanent punishment command) and reason arguments.
+     * {@code #TimeLayout} takes the duration from that layout's ladder and {@code @Layout} the layout's
+     * reason; a permanent command given {@code @Layout} follows that layout's ladder instead. The
+     * punishment counts under the time layout if there is one, else the reason's. Returns null,
+     * having told the sender, if an argument is invalid.
+     */
+    private PunishmentSpec parsePunishment(CommandSender sender, String durationStr, String reason) {
+        PunishmentLayouts.Layout reasonLayout = null;
+        if (isLayoutReference(reason, '@')) {
+            reasonLayout = getLayout(sender, reason);
+            if (reasonLayout == null) {
+                return null;
             }
+        }
+        String shownReason = reasonLayout == null ? reason : reasonLayout.getReason();
+        if (durationStr == null) {
+            return new PunishmentSpec(shownReason, reasonLayout, reasonLayout == null ? 0 : -1);
+        }
+        if (isLayoutReference(durationStr, '#')) {
+            PunishmentLayouts.Layout timeLayout = getLayout(sender, durationStr);
+            return timeLayout == null ? null : new PunishmentSpec(shownReason, timeLayout, -1);
+        }
+        long duration = Durations.parse(durationStr);
+        if (duration <= 0) {
+            sendMessage(sender, "&cInvalid duration format!");
+            return null;
+        }
+        return new PunishmentSpec(shownReason, reasonLayout, duration);
+    }
 
-            long total = 0;
-            String[] parts = durationStr.split("(?<=[smhd])");
-            for (String part : parts) {
-                if (part.length() < 2) continue;
+    /**
+     * Returns the reason, or the layout's if it is {@code @Layout}; null, having told the sender, if
+     * it names no layout.
+     */
+    private String layoutReason(CommandSender sender, String reason) {
+        if (!isLayoutReference(reason, '@')) {
+            return reason;
+        }
+        PunishmentLayouts.Layout layout = getLayout(sender, reason);
+        return layout == null ? null : layout.getReason();
+    }
 
-                char unit = part.charAt(part.length() - 1);
-                long value = Long.parseLong(part.substring(0, part.length() - 1));
+    /**
+     * Whether the argument is {@code prefix} directly followed by a single word; a reason like
+     * "@ spawn killing" stays plain text.
+     */
+    private static boolean isLayoutReference(String arg, char prefix) {
+        return arg.length() > 1 && arg.charAt(0) == prefix && arg.indexOf(' ') < 0 && arg.charAt(1) != prefix;
+    }
 
-                switch (unit) {
-                    case 's': total += value * 1000; break;
-                    case 'm': total += value * 60 * 1000; break;
-                    case 'h': total += value * 60 * 60 * 1000; break;
-                    case 'd': total += value * 24 * 60 * 60 * 1000; break;
-                }
+    /**
+     * Returns the layout {@code reference} (with its {@code @} or {@code #}) names, or null after telling the sender.
+     */
+    private PunishmentLayouts.Layout getLayout(CommandSender sender, String reference) {
+        PunishmentLayouts.Layout layout = layouts.get(reference.substring(1));
+        if (layout == null) {
+            sendMessage(sender, layouts.size() == 0
+                    ? "&cNo punishment layouts are configured!"
+                    : "&cUnknown layout " + reference.substring(1) + "! &7Layouts: &f" + String.join(", ", layouts.getNames()));
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the layout's step for the player's next offense under it, in ms or 0 for permanent.
+     */
+    private long getLayoutDuration(PunishmentLayouts.Layout layout, PlayerIdentity player) {
+        return layout.getDuration(offenses.get(player.getUuid(), player.getName(), layout.getName()));
+    }
+
+    /**
+     * What is kept in memory, as read from storage. A part that failed to load is null and is left
+     * as it was.
+     */
+    private static final class StoredState {
+        List<Punishment> bans;
+        List<Punishment> tempMutes;
+        List<Punishment> ipBans;
+        List<Storage.HourlyBanCount> bansByHour;
+        List<Report> pendingReports;
+        List<PlayerIdentity> recentPlayers;
+        List<Storage.AccountAddress> addresses;
+        List<Storage.OffenseCount> offenses;
+    }
+
+    /**
+     * Reads the active punishments, pending reports, known players, alt addresses and layout offenses,
+     * after retiring rows that ended while offline. Blocks, and changes nothing in memory, so it may
+     * run off the main thread; {@link #applyStoredState} swaps the result in.
+     */
+    private StoredState fetchStoredState(long now) {
+        storage.deactivateAllExpired(now, result -> {
+            if (result.isSuccess() && result.getUpdateCount() > 0) {
+                getLogger().info("Deactivated " + result.getUpdateCount() + " punishments that ended while the server was offline.");
+            }
+        });
+        StoredState state = new StoredState();
+        try {
+            List<Punishment> bans = storage.loadActiveBans(now);
+            List<Punishment> tempMutes = storage.loadActiveTempMutes(now);
+            List<Punishment> ipBans = storage.loadActiveIpBans(now);
+            state.bansByHour = storage.countBansByHour(now - SEVEN_DAYS);
+            state.bans = bans;
+            state.tempMutes = tempMutes;
+            state.ipBans = ipBans;
+        } catch (SQLException e) {
+            getLogger().log(Level.SEVERE, "Failed to load active bans", e);
+        }
+        try {
+            state.pendingReports = storage.loadPendingReports();
+        } catch (SQLException e) {
+            getLogger().log(Level.SEVERE, "Failed to load pending reports", e);
+        }
+        try {
+            state.recentPlayers = storage.loadRecentPlayers(nameCache.getMaxSize());
+        } catch (SQLException e) {
+            getLogger().log(Level.SEVERE, "Failed to load known players", e);
+        }
+        try {
+            state.addresses = storage.loadAddresses(now - altLookback);
+        } catch (SQLException e) {
+            getLogger().log(Level.SEVERE, "Failed to load player addresses", e);
+        }
+        try {
+            state.offenses = storage.countOffenses();
+        } catch (SQLException e) {
+            getLogger().log(Level.SEVERE, "Failed to load layout offenses", e);
+        }
+        return state;
+    }
+
+    /**
+     * Replaces the in-memory state with what {@link #fetchStoredState} read; main thread only.
+     * Writes still in the spool are not in it, so follow with {@link #applySpooledWrites}.
+     */
+    private void applyStoredState(StoredState state) {
+        if (state.bans != null) {
+            banIndex.load(state.bans);
+            ipBanIndex.load(state.ipBans);
+            for (Punishment ban : state.bans) {
+                expiry.schedule(ban);
+            }
+            for (Punishment mute : state.tempMutes) {
+                expiry.schedule(mute);
+            }
+            for (Punishment ban : state.ipBans) {
+                expiry.schedule(ban);
+            }
+            banCounter.clear();
+            for (Storage.HourlyBanCount count : state.bansByHour) {
+                banCounter.add(count.getHourStart(), count.getOperator(), count.getCount());
+            }
+            getLogger().info("Loaded " + banIndex.size() + " active bans and " + ipBanIndex.size() + " IP bans; " +
+                    expiry.size() + " temporary punishments scheduled to expire.");
+        }
+        if (state.pendingReports != null) {
+            pendingReports.load(state.pendingReports);
+            getLogger().info("Loaded " + pendingReports.size() + " pending reports.");
+        }
+        if (state.recentPlayers != null) {
+            // Oldest first, so an account's newest name wins and recent players are evicted last
+            for (int i = state.recentPlayers.size() - 1; i >= 0; i--) {
+                nameCache.put(state.recentPlayers.get(i).getUuid(), state.recentPlayers.get(i).getName());
+            }
+            getLogger().info("Cached the names of " + nameCache.size() + " players.");
+        }
+        if (state.addresses != null) {
+            altIndex.clear();
+            for (Storage.AccountAddress address : state.addresses) {
+                altIndex.record(address.getPlayerId(), address.getAddress());
             }
-            return total;
-        } catch (Exception e) {
-            return -1;
+            getLogger().info("Indexed " + state.addresses.size() + " addresses of " + altIndex.size() + " accounts for alt detection.");
+        }
+        if (state.offenses != null) {
+            offenses.load(state.offenses);
+            getLogger().info("Loaded layout offenses of " + offenses.size() + " players.");
         }
     }
 
-    private long parseTimeLayout(String layout) {
-        // Simplified time layout parser
-        long total = 0;
-        if (layout.contains("d")) {
-            String[] daysPart = layout.split("d");
-            if (daysPart.length > 0) {
-                total += Long.parseLong(daysPart[0]) * 24 * 60 * 60 * 1000;
+    /**
+     * Layers writes still waiting in the spool over what was loaded from storage.
+     */
+    private void applySpooledWrites(long now) {
+        for (Punishment ban : writer.applyPendingBans(banIndex, ipBanIndex, now)) {
+            expiry.schedule(ban);
+            if (PunishmentExpiry.isBan(ban.getType())) {
+                banCounter.record(ban.getStartTime(), ban.getOperator());
             }
         }
-        // Add more parsing logic as needed
-        return total;
+        writer.applyPendingReports(pendingReports);
+    }
+
+    private boolean isPlayerBanned(PlayerIdentity player) {
+        return banIndex.get(player.getUuid(), player.getName()) != null;
+    }
+
+    private Punishment findActiveMute(String playerName, UUID playerId) {
+        if (!writer.isAttached()) {
+            return null;
+        }
+        try {
+            return storage.findActiveMute(playerName, playerId, System.currentTimeMillis());
+        } catch (SQLException e) {
+            getLogger().log(Level.SEVERE, "Failed to check mute status", e);
+            return null;
+        }
+    }
+
+    private Punishment getActiveMute(PlayerIdentity player) {
+        PlayerSession session = getSession(player);
+        if (session != null) {
+            return session.getActiveMute(System.currentTimeMillis());
+        }
+        return writer.resolveMute(player.getName(), player.getUuid(),
+                findActiveMute(player.getName(), player.getUuid()), System.currentTimeMillis());
     }
 
     // =====================
-    // Punishment Management
+    // Player Sessions
     // =====================
-    private boolean addPunishment(String playerName, String playerUUID, String playerIP,
-                                  PunishmentType type, String reason, String operator,
-                                  long duration, boolean silent) {
-        PreparedStatement stmt = null;
-        try {
-            stmt = dbConnection.prepareStatement(
-                    "INSERT INTO punishments (player_name, player_uuid, player_ip, punishment_type, " +
-                            "reason, operator, duration, start_time, end_time, silent) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
-            );
-
-            long startTime = System.currentTimeMillis();
-            long endTime = (duration > 0) ? startTime + duration : 0;
-
-            stmt.setString(1, playerName);
-            stmt.setString(2, playerUUID);
-            stmt.setString(3, playerIP);
-            stmt.setString(4, type.name());
-            stmt.setString(5, reason);
-            stmt.setString(6, operator);
-            if (duration > 0) {
-                stmt.setLong(7, duration);
-                stmt.setLong(8, startTime);
-                stmt.setLong(9, endTime);
-            } else {
-                stmt.setNull(7, Types.BIGINT);
-                stmt.setLong(8, startTime);
-                stmt.setNull(9, Types.BIGINT);
-            }
-            stmt.setBoolean(10, silent);
+    private PlayerSession openSession(UUID uuid, String name) {
+        Punishment mute = writer.resolveMute(name, uuid, findActiveMute(name, uuid), System.currentTimeMillis());
+        PlayerSession session = new PlayerSession(uuid, name, mute);
+        sessions.put(uuid, session);
+        return session;
+    }
 
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            getLogger().log(Level.SEVERE, "Failed to add punishment", e);
-            return false;
-        } finally {
-            if (stmt != null) {
+    private PlayerSession getSession(String playerName) {
+        Player online = getServer().getPlayerExact(playerName);
+        return online == null ? null : sessions.get(online.getUniqueId());
+    }
+
+    private PlayerSession getSession(PlayerIdentity player) {
+        return player.isKnown() ? sessions.get(player.getUuid()) : null;
+    }
+
+    // =====================
+    // Player Identity
+    // =====================
+    /**
+     * Caches the account's current name and adds it to the account's name history. Runs at pre-login.
+     */
+    private void rememberName(UUID uuid, String name) {
+        String previous = nameCache.put(uuid, name);
+        if (previous != null && !previous.equals(name)) {
+            getLogger().info(previous + " is now known as " + name + ".");
+        }
+        if (writer.isAttached()) {
+            storage.recordName(uuid, name, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Resolves a name typed in a command to the account that last used it and passes it to
+     * {@code action} on the main thread: at once for online and cached players, otherwise after
+     * a lookup in storage. Names never seen before (or that are not player names, like IPs)
+     * resolve without a UUID and are punished by name only.
+     */
+    private void resolvePlayer(final String name, final Consumer<PlayerIdentity> action) {
+        Player online = getServer().getPlayerExact(name);
+        if (online != null) {
+            action.accept(new PlayerIdentity(online.getUniqueId(), online.getName()));
+            return;
+        }
+        PlayerIdentity cached = nameCache.getByName(name);
+        if (cached != null) {
+            action.accept(cached);
+            return;
+        }
+        if (!writer.isAttached() || !PLAYER_NAME.matcher(name).matches()) {
+            action.accept(new PlayerIdentity(null, name));
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(this, new Runnable() {
+            @Override
+            public void run() {
+                PlayerIdentity found = null;
                 try {
-                    stmt.close();
+                    found = storage.findPlayer(name);
                 } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing statement", e);
+                    getLogger().log(Level.WARNING, "Failed to look up player " + name, e);
                 }
+                final PlayerIdentity stored = found;
+                mainThread.execute(() -> {
+                    if (stored == null) {
+                        action.accept(new PlayerIdentity(null, name));
+                        return;
+                    }
+                    // Cache it unless the account has logged in under a newer name meanwhile
+                    if (nameCache.getByUuid(stored.getUuid()) == null) {
+                        nameCache.put(stored.getUuid(), stored.getName());
+                    }
+                    action.accept(stored);
+                });
             }
+        });
+    }
+
+    /**
+     * Links the account to the others seen at the address and stores the address. Runs at pre-login.
+     */
+    private void rememberAddress(UUID uuid, InetAddress address) {
+        String ip = IpRange.of(address).toString();
+        altIndex.record(uuid, ip);
+        if (writer.isAttached()) {
+            storage.recordAddress(uuid, ip, System.currentTimeMillis());
         }
     }
 
-    private boolean isPlayerBanned(String playerName) {
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        try {
-            stmt = dbConnection.prepareStatement(
-                    "SELECT * FROM punishments WHERE player_name = ? AND punishment_type IN ('BAN', 'TEMPBAN') AND active = TRUE AND (end_time IS NULL OR end_time > ?)"
-            );
-            stmt.setString(1, playerName);
-            stmt.setLong(2, System.currentTimeMillis());
-            rs = stmt.executeQuery();
-            return rs.next();
-        } catch (SQLException e) {
-            getLogger().log(Level.SEVERE, "Failed to check ban status", e);
-            return false;
-        } finally {
-            if (rs != null) {
-                try {
-                    rs.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing result set", e);
-                }
+    /**
+     * Returns an active ban on any account linked to this one, or null.
+     */
+    private Punishment findBannedAlt(UUID uuid) {
+        UUID alt = altIndex.findLinked(uuid, linked -> banIndex.get(linked) != null);
+        return alt == null ? null : banIndex.get(alt);
+    }
+
+    private Player getOnlinePlayer(PlayerIdentity player) {
+        return player.isKnown() ? getServer().getPlayer(player.getUuid()) : null;
+    }
+
+    private void recordHeat(String reportedName, long now) {
+        int heat = hotTargets.record(reportedName, now);
+        if (hotTargets.shouldEscalate(reportedName, heat)) {
+            notifyStaff(StaffAudience.Tier.REPORTS, Message.STAFF_ESCALATION, reportedName, heat,
+                    Durations.format(hotTargets.getWindowMillis()));
+        }
+    }
+
+    // =====================
+    // Network Sync
+    // =====================
+    private void startChangeFeed() {
+        if (!getConfig().getBoolean("network.enabled", false)) {
+            return;
+        }
+        long interval = Math.max(1, getConfig().getLong("network.poll-interval", 5L)) * 20L;
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
+            @Override
+            public void run() {
+                pollChangeFeed();
             }
-            if (stmt != null) {
+        }, interval, interval);
+        if (getConfig().getBoolean("network.bungee-push", false)) {
+            getServer().getMessenger().registerOutgoingPluginChannel(this, "BungeeCord");
+            getServer().getMessenger().registerIncomingPluginChannel(this, "BungeeCord", (channel, player, message) -> {
                 try {
-                    stmt.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing statement", e);
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+                    if (PUSH_CHANNEL.equals(in.readUTF())) {
+                        Bukkit.getScheduler().runTaskAsynchronously(this, this::pollChangeFeed);
+                    }
+                } catch (IOException e) {
+                    // Not one of ours
                 }
-            }
+            });
+        }
+    }
+
+    private void pollChangeFeed() {
+        if (writer.isAttached()) {
+            changeFeed.poll();
         }
     }
 
-    private boolean isPlayerMuted(String playerName) {
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+    /**
+     * Starts the change feed from the current end of the tables; called before state is loaded from storage.
+     */
+    private void positionChangeFeed() {
         try {
-            stmt = dbConnection.prepareStatement(
-                    "SELECT * FROM punishments WHERE player_name = ? AND punishment_type IN ('MUTE', 'TEMPMUTE') AND active = TRUE AND (end_time IS NULL OR end_time > ?)"
-            );
-            stmt.setString(1, playerName);
-            stmt.setLong(2, System.currentTimeMillis());
-            rs = stmt.executeQuery();
-            return rs.next();
+            changeFeed.reset();
         } catch (SQLException e) {
-            getLogger().log(Level.SEVERE, "Failed to check mute status", e);
-            return false;
-        } finally {
-            if (rs != null) {
-                try {
-                    rs.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing result set", e);
+            getLogger().log(Level.WARNING, "Failed to position the change feed; changes from other servers are not picked up", e);
+        }
+    }
+
+    /**
+     * Asks the other servers behind the proxy to poll now. Bursts of commits in one tick send a single message.
+     */
+    private void pushChanges() {
+        if (pushScheduled || !getConfig().getBoolean("network.enabled", false)
+                || !getConfig().getBoolean("network.bungee-push", false)) {
+            return;
+        }
+        pushScheduled = true;
+        Bukkit.getScheduler().runTask(this, new Runnable() {
+            @Override
+            public void run() {
+                pushScheduled = false;
+                // Plugin messages travel through a player's connection; with nobody online there is no one to tell
+                Iterator<? extends Player> online = getServer().getOnlinePlayers().iterator();
+                if (!online.hasNext()) {
+                    return;
                 }
-            }
-            if (stmt != null) {
                 try {
-                    stmt.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing statement", e);
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    DataOutputStream out = new DataOutputStream(bytes);
+                    out.writeUTF("Forward");
+                    out.writeUTF("ALL");
+                    out.writeUTF(PUSH_CHANNEL);
+                    out.writeShort(1);
+                    out.writeByte(0);
+                    online.next().sendPluginMessage(WatchdogPaper.this, "BungeeCord", bytes.toByteArray());
+                } catch (IOException e) {
+                    getLogger().log(Level.WARNING, "Failed to notify other servers", e);
                 }
             }
-        }
+        });
     }
 
-    private int getRecentBansCount(long sinceTime) {
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        try {
-            stmt = dbConnection.prepareStatement(
-                    "SELECT COUNT(*) as count FROM punishments WHERE punishment_type IN ('BAN', 'TEMPBAN') AND start_time > ?"
-            );
-            stmt.setLong(1, sinceTime);
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("count");
+    private void applyRemotePunishment(HistoryEntry entry) {
+        Punishment punishment = entry.getPunishment();
+        String playerName = punishment.getPlayerName();
+        long now = System.currentTimeMillis();
+        // Counts even when it has already ended, like the rows loaded at startup
+        offenses.record(punishment);
+        history.invalidate(punishment);
+        if (!entry.isActive() || punishment.isExpired(now)) {
+            return;
+        }
+        if (PunishmentExpiry.isIpBan(punishment.getType())) {
+            IpRange range = IpRange.parse(punishment.getPlayerIp());
+            Punishment current = range == null ? null : ipBanIndex.get(range);
+            if (range == null || (current != null && current.endsAfter(punishment))) {
+                return;
             }
-        } catch (SQLException e) {
-            getLogger().log(Level.SEVERE, "Failed to get recent bans count", e);
-        } finally {
-            if (rs != null) {
-                try {
-                    rs.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing result set", e);
+            ipBanIndex.put(punishment);
+            expiry.schedule(punishment);
+            kickAll(range, buildBanScreen(punishment));
+            return;
+        }
+        Player online = punishment.getPlayerId() != null
+                ? getServer().getPlayer(punishment.getPlayerId()) : getServer().getPlayerExact(playerName);
+        // Warnings and kicks only matter while the player is still where they were sent
+        boolean recent = now - punishment.getStartTime() < 30000L;
+        switch (punishment.getType()) {
+            case BAN:
+            case TEMPBAN:
+                Punishment current = banIndex.get(punishment.getPlayerId(), playerName);
+                if (current != null && current.endsAfter(punishment)) {
+                    return;
+                }
+                banIndex.put(punishment);
+                expiry.schedule(punishment);
+                banCounter.record(punishment.getStartTime(), punishment.getOperator());
+                if (online != null) {
+                    online.kickPlayer(buildBanScreen(punishment));
+                }
+                break;
+            case MUTE:
+            case TEMPMUTE:
+                PlayerSession session = online == null ? null : sessions.get(online.getUniqueId());
+                if (session != null) {
+                    Punishment currentMute = session.getActiveMute(now);
+                    if (currentMute != null && currentMute.endsAfter(punishment)) {
+                        return;
+                    }
+                    session.setMute(punishment);
+                }
+                expiry.schedule(punishment);
+                break;
+            case WARN:
+                if (online != null && recent) {
+                    sendMessage(online, Message.WARN_NOTICE, punishment.getReason());
+                }
+                break;
+            case KICK:
+                if (online != null && recent) {
+                    online.kickPlayer(messages.render(Message.KICK_SCREEN, punishment.getReason()));
                 }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void applyRemoteReport(Report report) {
+        pendingReports.add(report);
+        notifyStaff(StaffAudience.Tier.REPORTS, Message.STAFF_REPORT, report.getReporter(), report.getReported(), report.getReason());
+        recordHeat(report.getReported(), System.currentTimeMillis());
+    }
+
+    private void applyRemoteChange(Storage.Change change) {
+        String target = change.getTarget();
+        switch (change.getType()) {
+            case UNBAN:
+                // A ban placed after the unban (here or elsewhere) stays
+                Punishment ban = banIndex.get(target);
+                if (ban != null && ban.getStartTime() <= change.getTime() && banIndex.remove(ban)) {
+                    expiry.cancel(target, true);
+                }
+                break;
+            case UNMUTE:
+                PlayerSession session = getSession(target);
+                Punishment mute = session == null ? null : session.getActiveMute(System.currentTimeMillis());
+                if (mute != null && mute.getStartTime() <= change.getTime()) {
+                    session.setMute(null);
+                    expiry.cancel(target, false);
+                }
+                break;
+            case UNBAN_IP:
+                IpRange range = IpRange.parse(target);
+                Punishment ipBan = range == null ? null : ipBanIndex.get(range);
+                if (ipBan != null && ipBan.getStartTime() <= change.getTime() && ipBanIndex.remove(ipBan)) {
+                    expiry.cancelIpBan(target);
+                }
+                break;
+            case ACCEPT_REPORT:
+                pendingReports.accept(change.getReporter(), target, change.getTime());
+                return;
+        }
+        history.invalidate(target);
+        PlayerIdentity account = nameCache.getByName(target);
+        if (account != null && account.isKnown()) {
+            history.invalidate(account.getUuid().toString());
+        }
+    }
+
+    // =====================
+    // Expiry
+    // =====================
+    private void startExpiryTask() {
+        Bukkit.getScheduler().runTaskTimer(this, new Runnable() {
+            @Override
+            public void run() {
+                expirePunishments();
             }
-            if (stmt != null) {
-                try {
-                    stmt.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing statement", e);
+        }, 20L, 20L);
+    }
+
+    private void expirePunishments() {
+        long now = System.currentTimeMillis();
+        List<Punishment> expired = expiry.advance(now);
+        if (expired.isEmpty()) {
+            return;
+        }
+        boolean notify = getConfig().getBoolean("expiry.notify-players", true);
+        for (Punishment punishment : expired) {
+            boolean ipBan = PunishmentExpiry.isIpBan(punishment.getType());
+            if (writer.isAttached()) {
+                storage.deactivateExpired(punishment, now, result -> history.invalidate(punishment));
+            }
+            if (ipBan) {
+                ipBanIndex.remove(punishment);
+                continue;
+            }
+            if (PunishmentExpiry.isBan(punishment.getType())) {
+                banIndex.remove(punishment);
+                continue;
+            }
+            PlayerSession session = getSession(punishment.getPlayerName());
+            if (session != null && session.clearExpiredMute(now) && notify) {
+                Player player = getServer().getPlayer(session.getUuid());
+                if (player != null) {
+                    sendMessage(player, Message.MUTE_EXPIRED);
                 }
             }
         }
-        return 0;
     }
 
     // =====================
@@ -387,48 +1004,114 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
     }
 
     private void broadcastAnnouncement() {
-        long sevenDaysAgo = System.currentTimeMillis() - (7L * 24 * 60 * 60 * 1000);
-        int totalBans = getRecentBansCount(sevenDaysAgo);
+        long now = System.currentTimeMillis();
+        int watchdogBans = banCounter.getAutomatedCount(now);
+        int staffBans = banCounter.getStaffCount(now);
 
-        broadcastMessage("&f");
-        broadcastMessage("&4[WATCHDOG ANNOUNCEMENT]");
-        broadcastMessage("&fWatchdog has banned &c&l" + totalBans + " &fplayers in the last 7 days.");
-        broadcastMessage("&fStaff have banned an additional &c&l" + (totalBans / 2) + " &fin the last 7 days."); // Example calculation
-        broadcastMessage("&fBlacklisted modifications are a bannable offense!");
-        broadcastMessage("&f");
+        Bukkit.broadcastMessage(messages.render(Message.ANNOUNCEMENT, watchdogBans, staffBans));
     }
 
     // =====================
     // Event Handlers
     // =====================
     @EventHandler
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        long start = System.nanoTime();
+        try {
+            rememberName(event.getUniqueId(), event.getName());
+            // Before the checks, so an alt tried while banned is linked too
+            rememberAddress(event.getUniqueId(), event.getAddress());
+            // By account first, so a ban follows the player through a rename
+            Punishment ban = banIndex.get(event.getUniqueId(), event.getName());
+            if (ban == null) {
+                ban = ipBanIndex.match(event.getAddress());
+            }
+            if (ban != null) {
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, buildBanScreen(ban));
+                metrics.increment(Metrics.Counter.LOGINS_DENIED);
+                return;
+            }
+            Punishment altBan = denyBannedAlts ? findBannedAlt(event.getUniqueId()) : null;
+            if (altBan != null) {
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, messages.render(Message.BAN_SCREEN_ALT,
+                        altBan.getReason(), formatId(altBan.getId(), altBan.getActionId())));
+                metrics.increment(Metrics.Counter.LOGINS_DENIED);
+            }
+        } finally {
+            metrics.record(Metrics.Timer.LOGIN_CHECK, start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLoginAllowed(AsyncPlayerPreLoginEvent event) {
+        // Only once every plugin has had its say; a login refused here never gets a quit event
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            openSession(event.getUniqueId(), event.getName());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerLogin(PlayerLoginEvent event) {
-        Player player = event.getPlayer();
-        if (isPlayerBanned(player.getName())) {
-            event.setResult(PlayerLoginEvent.Result.KICK_BANNED);
-            event.setKickMessage(ChatColor.translateAlternateColorCodes('&',
-                    "&cYou are permanently banned from this server!\n" +
-                            "&7\n" +
-                            "&7Reason: &fViolation of server rules.\n" +
-                            "&7Find out more: &b&nhttps://www.farepixel.fun/appeal\n" +
-                            "&7\n" +
-                            "&7Ban ID: &f#0001\n" +
-                            "&7Sharing your Ban ID may affect the processing of your appeal"
-            ));
+        // A later plugin may still refuse the login; the quit event will never fire then
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            sessions.remove(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        staffAudience.update(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        // Permission plugins may grant per-world permissions
+        staffAudience.update(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        sessions.remove(event.getPlayer().getUniqueId());
+        staffAudience.remove(event.getPlayer());
+        reportSessions.remove(event.getPlayer().getUniqueId());
+    }
+
+    private String buildBanScreen(Punishment ban) {
+        String id = formatId(ban.getId(), ban.getActionId());
+        if (ban.isPermanent()) {
+            return messages.render(Message.BAN_SCREEN_PERMANENT, ban.getReason(), id);
+        }
+        return messages.render(Message.BAN_SCREEN_TEMPORARY,
+                Durations.format(ban.getRemaining(System.currentTimeMillis())), ban.getReason(), id);
+    }
+
+    /**
+     * Formats a ban or report ID. The action ID is known before the database has seen the row,
+     * so it is preferred and players see the same ID throughout; old rows fall back to the row ID.
+     */
+    private String formatId(int id, String actionId) {
+        if (actionId != null) {
+            return "#" + actionId.substring(0, 8).toUpperCase(Locale.ROOT);
         }
+        return String.format("#%04d", id);
     }
 
     @EventHandler
     public void onPlayerChat(AsyncPlayerChatEvent event) {
         Player player = event.getPlayer();
-        if (isPlayerMuted(player.getName())) {
+        long start = System.nanoTime();
+        PlayerSession session = sessions.get(player.getUniqueId());
+        long now = System.currentTimeMillis();
+        Punishment mute = session == null ? null : session.getActiveMute(now);
+        metrics.record(Metrics.Timer.CHAT_MUTE_CHECK, start);
+        if (mute != null) {
             event.setCancelled(true);
-            sendMessage(player,
-                    "&cYou are permanently muted from this server!\n" +
-                            "&7\n" +
-                            "&7Reason: &fChat violation.\n" +
-                            "&7Find out more: &b&nhttps://www.farepixel.fun/appeal"
-            );
+            metrics.increment(Metrics.Counter.CHAT_BLOCKED);
+            if (mute.isPermanent()) {
+                sendMessage(player, Message.MUTE_NOTICE_PERMANENT, mute.getReason());
+            } else {
+                sendMessage(player, Message.MUTE_NOTICE_TEMPORARY, Durations.format(mute.getRemaining(now)), mute.getReason());
+            }
         }
     }
 
@@ -436,82 +1119,20 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
     // Report Menu (GUI)
     // =====================
     private void openReportMenu(Player player, String reportedName) {
-        Inventory menu = Bukkit.createInventory(null, 54, "Report Menu");
-
-        // Player head (top center)
-        ItemStack head = new ItemStack(Material.SKULL_ITEM, 1, (short) 3);
-        SkullMeta skullMeta = (SkullMeta) head.getItemMeta();
-        skullMeta.setOwner(reportedName);
-        skullMeta.setDisplayName(ChatColor.YELLOW + "/reporing " + reportedName);
-        skullMeta.setLore(Arrays.asList(ChatColor.GRAY + "Select a reason below"));
-        head.setItemMeta(skullMeta);
-        menu.setItem(4, head);
-
-        // Report reason items
-        menu.setItem(20, createMenuItem(Material.BOOK_AND_QUILL, ChatColor.GREEN + "Chat Abuse", (short) 0));
-        menu.setItem(21, createMenuItem(Material.DIAMOND_SWORD, ChatColor.GREEN + "Cheating (Hacks)", (short) 0));
-        menu.setItem(22, createMenuItem(Material.PAPER, ChatColor.GREEN + "Bad Name", (short) 0));
-        menu.setItem(23, createMenuItem(Material.BANNER, ChatColor.GREEN + "Bad Skin", (short) 0));
-        menu.setItem(24, createMenuItem(Material.COMPASS, ChatColor.GREEN + "Other", (short) 0));
-
-        // Second row
-        menu.setItem(29, createMenuItem(Material.LEATHER, ChatColor.GREEN + "Bug Abuse", (short) 0));
-        menu.setItem(30, createMenuItem(Material.MONSTER_EGG, ChatColor.GREEN + "Bad Pet name", (short) 97));
-        menu.setItem(31, createMenuItem(Material.TNT, ChatColor.GREEN + "Boosting / Exploits", (short) 0));
-        menu.setItem(48, createMenuItem(Material.BOOK, ChatColor.GREEN + "Report Info", (short) 0));
-        menu.setItem(49, createCloseItem());
-
-        player.openInventory(menu);
-        reportSelections.put(player, reportedName);
-    }
-
-    private ItemStack createMenuItem(Material material, String name, short durability) {
-        ItemStack item = new ItemStack(material, 1, durability);
-        ItemMeta meta = item.getItemMeta();
-        meta.setDisplayName(name);
-        meta.setLore(Arrays.asList("" + ChatColor.RED + "Abuse may result in punishment!"));
-        item.setItemMeta(meta);
-        return item;
-    }
-
-    private ItemStack createCloseItem() {
-        ItemStack close = new ItemStack(Material.BARRIER);
-        ItemMeta meta = close.getItemMeta();
-        meta.setDisplayName(ChatColor.RED + "Close " + ChatColor.GRAY + "(#0166)");
-        meta.setLore(Arrays.asList(ChatColor.GRAY + ""));
-        close.setItemMeta(meta);
-        return close;
+        long start = System.nanoTime();
+        ReportMenu holder = reportMenus.createReportMenu(player.getUniqueId(), reportedName, System.currentTimeMillis());
+        player.openInventory(holder.getInventory());
+        reportSessions.open(holder);
+        metrics.record(Metrics.Timer.MENU_OPEN, start);
     }
 
-    // =====================
-    // Confirmation Menu
-    // =====================
     private void openConfirmationMenu(Player player, String reportedName, String reason) {
-        Inventory confirmMenu = Bukkit.createInventory(null, 9 * 3, "Confirm Report");
-
-        ItemStack confirm = new ItemStack(Material.STAINED_CLAY, 1, (short) 13);
-        ItemMeta confirmMeta = confirm.getItemMeta();
-        confirmMeta.setDisplayName(ChatColor.GREEN + "Submit Report");
-        confirm.setItemMeta(confirmMeta);
-        confirmMenu.setItem(11, confirm);
-
-        ItemStack cancel = new ItemStack(Material.STAINED_CLAY, 1, (short) 14);
-        ItemMeta cancelMeta = cancel.getItemMeta();
-        cancelMeta.setDisplayName(ChatColor.RED + "Cancel Report");
-        cancel.setItemMeta(cancelMeta);
-        confirmMenu.setItem(15, cancel);
-
-        // Player head center
-        ItemStack head = new ItemStack(Material.SKULL_ITEM, 1, (short) 3);
-        SkullMeta headMeta = (SkullMeta) head.getItemMeta();
-        headMeta.setOwner(reportedName);
-        headMeta.setDisplayName(ChatColor.YELLOW + "/Reported " + reportedName);
-        headMeta.setLore(Arrays.asList(ChatColor.GRAY + "Reason: " + ChatColor.GREEN + reason));
-        head.setItemMeta(headMeta);
-        confirmMenu.setItem(13, head);
-
-        player.openInventory(confirmMenu);
-        reportSelections.put(player, reportedName + ":" + reason);
+        long start = System.nanoTime();
+        ReportMenu holder = reportMenus.createConfirmMenu(player.getUniqueId(), reportedName, reason,
+                System.currentTimeMillis());
+        player.openInventory(holder.getInventory());
+        reportSessions.open(holder);
+        metrics.record(Metrics.Timer.MENU_OPEN, start);
     }
 
     // =====================
@@ -519,57 +1140,50 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
     // =====================
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
-        if (!(event.getWhoClicked() instanceof Player)) {
+        Inventory top = event.getView().getTopInventory();
+        if (!(top.getHolder() instanceof ReportMenu) || !(event.getWhoClicked() instanceof Player)) {
+            return;
+        }
+        event.setCancelled(true);
+        if (event.getRawSlot() < 0 || event.getRawSlot() >= top.getSize()) {
             return;
         }
 
         Player player = (Player) event.getWhoClicked();
-        Inventory clickedInventory = event.getClickedInventory();
-        if (clickedInventory == null) return;
-
-        String title = event.getView().getTitle();
-
-        if (title.equals("Report Menu")) {
-            event.setCancelled(true);
-            ItemStack item = event.getCurrentItem();
-            if (item == null || item.getType() == Material.AIR) return;
+        ReportMenu menu = (ReportMenu) top.getHolder();
+        if (reportSessions.get(player.getUniqueId(), System.currentTimeMillis()) != menu) {
+            // Expired, or a menu left over from before a reload
+            player.closeInventory();
+            return;
+        }
+        ItemStack item = event.getCurrentItem();
+        if (item == null || item.getType() == Material.AIR) return;
 
-            String reason = ChatColor.stripColor(item.getItemMeta().getDisplayName());
-            if (validReasons.contains(reason)) {
-                String reportedName = reportSelections.get(player);
-                openConfirmationMenu(player, reportedName, reason);
+        if (menu.getStage() == ReportMenu.Stage.REASON) {
+            String reason = reportMenus.getReason(event.getRawSlot());
+            if (reason != null) {
+                openConfirmationMenu(player, menu.getReportedName(), reason);
             } else if (item.getType() == Material.BARRIER) {
                 player.closeInventory();
             }
-        } else if (title.equals("Confirm Report")) {
-            event.setCancelled(true);
-            ItemStack item = event.getCurrentItem();
-            if (item == null || item.getType() == Material.AIR) return;
-
-            String selection = reportSelections.get(player);
-            if (selection == null) {
+        } else if (item.getType() == Material.STAINED_CLAY) {
+            short durability = item.getDurability();
+            if (durability == 13) {
+                long start = System.nanoTime();
+                submitReport(player, menu.getReportedName(), menu.getReason());
+                metrics.record(Metrics.Timer.REPORT, start);
                 player.closeInventory();
-                return;
-            }
-            String[] parts = selection.split(":");
-            if (parts.length < 2) {
+            } else if (durability == 14) {
+                sendMessage(player, "&f[WATCHDOG] &cReport cancelled.");
                 player.closeInventory();
-                return;
             }
+        }
+    }
 
-            String reportedName = parts[0];
-            String reason = parts[1];
-
-            if (item.getType() == Material.STAINED_CLAY) {
-                short durability = item.getDurability();
-                if (durability == 13) {
-                    submitReport(player, reportedName, reason);
-                    player.closeInventory();
-                } else if (durability == 14) {
-                    sendMessage(player, "&f[WATCHDOG] &cReport cancelled.");
-                    player.closeInventory();
-                }
-            }
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        if (event.getInventory().getHolder() instanceof ReportMenu) {
+            reportSessions.close(event.getPlayer().getUniqueId(), (ReportMenu) event.getInventory().getHolder());
         }
     }
 
@@ -577,52 +1191,30 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
     // Report Database Handling - FIXED VERSION
     // =====================
     private void submitReport(Player player, String reportedName, String reason) {
-        // Check database connection first
-        if (dbConnection == null) {
-            sendMessage(player, "&cDatabase connection is not available. Please contact an administrator.");
-            getLogger().severe("Database connection is null when trying to submit report!");
+        String reporterName = player.getName();
+        long now = System.currentTimeMillis();
+        // The same report again shortly after is counted on the first one, not stored or announced again
+        Report folded = pendingReports.coalesce(reporterName, reportedName, reason, now - reportCoalesceWindow);
+        if (folded != null) {
+            writer.addReportHit(folded);
+            sendMessage(player, "&f[WATCHDOG] &eYou already reported " + reportedName + " for that. Staff have been notified.");
             return;
         }
+        if (!reportLimiter.tryAcquire(player.getUniqueId(), now)) {
+            long wait = reportLimiter.getWaitTime(player.getUniqueId(), now);
+            sendMessage(player, "&f[WATCHDOG] &cYou are reporting too quickly! Try again in " + Durations.format(Math.max(1000L, wait)) + ".");
+            return;
+        }
+        Report report = writer.insertReport(reporterName, reportedName, reason);
+        metrics.increment(Metrics.Counter.REPORTS);
+        changeFeed.markLocal(report.getActionId());
+        pendingReports.add(report);
 
-        PreparedStatement stmt = null;
-        try {
-            stmt = dbConnection.prepareStatement(
-                    "INSERT INTO reports (reporter, reported, reason, timestamp, status) VALUES (?, ?, ?, NOW(), 'pending')"
-            );
-            stmt.setString(1, player.getName());
-            stmt.setString(2, reportedName);
-            stmt.setString(3, reason);
-            int affectedRows = stmt.executeUpdate();
-
-            if (affectedRows > 0) {
-                // Success - send messages
-                String message = "&f[WATCHDOG] &e" + player.getName() + " &ahas reported &e" + reportedName + " &afor &e[" + reason + "]";
-                for (Player p : getServer().getOnlinePlayers()) {
-                    if (p.hasPermission("farepixel.admin") || p.hasPermission("watchdog.admin")) {
-                        sendMessage(p, message);
-                    }
-                }
-                sendMessage(player, "&f[WATCHDOG] &aReport submitted! Make sure to open a report at &b&nhttps://farepixel.net/report&r");
-                sendMessage(player, "&f[WATCHDOG] &c&oWarning! Abuse of this command is punishable.");
-
-                getLogger().info("Report submitted: " + player.getName() + " reported " + reportedName + " for " + reason);
-            } else {
-                sendMessage(player, "&cFailed to save report to database.");
-                getLogger().warning("No rows affected when inserting report for " + reportedName);
-            }
+        notifyStaff(StaffAudience.Tier.REPORTS, Message.STAFF_REPORT, reporterName, reportedName, reason);
+        recordHeat(reportedName, now);
+        sendMessage(player, Message.REPORT_SUBMITTED);
 
-        } catch (SQLException e) {
-            getLogger().log(Level.SEVERE, "Database insert error for report", e);
-            sendMessage(player, "&cDatabase error! Report not saved. Error: " + e.getMessage());
-        } finally {
-            if (stmt != null) {
-                try {
-                    stmt.close();
-                } catch (SQLException e) {
-                    getLogger().log(Level.WARNING, "Error closing statement", e);
-                }
-            }
-        }
+        getLogger().info("Report submitted: " + reporterName + " reported " + reportedName + " for " + reason);
     }
 
     // =====================
@@ -648,13 +1240,6 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            // Check if database is connected
-            if (dbConnection == null) {
-                sendMessage(player, "&cDatabase connection is not available. Please try again later.");
-                getLogger().warning("Database connection is null when player tried to report!");
-                return true;
-            }
-
             openReportMenu(player, reportedName);
             return true;
         }
@@ -676,41 +1261,39 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
             String reporter = args[0];
             String reported = args[1];
 
-            PreparedStatement stmt = null;
-            try {
-                stmt = dbConnection.prepareStatement(
-                        "UPDATE reports SET status = 'accepted' WHERE reporter = ? AND reported = ? AND status = 'pending'");
-                stmt.setString(1, reporter);
-                stmt.setString(2, reported);
-                int rows = stmt.executeUpdate();
-                if (rows == 0) {
-                    sendMessage(sender, "&cNo pending report found for " + reporter + " against " + reported);
-                    return true;
-                }
-            } catch (SQLException e) {
-                getLogger().log(Level.SEVERE, "Database update error", e);
-                sendMessage(sender, "&cDatabase error!");
-                return true;
-            } finally {
-                if (stmt != null) {
-                    try {
-                        stmt.close();
-                    } catch (SQLException e) {
-                        getLogger().log(Level.WARNING, "Error closing statement", e);
-                    }
-                }
+            // Pending reports are indexed in memory, so a known one is accepted now; the database follows
+            boolean wasPending = !pendingReports.accept(reporter, reported, System.currentTimeMillis()).isEmpty();
+            writer.acceptReport(reporter, reported,
+                    result -> {
+                        if (wasPending) {
+                            return;
+                        }
+                        if (!result.isSuccess()) {
+                            sendMessage(sender, "&eThe database is unreachable; the report will be accepted once it is back.");
+                            return;
+                        }
+                        if (result.getUpdateCount() == 0) {
+                            sendMessage(sender, "&cNo pending report found for " + reporter + " against " + reported);
+                            return;
+                        }
+                        announceAccepted(sender, reporter, reported);
+                    });
+            if (wasPending) {
+                announceAccepted(sender, reporter, reported);
             }
+            return true;
+        }
+    }
 
-            for (Player p : getServer().getOnlinePlayers()) {
-                if (p.getName().equalsIgnoreCase(reporter)) {
-                    sendMessage(p, "&f[WATCHDOG] &aYour report against " + reported + " has been addressed! Thanks for your help!");
-                    break;
-                }
+    private void announceAccepted(CommandSender sender, String reporter, String reported) {
+        for (Player p : getServer().getOnlinePlayers()) {
+            if (p.getName().equalsIgnoreCase(reporter)) {
+                sendMessage(p, Message.REPORT_ADDRESSED, reported);
+                break;
             }
-
-            sendMessage(sender, "&f[WATCHDOG] &aAccepted " + reporter + "'s report against " + reported + ".");
-            return true;
         }
+
+        sendMessage(sender, "&f[WATCHDOG] &aAccepted " + reporter + "'s report against " + reported + ".");
     }
 
     private class ListCommand implements CommandExecutor {
@@ -721,56 +1304,104 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            if (dbConnection == null) {
-                sendMessage(sender, "&c[WATCHDOG] Database connection is not available!");
-                return true;
+            int page = 1;
+            String reason = null;
+            String target = null;
+            boolean byHeat = false;
+            for (String arg : args) {
+                String lower = arg.toLowerCase(Locale.ROOT);
+                if (lower.equals("s:heat")) {
+                    byHeat = true;
+                } else if (lower.equals("s:time")) {
+                    byHeat = false;
+                } else if (lower.startsWith("r:")) {
+                    reason = matchReason(arg.substring(2));
+                    if (reason == null) {
+                        sendMessage(sender, "&cUnknown reason! Reasons: &7" + String.join(", ", validReasons));
+                        return true;
+                    }
+                } else if (lower.startsWith("t:")) {
+                    target = arg.substring(2);
+                } else {
+                    try {
+                        page = Integer.parseInt(arg);
+                    } catch (NumberFormatException e) {
+                        page = 0;
+                    }
+                    if (page < 1) {
+                        sendMessage(sender, "&cUse: /watchdoglist [page] [r:<reason>] [t:<player>] [s:heat|s:time]");
+                        return true;
+                    }
+                }
             }
 
-            PreparedStatement stmt = null;
-            ResultSet rs = null;
-            try {
-                stmt = dbConnection.prepareStatement(
-                        "SELECT id, reporter, reported, reason, timestamp FROM reports WHERE status = 'pending' ORDER BY timestamp DESC LIMIT 20");
-                rs = stmt.executeQuery();
-                if (!rs.next()) {
-                    sendMessage(sender, "&f[WATCHDOG] No pending reports.");
-                    return true;
+            if (pendingReports.size() == 0) {
+                sendMessage(sender, "&f[WATCHDOG] No pending reports.");
+                return true;
+            }
+            StringBuilder counts = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : pendingReports.countByReason().entrySet()) {
+                counts.append(counts.length() == 0 ? "" : "&7, ").append("&e").append(entry.getKey())
+                        .append(" &f").append(entry.getValue());
+            }
+            sendMessage(sender, "&f[WATCHDOG] Pending reports: &c" + pendingReports.size() + " &7(" + counts + "&7)");
+            final long now = System.currentTimeMillis();
+            Map<String, Integer> hot = hotTargets.getTop(3, now);
+            if (!hot.isEmpty()) {
+                StringBuilder line = new StringBuilder();
+                for (Map.Entry<String, Integer> entry : hot.entrySet()) {
+                    line.append(line.length() == 0 ? "" : "&7, ").append("&c").append(entry.getKey())
+                            .append(" &f").append(entry.getValue());
                 }
+                sendMessage(sender, "&f[WATCHDOG] Most reported in the last " + Durations.format(hotTargets.getWindowMillis()) + ": " + line);
+            }
 
-                sendMessage(sender, "&f[WATCHDOG] Pending reports (latest first):");
-                do {
-                    int id = rs.getInt("id");
-                    String reporter = rs.getString("reporter");
-                    String reported = rs.getString("reported");
-                    String reason = rs.getString("reason");
-                    Timestamp timestamp = rs.getTimestamp("timestamp");
-                    String line = "&eID: " + id + " &7- &e" + reporter + " &areported &e" + reported + " &afor &e[" + reason + "] &aat &e" + timestamp;
-                    sendMessage(sender, line);
-                } while (rs.next());
-            } catch (SQLException e) {
-                getLogger().log(Level.SEVERE, "Database query error", e);
-                sendMessage(sender, "&cDatabase error!");
+            Comparator<Report> order = null;
+            if (byHeat) {
+                Map<String, Integer> heat = new HashMap<>();
+                order = (a, b) -> Integer.compare(
+                        heat.computeIfAbsent(b.getReported().toLowerCase(Locale.ROOT), name -> hotTargets.getHeat(name, now)),
+                        heat.computeIfAbsent(a.getReported().toLowerCase(Locale.ROOT), name -> hotTargets.getHeat(name, now)));
+            }
+            PendingReports.Page result = pendingReports.query(reason, target, page, 10, order);
+            if (result.getReports().isEmpty()) {
+                sendMessage(sender, result.getTotalMatches() == 0
+                        ? "&7No pending reports match that filter."
+                        : "&cPage " + page + " does not exist! &7There are " + result.getTotalPages() + " page(s).");
                 return true;
-            } finally {
-                if (rs != null) {
-                    try {
-                        rs.close();
-                    } catch (SQLException e) {
-                        getLogger().log(Level.WARNING, "Error closing result set", e);
-                    }
-                }
-                if (stmt != null) {
-                    try {
-                        stmt.close();
-                    } catch (SQLException e) {
-                        getLogger().log(Level.WARNING, "Error closing statement", e);
-                    }
+            }
+            sendMessage(sender, "&7Page " + page + "/" + result.getTotalPages() + " &8(" + result.getTotalMatches() +
+                    " matching, " + (byHeat ? "most reported first" : "latest first") + ")");
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            for (Report report : result.getReports()) {
+                String line = "&eID: " + formatId(report.getId(), report.getActionId()) + " &7- &e" + report.getReporter() +
+                        " &areported &e" + report.getReported() +
+                        " &afor &e[" + report.getReason() + "] &aat &e" + dateFormat.format(report.getTimestamp());
+                if (report.getHits() > 1) {
+                    line += " &c(x" + report.getHits() + ")";
                 }
+                sendMessage(sender, line);
+            }
+            if (page < result.getTotalPages()) {
+                sendMessage(sender, "&7Use &e/watchdoglist " + (page + 1) + (byHeat ? " s:heat" : "") + " &7for the next page.");
             }
             return true;
         }
     }
 
+    /**
+     * Resolves a reason filter such as "cheat" to the full reason name, ignoring case and spaces.
+     */
+    private String matchReason(String input) {
+        String wanted = input.replace("_", " ").toLowerCase(Locale.ROOT);
+        for (String reason : validReasons) {
+            if (reason.toLowerCase(Locale.ROOT).startsWith(wanted)) {
+                return reason;
+            }
+        }
+        return null;
+    }
+
     private class BanCommand implements CommandExecutor {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
@@ -792,48 +1423,20 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            String playerName = args[startIndex];
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = startIndex + 1; i < args.length; i++) {
-                reasonBuilder.append(args[i]).append(" ");
-            }
-            String reason = reasonBuilder.toString().trim();
-
-            if (isPlayerBanned(playerName)) {
-                sendMessage(sender, "&c" + playerName + " is already been banned!");
-                return true;
-            }
-
-            if (addPunishment(playerName, null, null, PunishmentType.BAN, reason,
-                    sender.getName(), 0, silent)) {
-                sendMessage(sender, "&c" + playerName + " was successfully banned!");
-
-                if (!silent) {
-                    String message = "&c&l&n" + playerName + " &cgot banned by &l" + sender.getName() + " &cFor " + reason + " permanently";
-                    for (Player p : getServer().getOnlinePlayers()) {
-                        if (p.hasPermission("watchdog.staff")) {
-                            sendMessage(p, message);
-                        }
-                    }
-                }
+                reasonBuilder.append(args[i]).append(" ");
+            }
+            String reason = reasonBuilder.toString().trim();
 
-                // Kick player if online
-                Player target = getServer().getPlayer(playerName);
-                if (target != null) {
-                    target.kickPlayer(ChatColor.translateAlternateColorCodes('&',
-                            "&cYou are permanently banned from this server!\n" +
-                                    "&7\n" +
-                                    "&7Reason: &f" + reason + "\n" +
-                                    "&7Find out more: &b&nhttps://www.farepixel.fun/appeal\n" +
-                                    "&7\n" +
-                                    "&7Ban ID: &f#0001\n" +
-                                    "&7Sharing your Ban ID may affect the processing of your appeal"
-                    ));
-                }
-            } else {
-                sendMessage(sender, "&cFailed to ban " + playerName);
+            PunishmentSpec spec = parsePunishment(sender, null, reason);
+            if (spec == null) {
+                return true;
             }
 
+            resolvePlayer(args[startIndex], player -> placeBan(sender, player, spec.reason, spec.layout,
+                    spec.duration, silent));
+
             return true;
         }
     }
@@ -847,7 +1450,7 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
             }
 
             if (args.length < 3) {
-                sendMessage(sender, "&cUsage: /tempban (-s) [Name] [Xmo/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
+                sendMessage(sender, "&cUsage: /tempban (-s) [Name] [Xy/Xmo/Xw/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
                 return true;
             }
 
@@ -855,11 +1458,10 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
             int startIndex = silent ? 1 : 0;
 
             if (args.length < startIndex + 3) {
-                sendMessage(sender, "&cUsage: /tempban (-s) [Name] [Xmo/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
+                sendMessage(sender, "&cUsage: /tempban (-s) [Name] [Xy/Xmo/Xw/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
                 return true;
             }
 
-            String playerName = args[startIndex];
             String durationStr = args[startIndex + 1];
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = startIndex + 2; i < args.length; i++) {
@@ -867,45 +1469,62 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
             }
             String reason = reasonBuilder.toString().trim();
 
-            long duration = parseDuration(durationStr);
-            if (duration <= 0) {
-                sendMessage(sender, "&cInvalid duration format!");
+            PunishmentSpec spec = parsePunishment(sender, durationStr, reason);
+            if (spec == null) {
                 return true;
             }
 
-            if (addPunishment(playerName, null, null, PunishmentType.TEMPBAN, reason,
-                    sender.getName(), duration, silent)) {
-                String formattedDuration = formatDuration(duration);
-                sendMessage(sender, "&c" + playerName + " was successfully temp-banned for " + formattedDuration + "!");
+            resolvePlayer(args[startIndex], player -> placeBan(sender, player, spec.reason, spec.layout,
+                    spec.duration, silent));
 
-                if (!silent) {
-                    String message = "&c&l&n" + playerName + " &cgot banned by &l" + sender.getName() +
-                            " &cFor " + reason + " For &f" + formattedDuration;
-                    for (Player p : getServer().getOnlinePlayers()) {
-                        if (p.hasPermission("watchdog.staff")) {
-                            sendMessage(p, message);
-                        }
-                    }
-                }
+            return true;
+        }
+    }
 
-                // Kick player if online
-                Player target = getServer().getPlayer(playerName);
-                if (target != null) {
-                    target.kickPlayer(ChatColor.translateAlternateColorCodes('&',
-                            "&c You are temporarily banned for &f" + formattedDuration + " &cfrom this server!\n" +
-                                    "&7\n" +
-                                    "&7Reason: &f" + reason + "\n" +
-                                    "&7Find out more: &b&nhttps://www.farepixel.fun/appeal\n" +
-                                    "&7\n" +
-                                    "&7Ban ID: &f#0001\n" +
-                                    "&7Sharing your Ban ID may affect the processing of your appeal"
-                    ));
-                }
-            } else {
-                sendMessage(sender, "&cFailed to temp-ban " + playerName);
+    /**
+     * Bans the player, temporarily if the duration is positive, and kicks them if online.
+     *
+     * @param layout the layout the ban is counted under, or null
+     * @param duration in ms, 0 for permanent, or -1 to take it from the layout's ladder
+     */
+    private void placeBan(CommandSender sender, PlayerIdentity player, String reason, PunishmentLayouts.Layout layout,
+                          long duration, boolean silent) {
+        String playerName = player.getName();
+        // A ladder step is never stacked on a ban the player already serves
+        if ((duration == 0 || layout != null) && isPlayerBanned(player)) {
+            sendMessage(sender, "&c" + playerName + " is already been banned!");
+            return;
+        }
+        long length = duration < 0 ? getLayoutDuration(layout, player) : duration;
+        Punishment current = banIndex.get(player.getUuid(), playerName);
+        if (current != null && current.endsAfter(length > 0 ? System.currentTimeMillis() + length : 0)) {
+            sendMessage(sender, "&c" + playerName + " is already banned for longer than that!");
+            return;
+        }
+
+        Punishment ban = addPunishment(player, length > 0 ? PunishmentType.TEMPBAN : PunishmentType.BAN, reason,
+                layout, sender.getName(), length, silent);
+        banIndex.put(ban);
+        if (length > 0) {
+            expiry.schedule(ban);
+            String formattedDuration = Durations.format(length);
+            sendMessage(sender, "&c" + playerName + " was successfully temp-banned for " + formattedDuration + "!");
+
+            if (!silent) {
+                notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_TEMPBAN, playerName, sender.getName(), reason, formattedDuration);
             }
+        } else {
+            sendMessage(sender, "&c" + playerName + " was successfully banned!");
 
-            return true;
+            if (!silent) {
+                notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_BAN, playerName, sender.getName(), reason);
+            }
+        }
+
+        // Kick player if online
+        Player target = getOnlinePlayer(player);
+        if (target != null) {
+            target.kickPlayer(buildBanScreen(ban));
         }
     }
 
@@ -930,33 +1549,19 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            String playerName = args[startIndex];
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = startIndex + 1; i < args.length; i++) {
                 reasonBuilder.append(args[i]).append(" ");
             }
             String reason = reasonBuilder.toString().trim();
 
-            if (isPlayerMuted(playerName)) {
-                sendMessage(sender, "&c&n" + playerName + " &chas been already been muted!");
+            PunishmentSpec spec = parsePunishment(sender, null, reason);
+            if (spec == null) {
                 return true;
             }
 
-            if (addPunishment(playerName, null, null, PunishmentType.MUTE, reason,
-                    sender.getName(), 0, silent)) {
-                sendMessage(sender, "&c" + playerName + " was successfully muted!");
-
-                if (!silent) {
-                    String message = "&c&l&n" + playerName + " &cgot muted permanently by &l" + sender.getName() + " &cFor " + reason;
-                    for (Player p : getServer().getOnlinePlayers()) {
-                        if (p.hasPermission("watchdog.staff")) {
-                            sendMessage(p, message);
-                        }
-                    }
-                }
-            } else {
-                sendMessage(sender, "&cFailed to mute " + playerName);
-            }
+            resolvePlayer(args[startIndex], player -> placeMute(sender, player, spec.reason, spec.layout,
+                    spec.duration, silent));
 
             return true;
         }
@@ -971,7 +1576,7 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
             }
 
             if (args.length < 3) {
-                sendMessage(sender, "&cUsage: /tempmute (-s) [Name] [Xmo/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
+                sendMessage(sender, "&cUsage: /tempmute (-s) [Name] [Xy/Xmo/Xw/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
                 return true;
             }
 
@@ -979,11 +1584,10 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
             int startIndex = silent ? 1 : 0;
 
             if (args.length < startIndex + 3) {
-                sendMessage(sender, "&cUsage: /tempmute (-s) [Name] [Xmo/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
+                sendMessage(sender, "&cUsage: /tempmute (-s) [Name] [Xy/Xmo/Xw/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
                 return true;
             }
 
-            String playerName = args[startIndex];
             String durationStr = args[startIndex + 1];
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = startIndex + 2; i < args.length; i++) {
@@ -991,31 +1595,58 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
             }
             String reason = reasonBuilder.toString().trim();
 
-            long duration = parseDuration(durationStr);
-            if (duration <= 0) {
-                sendMessage(sender, "&cInvalid duration format!");
+            PunishmentSpec spec = parsePunishment(sender, durationStr, reason);
+            if (spec == null) {
                 return true;
             }
 
-            if (addPunishment(playerName, null, null, PunishmentType.TEMPMUTE, reason,
-                    sender.getName(), duration, silent)) {
-                String formattedDuration = formatDuration(duration);
-                sendMessage(sender, "&c" + playerName + " was successfully temp-muted for " + formattedDuration + "!");
+            resolvePlayer(args[startIndex], player -> placeMute(sender, player, spec.reason, spec.layout,
+                    spec.duration, silent));
 
-                if (!silent) {
-                    String message = "&c&l&n" + playerName + " &cgot muted by &l" + sender.getName() +
-                            " &cFor " + reason + " For &f" + formattedDuration;
-                    for (Player p : getServer().getOnlinePlayers()) {
-                        if (p.hasPermission("watchdog.staff")) {
-                            sendMessage(p, message);
-                        }
-                    }
-                }
-            } else {
-                sendMessage(sender, "&cFailed to temp-mute " + playerName);
+            return true;
+        }
+    }
+
+    /**
+     * Mutes the player, temporarily if the duration is positive.
+     *
+     * @param layout the layout the mute is counted under, or null
+     * @param duration in ms, 0 for permanent, or -1 to take it from the layout's ladder
+     */
+    private void placeMute(CommandSender sender, PlayerIdentity player, String reason, PunishmentLayouts.Layout layout,
+                           long duration, boolean silent) {
+        String playerName = player.getName();
+        Punishment current = getActiveMute(player);
+        if ((duration == 0 || layout != null) && current != null) {
+            sendMessage(sender, "&c&n" + playerName + " &chas been already been muted!");
+            return;
+        }
+        long length = duration < 0 ? getLayoutDuration(layout, player) : duration;
+        if (current != null && current.endsAfter(length > 0 ? System.currentTimeMillis() + length : 0)) {
+            sendMessage(sender, "&c" + playerName + " is already muted for longer than that!");
+            return;
+        }
+
+        Punishment mute = addPunishment(player, length > 0 ? PunishmentType.TEMPMUTE : PunishmentType.MUTE, reason,
+                layout, sender.getName(), length, silent);
+        PlayerSession session = getSession(player);
+        if (session != null) {
+            session.addMute(mute);
+        }
+        if (length > 0) {
+            expiry.schedule(mute);
+            String formattedDuration = Durations.format(length);
+            sendMessage(sender, "&c" + playerName + " was successfully temp-muted for " + formattedDuration + "!");
+
+            if (!silent) {
+                notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_TEMPMUTE, playerName, sender.getName(), reason, formattedDuration);
             }
+        } else {
+            sendMessage(sender, "&c" + playerName + " was successfully muted!");
 
-            return true;
+            if (!silent) {
+                notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_MUTE, playerName, sender.getName(), reason);
+            }
         }
     }
 
@@ -1040,39 +1671,32 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            String playerName = args[startIndex];
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = startIndex + 1; i < args.length; i++) {
                 reasonBuilder.append(args[i]).append(" ");
             }
-            String reason = reasonBuilder.toString().trim();
+            // A layout only lends its reason here; warnings are not steps on its ladder
+            String reason = layoutReason(sender, reasonBuilder.toString().trim());
+            if (reason == null) {
+                return true;
+            }
 
-            if (addPunishment(playerName, null, null, PunishmentType.WARN, reason,
-                    sender.getName(), 0, silent)) {
+            resolvePlayer(args[startIndex], player -> {
+                String playerName = player.getName();
+                addPunishment(player, PunishmentType.WARN, reason, null,
+                        sender.getName(), 0, silent);
                 sendMessage(sender, "&c" + playerName + " was successfully warned!");
 
                 if (!silent) {
-                    String message = "&c&l&n" + playerName + " &cgot warned by &l" + sender.getName() + " &cFor the reason " + reason;
-                    for (Player p : getServer().getOnlinePlayers()) {
-                        if (p.hasPermission("watchdog.staff")) {
-                            sendMessage(p, message);
-                        }
-                    }
+                    notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_WARN, playerName, sender.getName(), reason);
                 }
 
                 // Notify warned player if online
-                Player target = getServer().getPlayer(playerName);
+                Player target = getOnlinePlayer(player);
                 if (target != null) {
-                    sendMessage(target,
-                            "&cYou received a warning from this server!\n" +
-                                    "&7\n" +
-                                    "&7Reason: &f" + reason + "\n" +
-                                    "&7Find out more: &b&nhttps://www.farepixel.fun/appeal"
-                    );
+                    sendMessage(target, Message.WARN_NOTICE, reason);
                 }
-            } else {
-                sendMessage(sender, "&cFailed to warn " + playerName);
-            }
+            });
 
             return true;
         }
@@ -1104,7 +1728,10 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
             for (int i = startIndex + 1; i < args.length; i++) {
                 reasonBuilder.append(args[i]).append(" ");
             }
-            String reason = reasonBuilder.toString().trim();
+            String reason = layoutReason(sender, reasonBuilder.toString().trim());
+            if (reason == null) {
+                return true;
+            }
 
             Player target = getServer().getPlayer(playerName);
             if (target == null) {
@@ -1112,24 +1739,152 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            if (addPunishment(playerName, null, null, PunishmentType.KICK, reason,
-                    sender.getName(), 0, silent)) {
-                sendMessage(sender, "&c&o" + playerName + " &7was successfully kicked!");
+            addPunishment(new PlayerIdentity(target.getUniqueId(), target.getName()), PunishmentType.KICK, reason,
+                    null, sender.getName(), 0, silent);
+            sendMessage(sender, "&c&o" + target.getName() + " &7was successfully kicked!");
 
-                target.kickPlayer(ChatColor.translateAlternateColorCodes('&',
-                        "&cYou got kicked from this server!\n" +
-                                "&7\n" +
-                                "&7Reason: &l" + reason + "\n" +
-                                "&7"
-                ));
-            } else {
-                sendMessage(sender, "&cFailed to kick " + playerName);
+            target.kickPlayer(messages.render(Message.KICK_SCREEN, reason));
+
+            return true;
+        }
+    }
+
+    private class IpBanCommand implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (!sender.hasPermission("watchdog.ipban")) {
+                sendMessage(sender, "&cYou don't have permission for that!");
+                return true;
+            }
+
+            if (args.length < 2) {
+                sendMessage(sender, "&cUsage: &7&o/ipban (-s) [Name/IP/CIDR] [Reason/@Layout]");
+                return true;
+            }
+
+            boolean silent = args[0].equalsIgnoreCase("-s");
+            int startIndex = silent ? 1 : 0;
+
+            if (args.length < startIndex + 2) {
+                sendMessage(sender, "&cUsage: &7&o/ipban (-s) [Name/IP/CIDR] [Reason/@Layout]");
+                return true;
+            }
+
+            StringBuilder reasonBuilder = new StringBuilder();
+            for (int i = startIndex + 1; i < args.length; i++) {
+                reasonBuilder.append(args[i]).append(" ");
+            }
+            String reason = reasonBuilder.toString().trim();
+
+            PunishmentSpec spec = parsePunishment(sender, null, reason);
+            if (spec == null) {
+                return true;
+            }
+
+            banIp(sender, args[startIndex], spec.reason, spec.layout, spec.duration, silent);
+            return true;
+        }
+    }
+
+    private class TempIpBanCommand implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (!sender.hasPermission("watchdog.tempipban")) {
+                sendMessage(sender, "&cYou don't have permission for that!");
+                return true;
+            }
+
+            if (args.length < 3) {
+                sendMessage(sender, "&cUsage: /tempipban (-s) [Name/IP/CIDR] [Xy/Xmo/Xw/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
+                return true;
+            }
+
+            boolean silent = args[0].equalsIgnoreCase("-s");
+            int startIndex = silent ? 1 : 0;
+
+            if (args.length < startIndex + 3) {
+                sendMessage(sender, "&cUsage: /tempipban (-s) [Name/IP/CIDR] [Xy/Xmo/Xw/Xd/Xh/Xm/Xs/#TimeLayout] [Reason/@Layout]");
+                return true;
+            }
+
+            String durationStr = args[startIndex + 1];
+            StringBuilder reasonBuilder = new StringBuilder();
+            for (int i = startIndex + 2; i < args.length; i++) {
+                reasonBuilder.append(args[i]).append(" ");
+            }
+            String reason = reasonBuilder.toString().trim();
+
+            PunishmentSpec spec = parsePunishment(sender, durationStr, reason);
+            if (spec == null) {
+                return true;
             }
 
+            banIp(sender, args[startIndex], spec.reason, spec.layout, spec.duration, silent);
             return true;
         }
     }
 
+    /**
+     * Bans an address or CIDR range, or the address an online player is connected from,
+     * and kicks everyone online inside it. Temporarily if the duration is positive.
+     *
+     * @param layout the layout the ban is counted under, or null
+     * @param duration in ms, 0 for permanent, or -1 to take it from the layout's ladder
+     *                 (a bare address or range has no earlier offenses, so it gets the first step)
+     */
+    private void banIp(CommandSender sender, String target, String reason, PunishmentLayouts.Layout layout,
+                       long duration, boolean silent) {
+        IpRange range = IpRange.parse(target);
+        PlayerIdentity player;
+        if (range != null) {
+            // Bans of a bare address or range are not on any player
+            player = new PlayerIdentity(null, "");
+        } else {
+            Player online = getServer().getPlayerExact(target);
+            if (online == null || online.getAddress() == null) {
+                sendMessage(sender, "&c&o" + target + " &7is not online and is not an IP address or range!");
+                return;
+            }
+            range = IpRange.of(online.getAddress().getAddress());
+            player = new PlayerIdentity(online.getUniqueId(), online.getName());
+        }
+        String address = range.toString();
+        String shown = player.isKnown() ? player.getName() + " (" + address + ")" : address;
+        if (ipBanIndex.get(range) != null) {
+            sendMessage(sender, "&c" + shown + " is already been banned!");
+            return;
+        }
+
+        long length = duration < 0 ? getLayoutDuration(layout, player) : duration;
+
+        Punishment ban = addPunishment(player, address, length > 0 ? PunishmentType.TEMPIPBAN : PunishmentType.IPBAN,
+                reason, layout, sender.getName(), length, silent);
+        ipBanIndex.put(ban);
+        expiry.schedule(ban);
+        if (length > 0) {
+            String formattedDuration = Durations.format(length);
+            sendMessage(sender, "&c" + shown + " was successfully temp-IP-banned for " + formattedDuration + "!");
+            if (!silent) {
+                notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_TEMPIPBAN, shown, sender.getName(), reason, formattedDuration);
+            }
+        } else {
+            sendMessage(sender, "&c" + shown + " was successfully IP-banned!");
+            if (!silent) {
+                notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_IPBAN, shown, sender.getName(), reason);
+            }
+        }
+
+        kickAll(range, buildBanScreen(ban));
+    }
+
+    private void kickAll(IpRange range, String screen) {
+        for (Player online : new ArrayList<>(getServer().getOnlinePlayers())) {
+            if (online.getAddress() != null && range.contains(online.getAddress().getAddress())) {
+                online.kickPlayer(screen);
+            }
+        }
+    }
+
     private class UnBanCommand implements CommandExecutor {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
@@ -1143,38 +1898,45 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            String target = args[0];
-            PreparedStatement stmt = null;
-            try {
-                stmt = dbConnection.prepareStatement(
-                        "UPDATE punishments SET active = FALSE WHERE player_name = ? AND punishment_type IN ('BAN', 'TEMPBAN') AND active = TRUE"
-                );
-                stmt.setString(1, target);
-                int rows = stmt.executeUpdate();
-
-                if (rows > 0) {
-                    sendMessage(sender, "&a" + target + " was successfully unbanned!");
-                    String message = "&e&o" + sender.getName() + " &7unbanned &c&o" + target;
-                    for (Player p : getServer().getOnlinePlayers()) {
-                        if (p.hasPermission("watchdog.staff")) {
-                            sendMessage(p, message);
-                        }
+            IpRange range = IpRange.parse(args[0]);
+            if (range != null) {
+                unbanIp(sender, range);
+                return true;
+            }
+
+            resolvePlayer(args[0], player -> {
+                String target = player.getName();
+                // The index holds every active ban, so the unban takes effect now; the database follows
+                boolean wasBanned = banIndex.remove(target) != null;
+                if (player.isKnown()) {
+                    // Also a ban the account got under an earlier name
+                    Punishment earlier = banIndex.remove(player.getUuid());
+                    if (earlier != null) {
+                        expiry.cancel(earlier.getPlayerName(), true);
+                        wasBanned = true;
                     }
-                } else {
-                    sendMessage(sender, "&c&n" + target + " &cis not banned!");
                 }
-            } catch (SQLException e) {
-                getLogger().log(Level.SEVERE, "Failed to unban player", e);
-                sendMessage(sender, "&cFailed to unban " + target);
-            } finally {
-                if (stmt != null) {
-                    try {
-                        stmt.close();
-                    } catch (SQLException e) {
-                        getLogger().log(Level.WARNING, "Error closing statement", e);
-                    }
+                boolean announced = wasBanned;
+                expiry.cancel(target, true);
+                writer.deactivateBans(target, player.getUuid(),
+                        result -> {
+                            if (announced) {
+                                return;
+                            }
+                            if (!result.isSuccess()) {
+                                sendMessage(sender, "&eThe database is unreachable; " + target + " will be unbanned once it is back.");
+                                return;
+                            }
+                            if (result.getUpdateCount() == 0) {
+                                sendMessage(sender, "&c&n" + target + " &cis not banned!");
+                                return;
+                            }
+                            announceUnban(sender, target);
+                        });
+                if (wasBanned) {
+                    announceUnban(sender, target);
                 }
-            }
+            });
 
             return true;
         }
@@ -1193,43 +1955,75 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            String target = args[0];
-            PreparedStatement stmt = null;
-            try {
-                stmt = dbConnection.prepareStatement(
-                        "UPDATE punishments SET active = FALSE WHERE player_name = ? AND punishment_type IN ('MUTE', 'TEMPMUTE') AND active = TRUE"
-                );
-                stmt.setString(1, target);
-                int rows = stmt.executeUpdate();
-
-                if (rows > 0) {
-                    sendMessage(sender, "&c&n" + target + " &7was successfully unmuted!");
-                    String message = "&e&o" + sender.getName() + " &7unmuted &c&o" + target;
-                    for (Player p : getServer().getOnlinePlayers()) {
-                        if (p.hasPermission("watchdog.staff")) {
-                            sendMessage(p, message);
-                        }
-                    }
-                } else {
-                    sendMessage(sender, "&c&n" + target + " is not muted!");
-                }
-            } catch (SQLException e) {
-                getLogger().log(Level.SEVERE, "Failed to unmute player", e);
-                sendMessage(sender, "&cFailed to unmute " + target);
-            } finally {
-                if (stmt != null) {
-                    try {
-                        stmt.close();
-                    } catch (SQLException e) {
-                        getLogger().log(Level.WARNING, "Error closing statement", e);
+            resolvePlayer(args[0], player -> {
+                String target = player.getName();
+                // An online player's session is authoritative; offline players are answered by the database
+                expiry.cancel(target, false);
+                PlayerSession session = getSession(player);
+                if (session != null) {
+                    Punishment mute = session.getActiveMute(System.currentTimeMillis());
+                    if (mute == null) {
+                        sendMessage(sender, "&c&n" + target + " is not muted!");
+                        return;
                     }
+                    expiry.cancel(mute.getPlayerName(), false);
+                    session.setMute(null);
+                    writer.deactivateMutes(target, player.getUuid(), null);
+                    announceUnmute(sender, target);
+                    return;
                 }
-            }
+                writer.deactivateMutes(target, player.getUuid(),
+                        result -> {
+                            if (!result.isSuccess()) {
+                                sendMessage(sender, "&eThe database is unreachable; " + target + " will be unmuted once it is back.");
+                                return;
+                            }
+                            if (result.getUpdateCount() == 0) {
+                                sendMessage(sender, "&c&n" + target + " is not muted!");
+                                return;
+                            }
+                            announceUnmute(sender, target);
+                        });
+            });
 
             return true;
         }
     }
 
+    private void unbanIp(CommandSender sender, IpRange range) {
+        String target = range.toString();
+        boolean wasBanned = ipBanIndex.remove(range) != null;
+        expiry.cancelIpBan(target);
+        writer.deactivateIpBans(target,
+                result -> {
+                    if (wasBanned) {
+                        return;
+                    }
+                    if (!result.isSuccess()) {
+                        sendMessage(sender, "&eThe database is unreachable; " + target + " will be unbanned once it is back.");
+                        return;
+                    }
+                    if (result.getUpdateCount() == 0) {
+                        sendMessage(sender, "&c&n" + target + " &cis not banned!");
+                        return;
+                    }
+                    announceUnban(sender, target);
+                });
+        if (wasBanned) {
+            announceUnban(sender, target);
+        }
+    }
+
+    private void announceUnban(CommandSender sender, String target) {
+        sendMessage(sender, "&a" + target + " was successfully unbanned!");
+        notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_UNBAN, target, sender.getName());
+    }
+
+    private void announceUnmute(CommandSender sender, String target) {
+        sendMessage(sender, "&c&n" + target + " &7was successfully unmuted!");
+        notifyStaff(StaffAudience.Tier.STAFF, Message.STAFF_UNMUTE, target, sender.getName());
+    }
+
     private class HistoryCommand implements CommandExecutor {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
@@ -1243,7 +2037,9 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                 return true;
             }
 
-            String target = args[0];
+            // An address or range is looked up in the form bans store it in
+            IpRange range = IpRange.parse(args[0]);
+            String target = range == null ? args[0] : range.toString();
             int page = 1;
             if (args.length > 1) {
                 try {
@@ -1253,10 +2049,265 @@ public class WatchdogPaper extends JavaPlugin implements Listener {
                     return true;
                 }
             }
+            if (page < 1) {
+                sendMessage(sender, "&cInvalid page number!");
+                return true;
+            }
+            if (!writer.isAttached()) {
+                sendMessage(sender, "&cThe database is unreachable right now!");
+                return true;
+            }
+
+            final int requestedPage = page;
+            final boolean showAlts = range == null && page == 1;
+            // A name is looked up as the account that last used it, so rows under its earlier names show too
+            Consumer<PlayerIdentity> lookup = player -> Bukkit.getScheduler().runTaskAsynchronously(WatchdogPaper.this, () -> {
+                PunishmentHistory.Page result;
+                List<String> alts;
+                try {
+                    result = history.getPage(target, player == null ? null : player.getUuid(), requestedPage);
+                    alts = showAlts ? findAltNames(target) : Collections.<String>emptyList();
+                } catch (SQLException e) {
+                    getLogger().log(Level.SEVERE, "Failed to load history of " + target, e);
+                    Bukkit.getScheduler().runTask(WatchdogPaper.this, () -> sendMessage(sender, "&cDatabase error!"));
+                    return;
+                }
+                Bukkit.getScheduler().runTask(WatchdogPaper.this, () -> showHistory(sender, target, result, alts));
+            });
+            if (range == null) {
+                resolvePlayer(target, lookup);
+            } else {
+                lookup.accept(null);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Names of the accounts linked to the player, banned ones in red. Runs async; names missing
+     * from the cache are looked up in storage.
+     */
+    private List<String> findAltNames(String target) throws SQLException {
+        PlayerIdentity player = nameCache.getByName(target);
+        if (player == null) {
+            player = storage.findPlayer(target);
+        }
+        List<String> names = new ArrayList<>();
+        if (player == null) {
+            return names;
+        }
+        for (UUID alt : altIndex.getLinked(player.getUuid(), MAX_LISTED_ALTS)) {
+            PlayerIdentity identity = nameCache.getByUuid(alt);
+            if (identity == null) {
+                identity = storage.findPlayer(alt);
+            }
+            String name = identity == null ? alt.toString() : identity.getName();
+            names.add((banIndex.get(alt) != null ? "&c" : "&f") + name);
+        }
+        int more = altIndex.getLinkedCount(player.getUuid()) - names.size();
+        if (more > 0) {
+            names.add("&7" + more + " more");
+        }
+        return names;
+    }
+
+    private void showHistory(CommandSender sender, String target, PunishmentHistory.Page page, List<String> alts) {
+        if (page.getTotalEntries() == 0) {
+            sendMessage(sender, "&c&o" + target + " &7has no punishment history.");
+            showAlts(sender, alts);
+            return;
+        }
+        if (page.getEntries().isEmpty()) {
+            sendMessage(sender, "&cPage " + page.getPage() + " does not exist! &7" + target + " has " + page.getTotalPages() + " page(s).");
+            return;
+        }
+
+        sendMessage(sender, "&7&m--------&r &cHistory of &e" + target + " &7(Page " + page.getPage() + "/" + page.getTotalPages() +
+                ", " + page.getTotalEntries() + " total) &7&m--------");
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        long now = System.currentTimeMillis();
+        for (HistoryEntry entry : page.getEntries()) {
+            Punishment punishment = entry.getPunishment();
+            String line = "&e" + formatId(punishment.getId(), punishment.getActionId()) + " &c" + punishment.getType().name() +
+                    " &7by &f" + punishment.getOperator() +
+                    " &7on &f" + dateFormat.format(punishment.getStartTime());
+            if (!punishment.isPermanent()) {
+                line += " &7for &f" + Durations.format(punishment.getEndTime() - punishment.getStartTime());
+            }
+            sendMessage(sender, line + " " + formatHistoryStatus(entry, now));
+            sendMessage(sender, "  &7Reason: &f" + punishment.getReason());
+        }
+        if (page.getPage() < page.getTotalPages()) {
+            sendMessage(sender, "&7Use &e/history " + target + " " + (page.getPage() + 1) + " &7for the next page.");
+        }
+        showAlts(sender, alts);
+    }
+
+    private void showAlts(CommandSender sender, List<String> alts) {
+        if (!alts.isEmpty()) {
+            sendMessage(sender, "&7Linked accounts: " + String.join("&7, ", alts));
+        }
+    }
+
+    private String formatHistoryStatus(HistoryEntry entry, long now) {
+        switch (entry.getPunishment().getType()) {
+            case BAN:
+            case TEMPBAN:
+            case IPBAN:
+            case TEMPIPBAN:
+            case MUTE:
+            case TEMPMUTE:
+                if (entry.getPunishment().isExpired(now)) {
+                    return "&8[Expired]";
+                }
+                return entry.isActive() ? "&a[Active]" : "&8[Removed]";
+            default:
+                return "";
+        }
+    }
+
+    private class WatchdogCommand implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (!sender.hasPermission("watchdog.admin")) {
+                sendMessage(sender, "&cYou don't have permission for that!");
+                return true;
+            }
+
+            if (args.length >= 1 && args[0].equalsIgnoreCase("stats")) {
+                showStats(sender);
+                return true;
+            }
+            if (args.length >= 1 && args[0].equalsIgnoreCase("import")) {
+                startImport(sender, args.length >= 2 ? args[1] : null);
+                return true;
+            }
+            if (args.length < 1 || !args[0].equalsIgnoreCase("reload")) {
+                sendMessage(sender, "&cUsage: /watchdog <reload|stats|import>");
+                return true;
+            }
 
-            // Implementation for history viewing
-            sendMessage(sender, "&7History feature will be implemented in next update");
+            loadMessages();
+            reloadConfig();
+            layouts.load(getConfig().getConfigurationSection("layouts"));
+            sendMessage(sender, "&aReloaded messages.yml and " + layouts.size() + " punishment layouts.");
             return true;
         }
     }
+
+    /**
+     * Imports the server's ban lists in the background, then reloads the ban indexes so the
+     * imported bans are enforced.
+     */
+    private void startImport(final CommandSender sender, String sourceName) {
+        final List<BanListImporter.Source> sources = BanListImporter.Source.parse(sourceName);
+        if (sources == null) {
+            sendMessage(sender, "&cUsage: /watchdog import <vanilla|banned-players|banned-ips>");
+            return;
+        }
+        if (!writer.isAttached()) {
+            sendMessage(sender, "&cThe database is unreachable; try again once it is back.");
+            return;
+        }
+        if (importing) {
+            sendMessage(sender, "&cAn import is already running.");
+            return;
+        }
+        importing = true;
+        sendMessage(sender, "&7Importing in the background...");
+        final BanListImporter.Listener listener = new BanListImporter.Listener() {
+            @Override
+            public void imported(BanListImporter.Source source, List<Punishment> punishments) {
+                mainThread.execute(() -> enforceImported(punishments));
+            }
+
+            @Override
+            public void progress(BanListImporter.Source source, long entries, long added, int percent) {
+                tell(sender, "&7" + source.getFileName() + ": &f" + percent + "% &7read, &f" + entries +
+                        " &7entries, &f" + added + " &7new");
+            }
+
+            @Override
+            public void finished(BanListImporter.Source source, long entries, long added, long skipped, long resumedAt) {
+                String summary = source.getFileName() + ": " + added + " new of " + entries + " entries" +
+                        (resumedAt > 0 ? " (resumed after " + resumedAt + ")" : "") +
+                        (skipped > 0 ? ", " + skipped + " unreadable skipped" : "");
+                getLogger().info("Imported " + summary);
+                tell(sender, "&aImported " + summary);
+            }
+        };
+        Bukkit.getScheduler().runTaskAsynchronously(this, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (BanListImporter.Source source : sources) {
+                        // The server keeps its lists in its working directory
+                        File file = new File(source.getFileName()).getAbsoluteFile();
+                        if (!file.isFile()) {
+                            tell(sender, "&e" + file.getName() + " not found; skipped.");
+                            continue;
+                        }
+                        File checkpoint = new File(getDataFolder(), "import-" + source.getName() + ".progress");
+                        if (!importer.run(source, file, checkpoint, listener)) {
+                            return;
+                        }
+                    }
+                } catch (IOException | SQLException e) {
+                    getLogger().log(Level.SEVERE, "Ban list import failed", e);
+                    tell(sender, "&cThe import failed: " + e.getMessage() + " &7Run the same command to resume it.");
+                } finally {
+                    mainThread.execute(() -> importing = false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds newly imported bans to the live indexes. Rows that were stored before are left alone, as
+     * they are in the indexes already unless they have been lifted since.
+     */
+    private void enforceImported(List<Punishment> punishments) {
+        long now = System.currentTimeMillis();
+        for (Punishment punishment : punishments) {
+            history.invalidate(punishment);
+            if (punishment.isExpired(now)) {
+                continue;
+            }
+            if (PunishmentExpiry.isIpBan(punishment.getType())) {
+                ipBanIndex.put(punishment);
+            } else {
+                banIndex.put(punishment);
+                banCounter.record(punishment.getStartTime(), punishment.getOperator());
+            }
+            expiry.schedule(punishment);
+        }
+    }
+
+    /**
+     * Sends a message from another thread.
+     */
+    private void tell(CommandSender sender, String message) {
+        mainThread.execute(() -> sendMessage(sender, message));
+    }
+
+    private void showStats(CommandSender sender) {
+        sendMessage(sender, "&7&m--------&r &cWatchdog Stats &7(last " +
+                Durations.format(System.currentTimeMillis() - metrics.getStartedAt()) + ") &7&m--------");
+        for (Metrics.Timer timer : Metrics.Timer.values()) {
+            LatencyHistogram.Snapshot snapshot = metrics.snapshot(timer);
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            sendMessage(sender, "&e" + timer.getKey() + " &7x&f" + snapshot.getCount() +
+                    " &7p50 &f" + Metrics.formatNanos(snapshot.getPercentile(0.5)) +
+                    " &7p99 &f" + Metrics.formatNanos(snapshot.getPercentile(0.99)) +
+                    " &7max &f" + Metrics.formatNanos(snapshot.getMax()) +
+                    " &7total &f" + Metrics.formatNanos(snapshot.getSum()));
+        }
+        StringBuilder counters = new StringBuilder("&7Counts:");
+        for (Metrics.Counter counter : Metrics.Counter.values()) {
+            counters.append(" &7").append(counter.getKey()).append(" &f").append(metrics.get(counter));
+        }
+        sendMessage(sender, counters.toString());
+    }
 }
\ No newline at end of file
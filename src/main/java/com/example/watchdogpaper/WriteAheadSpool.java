@@ -0,0 +1,310 @@
+package com.example.watchdogpaper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local journal of moderation writes that have not reached the database yet.
+ * <p>
+ * Every punishment, report and state change is appended here before it is sent to storage,
+ * and acknowledged once storage has committed it. Appends go to the OS right away; a
+ * background thread fsyncs at most every {@code fsyncInterval} ms so a burst of bans costs
+ * one disk flush. Records are length-prefixed and CRC-checked, so a torn write at the tail
+ * after a crash is detected and cut off on the next start. When nothing is pending the file
+ * is truncated, so in normal operation it stays near empty.
+ */
+final class WriteAheadSpool {
+
+    enum Action {
+        PUNISH, DEACTIVATE_BANS, DEACTIVATE_MUTES, REPORT, ACCEPT_REPORT, DEACTIVATE_IP_BANS, REPORT_HIT
+    }
+
+    static final class Entry {
+        private final String id;
+        private final Action action;
+        private final long time;
+        private final String[] args;
+
+        Entry(String id, Action action, long time, String[] args) {
+            this.id = id;
+            this.action = action;
+            this.time = time;
+            this.args = args;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        Action getAction() {
+            return action;
+        }
+
+        long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns null past the end, for arguments added after the entry was journaled.
+         */
+        String getArg(int index) {
+            return index < args.length ? args[index] : null;
+        }
+    }
+
+    private static final byte RECORD_ENTRY = 0;
+    private static final byte RECORD_ACK = 1;
+    private static final int COMPACT_THRESHOLD = 4 * 1024 * 1024;
+
+    private final File file;
+    private final Logger logger;
+    private final long fsyncInterval;
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private final Thread syncer;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private volatile boolean dirty;
+    private volatile boolean closed;
+
+    WriteAheadSpool(File file, long fsyncInterval, Logger logger) throws IOException {
+        this.file = file;
+        this.fsyncInterval = Math.max(1, fsyncInterval);
+        this.logger = logger;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        open();
+        recover();
+        this.syncer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runSyncer();
+            }
+        }, "Watchdog-Spool-Sync");
+        this.syncer.setDaemon(true);
+        this.syncer.start();
+    }
+
+    /**
+     * Journals a new write and returns it. The entry stays pending until {@link #acknowledge(String)}.
+     */
+    synchronized Entry append(Action action, String... args) throws IOException {
+        Entry entry = new Entry(UUID.randomUUID().toString(), action, System.currentTimeMillis(), args);
+        writeRecord(encode(entry));
+        pending.put(entry.id, entry);
+        return entry;
+    }
+
+    /**
+     * Marks an entry as committed to storage. Unknown IDs are ignored.
+     */
+    synchronized void acknowledge(String id) {
+        if (closed || pending.remove(id) == null) {
+            return;
+        }
+        try {
+            if (pending.isEmpty()) {
+                // Nothing left to replay: start over with an empty file
+                channel.truncate(0);
+                channel.position(0);
+                dirty = true;
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(RECORD_ACK);
+            out.writeUTF(id);
+            writeRecord(bytes.toByteArray());
+            if (channel.size() > COMPACT_THRESHOLD) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to acknowledge spooled write " + id, e);
+        }
+    }
+
+    synchronized List<Entry> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    void close() {
+        closed = true;
+        syncer.interrupt();
+        try {
+            syncer.join(2000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                channel.force(false);
+                raf.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error closing write-ahead spool", e);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    private static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_ENTRY);
+        out.writeUTF(entry.id);
+        out.writeByte(entry.action.ordinal());
+        out.writeLong(entry.time);
+        out.writeShort(entry.args.length);
+        for (String arg : entry.args) {
+            out.writeBoolean(arg != null);
+            if (arg != null) {
+                out.writeUTF(arg);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void writeRecord(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.flip();
+        channel.position(channel.size());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Reads every intact record, rebuilding the pending set, and cuts off a torn tail.
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        long good = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+        try {
+            while (good < size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || good + 8 + length > size) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(payload);
+                good += 8 + length;
+            }
+        } catch (EOFException e) {
+            // torn record at the tail
+        }
+        if (good < size) {
+            logger.warning("Discarded " + (size - good) + " bytes of incomplete data at the end of " + file.getName());
+            channel.truncate(good);
+        }
+        channel.position(good);
+        if (!pending.isEmpty()) {
+            logger.info(pending.size() + " moderation writes are waiting in " + file.getName() + " to be replayed.");
+        }
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte kind = in.readByte();
+        String id = in.readUTF();
+        if (kind == RECORD_ACK) {
+            pending.remove(id);
+            return;
+        }
+        Action action = Action.values()[in.readByte()];
+        long time = in.readLong();
+        String[] args = new String[in.readShort()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readBoolean() ? in.readUTF() : null;
+        }
+        pending.put(id, new Entry(id, action, time, args));
+    }
+
+    /**
+     * Rewrites the file with only the pending entries, then swaps it in atomically.
+     */
+    private void compact() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        List<Entry> entries = new ArrayList<>(pending.values());
+        channel.force(false);
+        raf.close();
+        Files.deleteIfExists(temp.toPath());
+
+        raf = new RandomAccessFile(temp, "rw");
+        channel = raf.getChannel();
+        pending.clear();
+        for (Entry entry : entries) {
+            writeRecord(encode(entry));
+            pending.put(entry.id, entry);
+        }
+        channel.force(false);
+        raf.close();
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+        channel.position(channel.size());
+    }
+
+    private void runSyncer() {
+        while (!closed) {
+            try {
+                Thread.sleep(fsyncInterval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!dirty) {
+                continue;
+            }
+            synchronized (this) {
+                dirty = false;
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    dirty = true;
+                    logger.log(Level.WARNING, "Failed to sync write-ahead spool", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.watchdogpaper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated writer thread for INSERT/UPDATE statements.
+ * <p>
+ * Writes are queued by the caller and flushed as JDBC batches once {@code batchSize}
+ * writes are waiting or {@code flushInterval} milliseconds have passed since the first
+ * one arrived. Consecutive writes with the same SQL share one batch, so statement order
+ * is preserved. Callbacks are handed to {@code callbackExecutor} (the main thread).
+ */
+final class WriteBehindQueue {
+
+    static final class Result {
+        private final int updateCount;
+        private final int generatedKey;
+        private final SQLException error;
+
+        Result(int updateCount, int generatedKey, SQLException error) {
+            this.updateCount = updateCount;
+            this.generatedKey = generatedKey;
+            this.error = error;
+        }
+
+        int getUpdateCount() {
+            return updateCount;
+        }
+
+        int getGeneratedKey() {
+            return generatedKey;
+        }
+
+        SQLException getError() {
+            return error;
+        }
+
+        boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private static final class Write {
+        final String sql;
+        final Object[] params;
+        final boolean returnKeys;
+        final Consumer<Result> callback;
+        final long queuedAt = System.nanoTime();
+
+        Write(String sql, Object[] params, boolean returnKeys, Consumer<Result> callback) {
+            this.sql = sql;
+            this.params = params;
+            this.returnKeys = returnKeys;
+            this.callback = callback;
+        }
+    }
+
+    private final ConnectionPool connectionPool;
+    private final Executor callbackExecutor;
+    private final Logger logger;
+    private final Metrics metrics;
+    private final int batchSize;
+    private final long flushInterval;
+    private final boolean batchGeneratedKeys;
+    private final LinkedBlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    WriteBehindQueue(ConnectionPool connectionPool, Executor callbackExecutor, Logger logger, Metrics metrics,
+                     int batchSize, long flushInterval, boolean batchGeneratedKeys) {
+        this.connectionPool = connectionPool;
+        this.callbackExecutor = callbackExecutor;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = Math.max(1, flushInterval);
+        this.batchGeneratedKeys = batchGeneratedKeys;
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWriter();
+            }
+        }, "Watchdog-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues an INSERT whose generated key is passed to the callback.
+     */
+    void insert(String sql, Object[] params, Consumer<Result> callback) {
+        submit(new Write(sql, params, true, callback));
+    }
+
+    /**
+     * Queues an UPDATE/DELETE whose affected row count is passed to the callback.
+     */
+    void update(String sql, Object[] params, Consumer<Result> callback) {
+        submit(new Write(sql, params, false, callback));
+    }
+
+    int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting writes and flushes whatever is still queued, waiting at most {@code timeoutMs}.
+     */
+    void shutdown(long timeoutMs) {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warning(queue.size() + " queued database writes were not flushed before shutdown.");
+        }
+    }
+
+    private void submit(Write write) {
+        if (!running) {
+            complete(write, new Result(0, 0, new SQLException("Writer has been shut down")));
+            return;
+        }
+        queue.add(write);
+    }
+
+    private void runWriter() {
+        List<Write> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Write first = running ? queue.take() : queue.poll();
+                if (first == null) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                while (batch.size() < batchSize && running) {
+                    long wait = deadline - System.nanoTime();
+                    Write next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutdown() interrupts us; fall through and flush what we have
+            }
+            if (!running) {
+                queue.drainTo(batch);
+                // An interrupt that arrived while we were not waiting is still pending and would fail the flush
+                Thread.interrupted();
+            }
+            if (!batch.isEmpty()) {
+                long start = System.nanoTime();
+                flush(batch);
+                metrics.record(Metrics.Timer.DB_WRITE_BATCH, start);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Write> batch) {
+        Connection conn = null;
+        try {
+            conn = connectionPool.getConnection();
+            Result[] results = executeBatched(conn, batch);
+            for (int i = 0; i < batch.size(); i++) {
+                complete(batch.get(i), results[i]);
+            }
+        } catch (SQLException e) {
+            if (conn == null) {
+                failAll(batch, e);
+                return;
+            }
+            // One bad row should not fail its neighbours: retry each write on its own
+            logger.log(Level.WARNING, "Batched write of " + batch.size() + " statements failed, retrying individually", e);
+            for (Write write : batch) {
+                complete(write, executeSingle(conn, write));
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Error closing connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the batch in one transaction. Throws, having rolled it back, if any statement fails or
+     * the generated keys cannot be matched to their rows; {@link #flush} then writes them one by one.
+     */
+    private Result[] executeBatched(Connection conn, List<Write> batch) throws SQLException {
+        Result[] results = new Result[batch.size()];
+        conn.setAutoCommit(false);
+        try {
+            int start = 0;
+            while (start < batch.size()) {
+                String sql = batch.get(start).sql;
+                int end = start + 1;
+                while (end < batch.size() && batch.get(end).sql.equals(sql)) {
+                    end++;
+                }
+                executeRun(conn, batch, start, end, results);
+                start = end;
+            }
+            conn.commit();
+            return results;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void executeRun(Connection conn, List<Write> batch, int start, int end, Result[] results) throws SQLException {
+        Write head = batch.get(start);
+        if (head.returnKeys && !batchGeneratedKeys) {
+            // Still one transaction, just one round trip per row so each gets its own key
+            for (int i = start; i < end; i++) {
+                results[i] = executeSingle(conn, batch.get(i));
+                if (!results[i].isSuccess()) {
+                    throw results[i].getError();
+                }
+            }
+            return;
+        }
+        PreparedStatement stmt = null;
+        ResultSet keys = null;
+        try {
+            stmt = head.returnKeys
+                    ? conn.prepareStatement(head.sql, Statement.RETURN_GENERATED_KEYS)
+                    : conn.prepareStatement(head.sql);
+            for (int i = start; i < end; i++) {
+                bind(stmt, batch.get(i).params);
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            if (!head.returnKeys) {
+                for (int i = start; i < end; i++) {
+                    int count = counts[i - start];
+                    results[i] = new Result(count == Statement.SUCCESS_NO_INFO ? 1 : count, 0, null);
+                }
+                return;
+            }
+            // Keys come back for inserted rows only, in order; a row skipped as a duplicate has none
+            int inserted = 0;
+            for (int count : counts) {
+                if (count != 0 && count != 1) {
+                    throw new SQLException("Cannot tell which rows of the batch were inserted, counts " +
+                            Arrays.toString(counts));
+                }
+                inserted += count;
+            }
+            keys = stmt.getGeneratedKeys();
+            List<Integer> generated = new ArrayList<>(inserted);
+            while (keys.next()) {
+                generated.add(keys.getInt(1));
+            }
+            if (generated.size() != inserted) {
+                throw new SQLException("Got " + generated.size() + " generated keys for " + inserted + " inserted rows");
+            }
+            int next = 0;
+            for (int i = start; i < end; i++) {
+                int count = counts[i - start];
+                results[i] = new Result(count, count == 1 ? generated.get(next++) : 0, null);
+            }
+        } finally {
+            if (keys != null) {
+                try {
+                    keys.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Error closing result set", e);
+                }
+            }
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Error closing statement", e);
+                }
+            }
+        }
+    }
+
+    private Result executeSingle(Connection conn, Write write) {
+        PreparedStatement stmt = null;
+        ResultSet keys = null;
+        try {
+            stmt = write.returnKeys
+                    ? conn.prepareStatement(write.sql, Statement.RETURN_GENERATED_KEYS)
+                    : conn.prepareStatement(write.sql);
+            bind(stmt, write.params);
+            int count = stmt.executeUpdate();
+            int key = 0;
+            // A row skipped as a duplicate has no key; some drivers would report the previous insert's
+            if (write.returnKeys && count > 0) {
+                keys = stmt.getGeneratedKeys();
+                key = keys.next() ? keys.getInt(1) : 0;
+            }
+            return new Result(count, key, null);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Database write failed: " + write.sql, e);
+            return new Result(0, 0, e);
+        } finally {
+            if (keys != null) {
+                try {
+                    keys.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Error closing result set", e);
+                }
+            }
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Error closing statement", e);
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param == null) {
+                stmt.setNull(i + 1, Types.NULL);
+            } else {
+                stmt.setObject(i + 1, param);
+            }
+        }
+    }
+
+    private void failAll(List<Write> batch, SQLException e) {
+        logger.log(Level.SEVERE, "Could not obtain a connection to flush " + batch.size() + " database writes", e);
+        Result failed = new Result(0, 0, e);
+        for (Write write : batch) {
+            complete(write, failed);
+        }
+    }
+
+    private void complete(final Write write, final Result result) {
+        metrics.record(Metrics.Timer.DB_WRITE_LAG, write.queuedAt);
+        metrics.increment(result.isSuccess() ? Metrics.Counter.DB_WRITES : Metrics.Counter.DB_WRITE_FAILURES);
+        if (write.callback == null) {
+            return;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write.callback.accept(result);
+            }
+        });
+    }
+}
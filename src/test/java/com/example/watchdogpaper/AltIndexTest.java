@@ -0,0 +1,98 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AltIndexTest {
+
+    private final UUID a = UUID.randomUUID();
+    private final UUID b = UUID.randomUUID();
+    private final UUID c = UUID.randomUUID();
+    private final UUID d = UUID.randomUUID();
+
+    @Test
+    public void linksAccountsThatShareAnAddress() {
+        AltIndex index = new AltIndex(5);
+        index.record(a, "10.0.0.1");
+        index.record(b, "10.0.0.1");
+        index.record(c, "10.0.0.2");
+
+        assertEquals(Arrays.asList(b), index.getLinked(a, 10));
+        assertEquals(1, index.getLinkedCount(b));
+        assertEquals(0, index.getLinkedCount(c));
+        assertTrue(index.getLinked(UUID.randomUUID(), 10).isEmpty());
+    }
+
+    @Test
+    public void linksAreTransitive() {
+        AltIndex index = new AltIndex(5);
+        index.record(a, "10.0.0.1");
+        index.record(b, "10.0.0.1");
+        index.record(b, "10.0.0.2");
+        index.record(c, "10.0.0.2");
+        index.record(d, "10.0.0.3");
+
+        List<UUID> linked = index.getLinked(a, 10);
+        assertEquals(new HashSet<>(Arrays.asList(b, c)), new HashSet<>(linked));
+        assertEquals(2, index.getLinkedCount(c));
+        assertEquals(1, index.getLinked(a, 1).size());
+    }
+
+    @Test
+    public void aBusyAddressStopsLinking() {
+        AltIndex index = new AltIndex(2);
+        index.record(a, "10.0.0.1");
+        index.record(b, "10.0.0.1");
+        index.record(c, "10.0.0.1");
+        index.record(d, "10.0.0.1");
+
+        assertEquals(1, index.getLinkedCount(a));
+        assertEquals(0, index.getLinkedCount(c));
+        assertEquals(0, index.getLinkedCount(d));
+    }
+
+    @Test
+    public void findsALinkedAccountPassingTheTest() {
+        AltIndex index = new AltIndex(5);
+        index.record(a, "10.0.0.1");
+        index.record(b, "10.0.0.1");
+        index.record(c, "10.0.0.1");
+
+        assertEquals(c, index.findLinked(a, c::equals));
+        assertNull(index.findLinked(a, a::equals));
+    }
+
+    @Test
+    public void remembersTheLastAddress() {
+        AltIndex index = new AltIndex(5);
+        index.record(a, "10.0.0.1");
+        index.record(a, "10.0.0.2");
+
+        assertEquals("10.0.0.2", index.getLastAddress(a));
+        assertNull(index.getLastAddress(b));
+    }
+
+    @Test
+    public void growsPastItsInitialCapacity() {
+        AltIndex index = new AltIndex(1000);
+        UUID first = UUID.randomUUID();
+        index.record(first, "10.0.0.1");
+        for (int i = 0; i < 200; i++) {
+            index.record(UUID.randomUUID(), "10.0.0.1");
+        }
+
+        assertEquals(201, index.size());
+        assertEquals(200, index.getLinkedCount(first));
+        assertEquals(200, index.getLinked(first, 1000).size());
+        index.clear();
+        assertEquals(0, index.size());
+    }
+}
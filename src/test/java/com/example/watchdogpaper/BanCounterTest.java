@@ -0,0 +1,57 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BanCounterTest {
+
+    private static final long HOUR = 3600000L;
+    private static final long WEEK = 7 * 24 * HOUR;
+    private static final long NOW = 1000 * WEEK + 30 * 60000L;
+
+    @Test
+    public void splitsAutomatedAndStaffBans() {
+        BanCounter counter = new BanCounter(Collections.singletonList("Watchdog"));
+        counter.record(NOW, "watchdog");
+        counter.record(NOW - HOUR, "WATCHDOG");
+        counter.add(NOW - 2 * HOUR, "Moderator", 3);
+
+        assertTrue(counter.isAutomated("Watchdog"));
+        assertEquals(2, counter.getAutomatedCount(NOW));
+        assertEquals(3, counter.getStaffCount(NOW));
+    }
+
+    @Test
+    public void forgetsBansOlderThanAWeek() {
+        BanCounter counter = new BanCounter(Collections.<String>emptyList());
+        counter.record(NOW - WEEK + HOUR, "Moderator");
+        counter.record(NOW - WEEK, "Moderator");
+
+        assertEquals(1, counter.getStaffCount(NOW));
+        assertEquals(0, counter.getStaffCount(NOW + HOUR));
+    }
+
+    @Test
+    public void reusesASlotOnceItsHourHasRolledOut() {
+        BanCounter counter = new BanCounter(Collections.<String>emptyList());
+        counter.add(NOW - WEEK, "Moderator", 5);
+        counter.record(NOW, "Moderator");
+        // Lands in the slot now holding the newer hour, so it is dropped
+        counter.record(NOW - WEEK, "Moderator");
+
+        assertEquals(1, counter.getStaffCount(NOW));
+    }
+
+    @Test
+    public void clearResetsEveryBucket() {
+        BanCounter counter = new BanCounter(Collections.<String>emptyList());
+        counter.record(NOW, "Moderator");
+        counter.clear();
+
+        assertEquals(0, counter.getStaffCount(NOW));
+    }
+}
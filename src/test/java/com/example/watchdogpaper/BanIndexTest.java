@@ -0,0 +1,115 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BanIndexTest {
+
+    private static final long HOUR = 3600000L;
+
+    private static Punishment ban(String name, UUID playerId, long endTime) {
+        long now = System.currentTimeMillis();
+        return new Punishment(0, UUID.randomUUID().toString(), name, playerId, null,
+                endTime == 0 ? PunishmentType.BAN : PunishmentType.TEMPBAN, "reason", null, "Console", now, endTime);
+    }
+
+    @Test
+    public void looksUpNamesCaseInsensitively() {
+        BanIndex index = new BanIndex();
+        Punishment ban = ban("Steve", null, 0);
+        index.put(ban);
+
+        assertSame(ban, index.get("steve"));
+        assertSame(ban, index.get("STEVE"));
+        assertNull(index.get("Alex"));
+    }
+
+    @Test
+    public void keepsTheBanThatEndsLast() {
+        BanIndex index = new BanIndex();
+        long now = System.currentTimeMillis();
+        Punishment permanent = ban("Steve", null, 0);
+        Punishment shorter = ban("Steve", null, now + HOUR);
+        index.put(permanent);
+        index.put(shorter);
+        assertSame(permanent, index.get("Steve"));
+
+        Punishment longer = ban("Alex", null, now + 2 * HOUR);
+        index.put(ban("Alex", null, now + HOUR));
+        index.put(longer);
+        assertSame(longer, index.get("Alex"));
+    }
+
+    @Test
+    public void followsTheAccountThroughARename() {
+        BanIndex index = new BanIndex();
+        UUID id = UUID.randomUUID();
+        Punishment ban = ban("OldName", id, 0);
+        index.put(ban);
+
+        assertSame(ban, index.get(id, "NewName"));
+        assertSame(ban, index.get(id));
+    }
+
+    @Test
+    public void ignoresANameBanOfAnotherAccount() {
+        BanIndex index = new BanIndex();
+        index.put(ban("Steve", UUID.randomUUID(), 0));
+
+        assertNull(index.get(UUID.randomUUID(), "Steve"));
+    }
+
+    @Test
+    public void dropsExpiredBansOnRead() {
+        BanIndex index = new BanIndex();
+        index.put(ban("Steve", null, System.currentTimeMillis() - 1));
+
+        assertNull(index.get("Steve"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void removeOfAStaleBanKeepsTheNewerOne() {
+        BanIndex index = new BanIndex();
+        UUID id = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        Punishment first = ban("Steve", id, now + HOUR);
+        Punishment second = ban("Steve", id, now + 2 * HOUR);
+        index.put(first);
+        index.put(second);
+
+        assertFalse(index.remove(first));
+        assertSame(second, index.get(id, "Steve"));
+        assertTrue(index.remove(second));
+        assertNull(index.get(id, "Steve"));
+    }
+
+    @Test
+    public void removeByAccountClearsTheName() {
+        BanIndex index = new BanIndex();
+        UUID id = UUID.randomUUID();
+        index.put(ban("Steve", id, 0));
+
+        index.remove(id);
+        assertNull(index.get("Steve"));
+    }
+
+    @Test
+    public void loadReplacesEveryEntry() {
+        BanIndex index = new BanIndex();
+        index.put(ban("Steve", null, 0));
+        Punishment alex = ban("Alex", null, 0);
+
+        index.load(Arrays.asList(alex));
+        assertNull(index.get("Steve"));
+        assertSame(alex, index.get("Alex"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.watchdogpaper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChangeFeedTest {
+
+    private final TreeMap<Integer, HistoryEntry> punishments = new TreeMap<>();
+    private final TreeMap<Integer, Report> reports = new TreeMap<>();
+    private final TreeMap<Integer, Storage.Change> changes = new TreeMap<>();
+    private final List<Integer> handed = new ArrayList<>();
+    private ChangeFeed feed;
+
+    @Before
+    public void setUp() {
+        // Only the feed's queries are answered; they page through the maps above by ID
+        Storage storage = (Storage) Proxy.newProxyInstance(Storage.class.getClassLoader(),
+                new Class<?>[]{Storage.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getFeedHead":
+                            return new Storage.FeedPosition(last(punishments), last(reports), last(changes));
+                        case "getPunishmentsAfter":
+                            return page(punishments, (Integer) args[0], (Integer) args[1]);
+                        case "getPendingReportsAfter":
+                            return page(reports, (Integer) args[0], (Integer) args[1]);
+                        case "getChangesAfter":
+                            return page(changes, (Integer) args[0], (Integer) args[1]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        feed = new ChangeFeed(storage, Logger.getLogger("test"), Runnable::run, new ChangeFeed.Handler() {
+            @Override
+            public void punishment(HistoryEntry entry) {
+                handed.add(entry.getPunishment().getId());
+            }
+
+            @Override
+            public void report(Report report) {
+                handed.add(report.getId());
+            }
+
+            @Override
+            public void change(Storage.Change change) {
+                handed.add(change.getId());
+            }
+        }, 2);
+    }
+
+    @Test
+    public void handsOverOnlyRowsWrittenAfterTheReset() throws Exception {
+        addPunishment(1, null);
+        addPunishment(2, null);
+        feed.reset();
+        addPunishment(3, null);
+        addPunishment(4, null);
+        addPunishment(5, null);
+
+        feed.poll();
+        assertEquals(Arrays.asList(3, 4, 5), handed);
+        feed.poll();
+        assertEquals(Arrays.asList(3, 4, 5), handed);
+    }
+
+    @Test
+    public void rereadsAnIdThatBecomesVisibleLate() throws Exception {
+        feed.reset();
+        addPunishment(1, null);
+        addPunishment(3, null);
+        feed.poll();
+        assertEquals(Arrays.asList(1, 3), handed);
+
+        addPunishment(2, null);
+        feed.poll();
+        assertEquals(Arrays.asList(1, 3, 2), handed);
+    }
+
+    @Test
+    public void skipsRowsWrittenByThisServer() throws Exception {
+        feed.reset();
+        feed.markLocal("local");
+        addPunishment(1, "local");
+        addPunishment(2, "remote");
+        reports.put(1, new Report(1, "local", "Alex", "Steve", "Hacking", 0));
+
+        feed.poll();
+        assertEquals(Arrays.asList(2), handed);
+    }
+
+    @Test
+    public void followsEveryTable() throws Exception {
+        feed.reset();
+        addPunishment(1, null);
+        reports.put(7, new Report(7, null, "Alex", "Steve", "Hacking", 0));
+        changes.put(9, new Storage.Change(9, Storage.Change.Type.UNBAN, "Steve", null, 0));
+
+        feed.poll();
+        assertEquals(Arrays.asList(1, 7, 9), handed);
+    }
+
+    private void addPunishment(int id, String actionId) {
+        punishments.put(id, new HistoryEntry(new Punishment(id, actionId, "Steve", UUID.randomUUID(), null,
+                PunishmentType.BAN, "reason", null, "Console", 0, 0), true));
+    }
+
+    private static int last(TreeMap<Integer, ?> rows) {
+        return rows.isEmpty() ? 0 : rows.lastKey();
+    }
+
+    private static <T> List<T> page(TreeMap<Integer, T> rows, int after, int limit) {
+        List<T> page = new ArrayList<>();
+        for (T row : rows.tailMap(after, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(row);
+        }
+        return page;
+    }
+}
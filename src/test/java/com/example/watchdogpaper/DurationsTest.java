@@ -0,0 +1,56 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DurationsTest {
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    @Test
+    public void parsesEachUnit() {
+        assertEquals(30 * SECOND, Durations.parse("30s"));
+        assertEquals(5 * MINUTE, Durations.parse("5m"));
+        assertEquals(2 * HOUR, Durations.parse("2h"));
+        assertEquals(DAY, Durations.parse("1d"));
+        assertEquals(14 * DAY, Durations.parse("2w"));
+        assertEquals(30 * DAY, Durations.parse("1mo"));
+        assertEquals(365 * DAY, Durations.parse("1y"));
+    }
+
+    @Test
+    public void addsUpSeveralParts() {
+        assertEquals(DAY + 12 * HOUR, Durations.parse("1d12h"));
+        assertEquals(30 * DAY + 5 * MINUTE, Durations.parse("1mo5m"));
+        assertEquals(0, Durations.parse("0s"));
+    }
+
+    @Test
+    public void rejectsInvalidText() {
+        assertEquals(-1, Durations.parse(""));
+        assertEquals(-1, Durations.parse("10"));
+        assertEquals(-1, Durations.parse("d"));
+        assertEquals(-1, Durations.parse("5x"));
+        assertEquals(-1, Durations.parse("1d 2h"));
+        assertEquals(-1, Durations.parse("-5m"));
+    }
+
+    @Test
+    public void rejectsTotalsThatOverflow() {
+        assertEquals(-1, Durations.parse("99999999999999999999s"));
+        assertEquals(-1, Durations.parse("300000000y"));
+        assertEquals(-1, Durations.parse("200000000y200000000y"));
+    }
+
+    @Test
+    public void formatsTheLargestUnitsOnly() {
+        assertEquals("5 second(s)", Durations.format(5 * SECOND));
+        assertEquals("2 minute(s) and 5 second(s)", Durations.format(2 * MINUTE + 5 * SECOND));
+        assertEquals("1 hour(s) 0 minute(s) and 0 second(s)", Durations.format(HOUR));
+        assertEquals("1 day(s) 12 hour(s) 0 minute(s) and 1 second(s)", Durations.format(DAY + 12 * HOUR + SECOND));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HotTargetsTest {
+
+    private static final long WINDOW = 600000L;
+
+    @Test
+    public void countsReportsPerPlayer() {
+        HotTargets targets = new HotTargets(WINDOW, 5);
+        assertEquals(1, targets.record("Steve", 1000));
+        assertEquals(2, targets.record("steve", 2000));
+        targets.record("Alex", 3000);
+
+        assertEquals(2, targets.getHeat("STEVE", 3000));
+        assertEquals(1, targets.getHeat("Alex", 3000));
+        assertEquals(0, targets.getHeat("Notch", 3000));
+    }
+
+    @Test
+    public void forgetsReportsOutsideTheWindow() {
+        HotTargets targets = new HotTargets(WINDOW, 5);
+        targets.record("Steve", 0);
+        targets.record("Steve", WINDOW / 2);
+
+        assertEquals(2, targets.getHeat("Steve", WINDOW - 1));
+        assertEquals(1, targets.getHeat("Steve", WINDOW));
+        assertEquals(0, targets.getHeat("Steve", WINDOW * 2));
+    }
+
+    @Test
+    public void escalatesOncePerCrossing() {
+        HotTargets targets = new HotTargets(WINDOW, 3);
+        int heat = 0;
+        for (int i = 0; i < 3; i++) {
+            heat = targets.record("Steve", 1000);
+        }
+
+        assertTrue(targets.shouldEscalate("Steve", heat));
+        assertFalse(targets.shouldEscalate("Steve", targets.record("Steve", 1000)));
+        assertFalse(targets.shouldEscalate("Steve", 0));
+        assertTrue(targets.shouldEscalate("Steve", 3));
+    }
+
+    @Test
+    public void listsTheHottestPlayersFirst() {
+        HotTargets targets = new HotTargets(WINDOW, 5);
+        for (int i = 0; i < 3; i++) {
+            targets.record("Steve", 1000);
+        }
+        targets.record("Alex", 1000);
+        targets.record("Alex", 1000);
+        targets.record("Notch", 1000);
+
+        Map<String, Integer> top = targets.getTop(2, 1000);
+        assertEquals(2, top.size());
+        Iterator<Map.Entry<String, Integer>> it = top.entrySet().iterator();
+        Map.Entry<String, Integer> first = it.next();
+        assertEquals("Steve", first.getKey());
+        assertEquals(3, (int) first.getValue());
+        assertEquals("Alex", it.next().getKey());
+    }
+
+    @Test
+    public void aHotNewPlayerDisplacesTheColdestCandidate() {
+        HotTargets targets = new HotTargets(WINDOW, 5);
+        for (int i = 0; i < 40; i++) {
+            targets.record("player" + i, 1000);
+        }
+        for (int i = 0; i < 3; i++) {
+            targets.record("Steve", 1000);
+        }
+
+        assertTrue(targets.getTop(1, 1000).containsKey("Steve"));
+    }
+}
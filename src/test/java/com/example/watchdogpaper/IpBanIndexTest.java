@@ -0,0 +1,106 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IpBanIndexTest {
+
+    private static final long HOUR = 3600000L;
+
+    private static Punishment ipBan(String range, long endTime) {
+        long now = System.currentTimeMillis();
+        return new Punishment(0, UUID.randomUUID().toString(), "Steve", null, range,
+                endTime == 0 ? PunishmentType.IPBAN : PunishmentType.TEMPIPBAN, "reason", null, "Console", now, endTime);
+    }
+
+    private static InetAddress address(String text) throws Exception {
+        return InetAddress.getByName(text);
+    }
+
+    @Test
+    public void matchesTheNarrowestRange() throws Exception {
+        IpBanIndex index = new IpBanIndex();
+        Punishment wide = ipBan("10.0.0.0/8", 0);
+        Punishment narrow = ipBan("10.1.0.0/16", 0);
+        Punishment host = ipBan("10.1.2.3", 0);
+        index.put(wide);
+        index.put(narrow);
+        index.put(host);
+
+        assertSame(host, index.match(address("10.1.2.3")));
+        assertSame(narrow, index.match(address("10.1.2.4")));
+        assertSame(wide, index.match(address("10.2.0.1")));
+        assertNull(index.match(address("11.0.0.1")));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void matchesIpv6Ranges() throws Exception {
+        IpBanIndex index = new IpBanIndex();
+        Punishment ban = ipBan("2001:db8::/32", 0);
+        index.put(ban);
+
+        assertSame(ban, index.match(address("2001:db8:1::5")));
+        assertNull(index.match(address("2001:db9::5")));
+    }
+
+    @Test
+    public void keepsTheBanThatEndsLast() {
+        IpBanIndex index = new IpBanIndex();
+        Punishment permanent = ipBan("10.0.0.0/8", 0);
+        index.put(permanent);
+        index.put(ipBan("10.0.0.0/8", System.currentTimeMillis() + HOUR));
+
+        assertSame(permanent, index.get(IpRange.parse("10.0.0.0/8")));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void fallsBackToAWiderRangeWhenTheNarrowBanExpired() throws Exception {
+        IpBanIndex index = new IpBanIndex();
+        Punishment wide = ipBan("10.0.0.0/8", 0);
+        index.put(wide);
+        index.put(ipBan("10.1.2.3", System.currentTimeMillis() - 1));
+
+        assertSame(wide, index.match(address("10.1.2.3")));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void removeKeepsTheRestOfTheTrie() throws Exception {
+        IpBanIndex index = new IpBanIndex();
+        Punishment wide = ipBan("10.0.0.0/8", 0);
+        Punishment first = ipBan("10.1.0.0/16", 0);
+        Punishment second = ipBan("10.2.0.0/16", 0);
+        index.load(Arrays.asList(wide, first, second));
+
+        assertSame(first, index.remove(IpRange.parse("10.1.0.0/16")));
+        assertSame(wide, index.match(address("10.1.0.1")));
+        assertSame(second, index.match(address("10.2.0.1")));
+        assertFalse(index.remove(first));
+        assertTrue(index.remove(wide));
+        assertNull(index.match(address("10.1.0.1")));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void removeOfAReplacedBanKeepsTheNewOne() {
+        IpBanIndex index = new IpBanIndex();
+        Punishment first = ipBan("10.0.0.1", System.currentTimeMillis() + HOUR);
+        Punishment second = ipBan("10.0.0.1", System.currentTimeMillis() + 2 * HOUR);
+        index.put(first);
+        index.put(second);
+
+        assertFalse(index.remove(first));
+        assertSame(second, index.get(IpRange.parse("10.0.0.1")));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IpRangeTest {
+
+    @Test
+    public void parsesAddressesAndRanges() {
+        assertEquals("10.0.0.1", IpRange.parse("10.0.0.1").toString());
+        assertEquals("10.0.0.0/8", IpRange.parse("10.1.2.3/8").toString());
+        assertEquals("2001:db8:0:0:0:0:0:0/32", IpRange.parse("2001:db8::1/32").toString());
+        assertEquals(IpRange.parse("10.0.0.0/8"), IpRange.parse("10.255.0.0/8"));
+        assertEquals(128, IpRange.parse("10.0.0.1").getLength());
+        assertEquals(104, IpRange.parse("10.0.0.0/8").getLength());
+    }
+
+    @Test
+    public void rejectsAnythingElse() {
+        assertNull(IpRange.parse("10.0.0"));
+        assertNull(IpRange.parse("10.0.0.256"));
+        assertNull(IpRange.parse("10.0.0.1/33"));
+        assertNull(IpRange.parse("10.0.0.1/x"));
+        assertNull(IpRange.parse("10.0.0.-1"));
+        assertNull(IpRange.parse("example.com"));
+        assertNull(IpRange.parse("2001:db8::1/129"));
+        assertNull(IpRange.parse("gg::1"));
+    }
+
+    @Test
+    public void matchesAddressesInTheRange() throws Exception {
+        IpRange range = IpRange.parse("192.168.0.0/16");
+
+        assertTrue(range.contains(InetAddress.getByName("192.168.4.20")));
+        assertFalse(range.contains(InetAddress.getByName("192.169.0.1")));
+        assertTrue(IpRange.parse("0.0.0.0/0").contains(InetAddress.getByName("8.8.8.8")));
+        assertFalse(IpRange.parse("0.0.0.0/0").contains(InetAddress.getByName("2001:db8::1")));
+    }
+
+    @Test
+    public void treatsIpv4MappedAddressesAsIpv4() {
+        IpRange mapped = IpRange.parse("::ffff:10.0.0.1");
+
+        assertEquals(IpRange.parse("10.0.0.1"), mapped);
+        assertTrue(mapped.isIpv4());
+        assertFalse(IpRange.parse("2001:db8::1").isIpv4());
+    }
+
+    @Test
+    public void comparesPrefixes() {
+        IpRange wide = IpRange.parse("10.0.0.0/8");
+        IpRange narrow = IpRange.parse("10.1.0.0/16");
+
+        assertEquals(104, wide.commonPrefix(narrow));
+        assertEquals(wide, narrow.truncate(104));
+        assertEquals(0, IpRange.parse("128.0.0.0/1").bit(0));
+        assertEquals(1, IpRange.parse("128.0.0.0/1").bit(96));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsHoldTheirValues() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void bucketsAreAtMostAnEighthWide() {
+        for (long value = 8; value > 0 && value < Long.MAX_VALUE / 2; value = value * 3 / 2) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.bucket(value));
+            assertTrue(upper - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void summarisesTheRecords() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(101, snapshot.getCount());
+        assertEquals(5050000L, snapshot.getSum());
+        assertEquals(100000L, snapshot.getMax());
+        assertEquals(50000L, snapshot.getMean());
+        assertEquals(0, snapshot.getPercentile(0.001));
+    }
+
+    @Test
+    public void percentilesAreWithinABucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        long median = snapshot.getPercentile(0.5);
+        assertTrue(median >= 500000L && median <= 500000L * 9 / 8);
+        long p99 = snapshot.getPercentile(0.99);
+        assertTrue(p99 >= 990000L && p99 <= 1000000L);
+        assertEquals(1000000L, snapshot.getPercentile(1.0));
+    }
+
+    @Test
+    public void anEmptyHistogramReportsZero() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.getPercentile(0.99));
+    }
+}
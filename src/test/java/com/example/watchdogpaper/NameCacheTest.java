@@ -0,0 +1,72 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class NameCacheTest {
+
+    @Test
+    public void looksUpBothWays() {
+        NameCache cache = new NameCache(10);
+        UUID id = UUID.randomUUID();
+
+        assertNull(cache.put(id, "Steve"));
+        assertEquals(id, cache.getByName("steve").getUuid());
+        assertEquals("Steve", cache.getByUuid(id).getName());
+    }
+
+    @Test
+    public void aRenameDropsTheOldName() {
+        NameCache cache = new NameCache(10);
+        UUID id = UUID.randomUUID();
+        cache.put(id, "Steve");
+
+        assertEquals("Steve", cache.put(id, "Alex"));
+        assertNull(cache.getByName("Steve"));
+        assertEquals("Alex", cache.getByUuid(id).getName());
+    }
+
+    @Test
+    public void aChangeOfCaseKeepsTheName() {
+        NameCache cache = new NameCache(10);
+        UUID id = UUID.randomUUID();
+        cache.put(id, "Steve");
+        cache.put(id, "STEVE");
+
+        assertEquals("STEVE", cache.getByName("steve").getName());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void aNameTakenOverForgetsTheOldOwner() {
+        NameCache cache = new NameCache(10);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        cache.put(first, "Steve");
+        cache.put(second, "Steve");
+
+        assertEquals(second, cache.getByName("Steve").getUuid());
+        assertNull(cache.getByUuid(first));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        NameCache cache = new NameCache(2);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        cache.put(a, "A");
+        cache.put(b, "B");
+        cache.getByName("A");
+        cache.put(c, "C");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.getByName("B"));
+        assertNull(cache.getByUuid(b));
+        assertEquals(a, cache.getByName("A").getUuid());
+    }
+}
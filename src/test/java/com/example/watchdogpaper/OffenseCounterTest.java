@@ -0,0 +1,62 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class OffenseCounterTest {
+
+    private static Punishment punishment(String name, UUID playerId, String ip, String layout) {
+        return new Punishment(0, UUID.randomUUID().toString(), name, playerId, ip, PunishmentType.TEMPMUTE,
+                "reason", layout, "Console", 0, 1000);
+    }
+
+    @Test
+    public void countsPunishmentsPerLayout() {
+        OffenseCounter counter = new OffenseCounter();
+        UUID id = UUID.randomUUID();
+        counter.record(punishment("Steve", id, null, "chat"));
+        counter.record(punishment("Steve", id, null, "chat"));
+        counter.record(punishment("Steve", id, null, "hacking"));
+        counter.record(punishment("Steve", id, null, null));
+
+        assertEquals(2, counter.get(id, "Steve", "chat"));
+        assertEquals(1, counter.get(id, "Steve", "hacking"));
+        assertEquals(0, counter.get(id, "Steve", "spam"));
+    }
+
+    @Test
+    public void addsRowsPlacedOnTheNameAlone() {
+        OffenseCounter counter = new OffenseCounter();
+        UUID id = UUID.randomUUID();
+        counter.record(punishment("Steve", null, null, "chat"));
+        counter.record(punishment("Steve", id, null, "chat"));
+
+        assertEquals(2, counter.get(id, "STEVE", "chat"));
+        assertEquals(1, counter.get(id, "Alex", "chat"));
+        assertEquals(1, counter.get(null, "steve", "chat"));
+    }
+
+    @Test
+    public void ignoresBareAddresses() {
+        OffenseCounter counter = new OffenseCounter();
+        counter.record(punishment("", null, "10.0.0.1", "chat"));
+
+        assertEquals(0, counter.size());
+    }
+
+    @Test
+    public void loadReplacesEveryCount() {
+        OffenseCounter counter = new OffenseCounter();
+        UUID id = UUID.randomUUID();
+        counter.record(punishment("Alex", null, null, "chat"));
+        counter.load(Arrays.asList(new Storage.OffenseCount(id, "Steve", "chat", 3)));
+
+        assertEquals(3, counter.get(id, "Steve", "chat"));
+        assertEquals(0, counter.get(null, "Alex", "chat"));
+        assertEquals(1, counter.size());
+    }
+}
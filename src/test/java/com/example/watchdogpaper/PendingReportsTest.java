@@ -0,0 +1,134 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PendingReportsTest {
+
+    private static Report report(int id, String reporter, String reported, String reason, long timestamp) {
+        return new Report(id, "action-" + id, reporter, reported, reason, timestamp);
+    }
+
+    @Test
+    public void listsNewestFirstAndPages() {
+        PendingReports reports = new PendingReports();
+        for (int i = 1; i <= 5; i++) {
+            reports.add(report(i, "r" + i, "Steve", "Hacking", i * 1000L));
+        }
+
+        PendingReports.Page first = reports.query(null, null, 1, 2, null);
+        assertEquals(5, first.getTotalMatches());
+        assertEquals(3, first.getTotalPages());
+        assertEquals(5, first.getReports().get(0).getId());
+        assertEquals(4, first.getReports().get(1).getId());
+        PendingReports.Page last = reports.query(null, null, 3, 2, null);
+        assertEquals(1, last.getReports().size());
+        assertEquals(1, last.getReports().get(0).getId());
+        assertTrue(reports.query(null, null, 4, 2, null).getReports().isEmpty());
+    }
+
+    @Test
+    public void filtersByReasonAndReportedPlayer() {
+        PendingReports reports = new PendingReports();
+        reports.add(report(1, "a", "Steve", "Hacking", 1000));
+        reports.add(report(2, "b", "steve", "Spam", 2000));
+        reports.add(report(3, "c", "Alex", "Hacking", 3000));
+
+        assertEquals(2, reports.query("Hacking", null, 1, 10, null).getTotalMatches());
+        assertEquals(2, reports.query(null, "STEVE", 1, 10, null).getTotalMatches());
+        List<Report> both = reports.query("Hacking", "Steve", 1, 10, null).getReports();
+        assertEquals(1, both.size());
+        assertEquals(1, both.get(0).getId());
+    }
+
+    @Test
+    public void sortsByTheGivenOrder() {
+        PendingReports reports = new PendingReports();
+        reports.add(report(1, "a", "Steve", "Hacking", 1000));
+        reports.add(report(2, "b", "Alex", "Hacking", 2000));
+
+        List<Report> page = reports.query(null, null, 1, 10,
+                (x, y) -> x.getReported().compareTo(y.getReported())).getReports();
+        assertEquals("Alex", page.get(0).getReported());
+        assertEquals("Steve", page.get(1).getReported());
+    }
+
+    @Test
+    public void ignoresAReportWithAKnownActionId() {
+        PendingReports reports = new PendingReports();
+        // Journaled locally, then loaded again once stored
+        reports.add(new Report(0, "action", "a", "Steve", "Hacking", 1000));
+        reports.add(new Report(7, "action", "a", "Steve", "Hacking", 1000));
+
+        assertEquals(1, reports.size());
+    }
+
+    @Test
+    public void acceptRemovesOnlyReportsFiledUpToTheBound() {
+        PendingReports reports = new PendingReports();
+        Report early = report(1, "Alex", "Steve", "Hacking", 1000);
+        reports.add(early);
+        reports.add(report(2, "alex", "steve", "Spam", 5000));
+        reports.add(report(3, "Other", "Steve", "Hacking", 1000));
+
+        List<Report> accepted = reports.accept("ALEX", "Steve", 2000);
+        assertEquals(1, accepted.size());
+        assertSame(early, accepted.get(0));
+        assertEquals(2, reports.size());
+        assertEquals(1, reports.query("Hacking", null, 1, 10, null).getTotalMatches());
+        assertEquals(1, reports.accept("Alex", "Steve", 5000).size());
+        assertTrue(reports.accept("Alex", "Steve", 5000).isEmpty());
+    }
+
+    @Test
+    public void countsByReasonLargestFirst() {
+        PendingReports reports = new PendingReports();
+        reports.load(Arrays.asList(
+                report(1, "a", "Steve", "Spam", 1000),
+                report(2, "b", "Steve", "Hacking", 2000),
+                report(3, "c", "Alex", "Hacking", 3000)));
+
+        Iterator<Map.Entry<String, Integer>> counts = reports.countByReason().entrySet().iterator();
+        Map.Entry<String, Integer> top = counts.next();
+        assertEquals("Hacking", top.getKey());
+        assertEquals(2, (int) top.getValue());
+        assertEquals(1, (int) counts.next().getValue());
+    }
+
+    @Test
+    public void coalescesIdenticalReportsWithinTheWindow() {
+        PendingReports reports = new PendingReports();
+        Report first = report(1, "Alex", "Steve", "Hacking", 10000);
+        reports.add(first);
+
+        assertSame(first, reports.coalesce("alex", "STEVE", "Hacking", 5000));
+        assertEquals(2, first.getHits());
+        assertNull(reports.coalesce("Alex", "Steve", "Spam", 5000));
+        assertNull(reports.coalesce("Alex", "Steve", "Hacking", 20000));
+        assertEquals(1, reports.size());
+    }
+
+    @Test
+    public void addHitFindsTheReportByActionOrRowId() {
+        PendingReports reports = new PendingReports();
+        Report spooled = report(0, "a", "Steve", "Hacking", 1000);
+        Report old = new Report(12, null, "b", "Steve", "Hacking", 2000, 4);
+        reports.add(spooled);
+        reports.add(old);
+
+        reports.addHit(spooled.getActionId(), 0);
+        reports.addHit(null, 12);
+        reports.addHit("gone", 0);
+        assertEquals(2, spooled.getHits());
+        assertEquals(5, old.getHits());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PunishmentExpiryTest {
+
+    private static Punishment punishment(String name, PunishmentType type, long endTime) {
+        return new Punishment(0, UUID.randomUUID().toString(), name, null, "10.0.0.1", type,
+                "reason", null, "Console", 0, endTime);
+    }
+
+    @Test
+    public void returnsPunishmentsOnceTheyEnd() {
+        PunishmentExpiry expiry = new PunishmentExpiry(0);
+        Punishment ban = punishment("Steve", PunishmentType.TEMPBAN, 5000);
+        Punishment mute = punishment("Steve", PunishmentType.TEMPMUTE, 8000);
+        expiry.schedule(ban);
+        expiry.schedule(mute);
+
+        assertEquals(Collections.singletonList(ban), expiry.advance(5000));
+        assertEquals(Collections.singletonList(mute), expiry.advance(8000));
+        assertEquals(0, expiry.size());
+    }
+
+    @Test
+    public void keepsTheTimerThatEndsLater() {
+        PunishmentExpiry expiry = new PunishmentExpiry(0);
+        Punishment longer = punishment("Steve", PunishmentType.TEMPBAN, 9000);
+        expiry.schedule(longer);
+        expiry.schedule(punishment("steve", PunishmentType.TEMPBAN, 4000));
+
+        assertTrue(expiry.advance(8000).isEmpty());
+        assertEquals(Collections.singletonList(longer), expiry.advance(9000));
+    }
+
+    @Test
+    public void aLaterPunishmentReplacesTheTimer() {
+        PunishmentExpiry expiry = new PunishmentExpiry(0);
+        expiry.schedule(punishment("Steve", PunishmentType.TEMPMUTE, 4000));
+        Punishment longer = punishment("Steve", PunishmentType.TEMPMUTE, 9000);
+        expiry.schedule(longer);
+
+        assertEquals(1, expiry.size());
+        assertTrue(expiry.advance(8000).isEmpty());
+        assertEquals(Collections.singletonList(longer), expiry.advance(9000));
+    }
+
+    @Test
+    public void aPermanentPunishmentCancelsTheTimer() {
+        PunishmentExpiry expiry = new PunishmentExpiry(0);
+        expiry.schedule(punishment("Steve", PunishmentType.TEMPBAN, 4000));
+        expiry.schedule(punishment("Steve", PunishmentType.BAN, 0));
+
+        assertEquals(0, expiry.size());
+        assertTrue(expiry.advance(10000).isEmpty());
+    }
+
+    @Test
+    public void cancelStopsTheTimer() {
+        PunishmentExpiry expiry = new PunishmentExpiry(0);
+        expiry.schedule(punishment("Steve", PunishmentType.TEMPBAN, 4000));
+        expiry.schedule(punishment("Alex", PunishmentType.TEMPIPBAN, 4000));
+
+        expiry.cancel("STEVE", true);
+        expiry.cancelIpBan("10.0.0.1");
+        assertTrue(expiry.advance(10000).isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReportRateLimiterTest {
+
+    @Test
+    public void allowsABurstThenRefillsOneTokenPerInterval() {
+        ReportRateLimiter limiter = new ReportRateLimiter(3, 60000L);
+        UUID reporter = UUID.randomUUID();
+
+        assertTrue(limiter.tryAcquire(reporter, 0));
+        assertTrue(limiter.tryAcquire(reporter, 0));
+        assertTrue(limiter.tryAcquire(reporter, 0));
+        assertFalse(limiter.tryAcquire(reporter, 0));
+        assertEquals(60000L, limiter.getWaitTime(reporter, 0));
+        assertEquals(15000L, limiter.getWaitTime(reporter, 45000));
+
+        assertTrue(limiter.tryAcquire(reporter, 60000));
+        assertFalse(limiter.tryAcquire(reporter, 60000));
+    }
+
+    @Test
+    public void keepsReportersApart() {
+        ReportRateLimiter limiter = new ReportRateLimiter(1, 60000L);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertTrue(limiter.tryAcquire(first, 0));
+        assertFalse(limiter.tryAcquire(first, 0));
+        assertTrue(limiter.tryAcquire(second, 0));
+        assertEquals(0L, limiter.getWaitTime(UUID.randomUUID(), 0));
+    }
+
+    @Test
+    public void neverHoldsMoreThanTheBurst() {
+        ReportRateLimiter limiter = new ReportRateLimiter(2, 1000L);
+        UUID reporter = UUID.randomUUID();
+        limiter.tryAcquire(reporter, 0);
+
+        assertTrue(limiter.tryAcquire(reporter, 100000));
+        assertTrue(limiter.tryAcquire(reporter, 100000));
+        assertFalse(limiter.tryAcquire(reporter, 100000));
+    }
+}
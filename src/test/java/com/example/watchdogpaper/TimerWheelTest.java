@@ -0,0 +1,88 @@
+package com.example.watchdogpaper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimerWheelTest {
+
+    @Test
+    public void firesOnlyOnceTheDeadlineHasPassed() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000L, 0);
+        wheel.schedule("a", 5500);
+
+        assertTrue(wheel.advance(5000).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(6000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void firesAnOverdueTimeoutOnTheNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000L, 10000);
+        wheel.schedule("late", 0);
+
+        assertEquals(Collections.singletonList("late"), wheel.advance(11000));
+    }
+
+    @Test
+    public void cancelledTimeoutsNeverFire() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000L, 0);
+        TimerWheel.Timeout<String> timeout = wheel.schedule("a", 3000);
+        wheel.schedule("b", 3000);
+
+        assertTrue(wheel.cancel(timeout));
+        assertFalse(wheel.cancel(timeout));
+        assertEquals(Collections.singletonList("b"), wheel.advance(3000));
+        assertFalse(timeout.isPending());
+    }
+
+    @Test
+    public void cascadesAcrossLevels() {
+        TimerWheel<Long> wheel = new TimerWheel<>(1000L, 0);
+        // One on each of the five levels
+        List<Long> deadlines = Arrays.asList(10L, 100L, 5000L, 300000L, 20000000L);
+        for (long seconds : deadlines) {
+            wheel.schedule(seconds, seconds * 1000);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        for (long seconds : deadlines) {
+            assertTrue(wheel.advance(seconds * 1000 - 1000).isEmpty());
+            List<Long> expired = wheel.advance(seconds * 1000);
+            assertEquals(Collections.singletonList(seconds), expired);
+            fired.addAll(expired);
+        }
+        assertEquals(deadlines, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void firesEveryTimeoutAtItsOwnTick() {
+        Random random = new Random(42);
+        TimerWheel<Long> wheel = new TimerWheel<>(1000L, 0);
+        for (int i = 0; i < 2000; i++) {
+            long deadline = (1 + random.nextInt(400000)) * 1000L;
+            wheel.schedule(deadline, deadline);
+        }
+
+        long now = 0;
+        int fired = 0;
+        while (wheel.size() > 0) {
+            now += 1000 * (1 + random.nextInt(5000));
+            for (long deadline : wheel.advance(now)) {
+                assertTrue(deadline <= now);
+                assertTrue(deadline > now - 5000 * 1000L);
+                fired++;
+            }
+        }
+        assertEquals(2000, fired);
+    }
+}
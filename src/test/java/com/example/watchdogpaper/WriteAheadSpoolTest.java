@@ -0,0 +1,138 @@
+package com.example.watchdogpaper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WriteAheadSpoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Logger LOGGER = Logger.getLogger("test");
+
+    private WriteAheadSpool open(File file) throws Exception {
+        return new WriteAheadSpool(file, 1000L, LOGGER);
+    }
+
+    @Test
+    public void recoversPendingEntriesAfterARestart() throws Exception {
+        File file = new File(folder.getRoot(), "spool.dat");
+        WriteAheadSpool spool = open(file);
+        WriteAheadSpool.Entry ban = spool.append(WriteAheadSpool.Action.PUNISH, "Steve", "BAN", null);
+        WriteAheadSpool.Entry report = spool.append(WriteAheadSpool.Action.REPORT, "Alex", "Steve", "Hacking");
+        spool.acknowledge(report.getId());
+        spool.close();
+
+        spool = open(file);
+        List<WriteAheadSpool.Entry> pending = spool.getPending();
+        assertEquals(1, pending.size());
+        WriteAheadSpool.Entry recovered = pending.get(0);
+        assertEquals(ban.getId(), recovered.getId());
+        assertEquals(WriteAheadSpool.Action.PUNISH, recovered.getAction());
+        assertEquals(ban.getTime(), recovered.getTime());
+        assertEquals("BAN", recovered.getArg(1));
+        assertNull(recovered.getArg(2));
+        assertNull(recovered.getArg(3));
+        spool.close();
+    }
+
+    @Test
+    public void startsOverOnceEverythingIsAcknowledged() throws Exception {
+        File file = new File(folder.getRoot(), "spool.dat");
+        WriteAheadSpool spool = open(file);
+        WriteAheadSpool.Entry first = spool.append(WriteAheadSpool.Action.DEACTIVATE_BANS, "Steve", null);
+        WriteAheadSpool.Entry second = spool.append(WriteAheadSpool.Action.DEACTIVATE_MUTES, "Steve", null);
+        spool.acknowledge(first.getId());
+        spool.acknowledge(second.getId());
+        spool.acknowledge("unknown");
+        spool.close();
+
+        assertEquals(0, file.length());
+    }
+
+    @Test
+    public void cutsOffATornTail() throws Exception {
+        File file = new File(folder.getRoot(), "spool.dat");
+        WriteAheadSpool spool = open(file);
+        WriteAheadSpool.Entry kept = spool.append(WriteAheadSpool.Action.REPORT, "Alex", "Steve", "Hacking");
+        long intact = file.length();
+        spool.append(WriteAheadSpool.Action.REPORT, "Alex", "Steve", "Spam");
+        spool.close();
+        truncate(file, file.length() - 3);
+
+        spool = open(file);
+        assertEquals(1, spool.getPendingCount());
+        assertEquals(kept.getId(), spool.getPending().get(0).getId());
+        assertEquals(intact, file.length());
+        spool.close();
+    }
+
+    @Test
+    public void stopsAtARecordWithABadChecksum() throws Exception {
+        File file = new File(folder.getRoot(), "spool.dat");
+        WriteAheadSpool spool = open(file);
+        WriteAheadSpool.Entry kept = spool.append(WriteAheadSpool.Action.REPORT, "Alex", "Steve", "Hacking");
+        long intact = file.length();
+        spool.append(WriteAheadSpool.Action.REPORT, "Alex", "Steve", "Spam");
+        spool.append(WriteAheadSpool.Action.REPORT, "Alex", "Steve", "Other");
+        spool.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // A byte inside the second record's payload, past its length and checksum
+            long offset = intact + 8 + 10;
+            raf.seek(offset);
+            int value = raf.read();
+            raf.seek(offset);
+            raf.write(value ^ 0xFF);
+        }
+
+        spool = open(file);
+        assertEquals(Arrays.asList(kept.getId()), ids(spool.getPending()));
+        assertEquals(intact, file.length());
+        spool.close();
+    }
+
+    @Test
+    public void compactsToThePendingEntries() throws Exception {
+        File file = new File(folder.getRoot(), "spool.dat");
+        char[] filler = new char[60000];
+        Arrays.fill(filler, 'x');
+        String reason = new String(filler);
+        WriteAheadSpool spool = open(file);
+        WriteAheadSpool.Entry kept = spool.append(WriteAheadSpool.Action.REPORT, "Alex", "Steve", "Hacking");
+        for (int i = 0; i < 80; i++) {
+            spool.acknowledge(spool.append(WriteAheadSpool.Action.REPORT, "Alex", "Steve", reason).getId());
+        }
+        assertTrue(file.length() < 1024 * 1024);
+        spool.close();
+
+        spool = open(file);
+        assertEquals(Arrays.asList(kept.getId()), ids(spool.getPending()));
+        assertEquals("Hacking", spool.getPending().get(0).getArg(2));
+        spool.close();
+    }
+
+    private static void truncate(File file, long length) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    private static List<String> ids(List<WriteAheadSpool.Entry> entries) {
+        String[] ids = new String[entries.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entries.get(i).getId();
+        }
+        return Arrays.asList(ids);
+    }
+}